@@ -13,13 +13,15 @@ package addressBook;
 
 import java.awt.Dimension;
 import java.awt.EventQueue;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
-import javax.swing.DefaultListModel;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JList;
-import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
@@ -32,11 +34,18 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import testingFramework.TestData;
+import common.TextIndex;
+import common.TextIndexMatcherEditor;
 import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.FilterList;
+import ca.odell.glazedlists.FunctionList;
+import ca.odell.glazedlists.SortedList;
 import ca.odell.glazedlists.TextFilterator;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.matchers.Matcher;
+import ca.odell.glazedlists.swing.DefaultEventListModel;
 import ca.odell.glazedlists.swing.DefaultEventTableModel;
-import ca.odell.glazedlists.swing.TextComponentMatcherEditor;
+import ca.odell.glazedlists.swing.GlazedListsSwing;
 
 import com.jgoodies.forms.factories.FormFactory;
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -131,6 +140,23 @@ public class AddressBook{
     		
     }
 
+	/**
+	 * Gets the soft limit of the list size.
+	 * @return The number of contacts after which a warning is given.
+	 */
+	public int getSoftLimit(){return m_softLimit;}
+	/**
+	 * Sets the soft limit of the list size.
+	 * @param limit The number of contacts after which a warning is given.
+	 * @return True on success, false if the limit was not positive.
+	 */
+	public boolean setSoftLimit(int limit){
+		if (limit <= 0)
+			return false;
+		m_softLimit = limit;
+		return true;
+	}
+
 	/**
 	 * Get the debug switch status.
 	 * @return The switch status.
@@ -159,6 +185,26 @@ public class AddressBook{
 	 * @return The list of contacts.
 	 */
 	private BasicEventList<Contact> getAddressBook(){return m_AddressBook;}
+	/**
+	 * Gets the ID to contact index.<br/>
+	 * Must only be changed while holding the list's write lock.
+	 * @return The index.
+	 */
+	private Map<String, Contact> getContactIndex(){return m_contactIndex;}
+	
+	/**
+	 * Adds a contact to the end of the list and to the ID index.<br/>
+	 * The caller is expected to hold the list's write lock.
+	 * @param c The contact to be stored.
+	 */
+	private void storeContact(Contact c){
+		//Indexed first, so the search table finds it when it is added.
+		m_textIndex.added(c);
+		m_fuzzyIndex.added(c);
+		m_phoneIndex.added(c);
+		getAddressBook().add(c);
+		getContactIndex().put(c.getID(), c);
+	}
 	
 
 	/**
@@ -217,28 +263,32 @@ public class AddressBook{
 	}
 	
 	/**
-	 * Populates the JList with contact names.
+	 * Backs the JList with the first names of the contacts.<br/>
+	 * The JList's model follows the list through a proxy on the Swing 
+	 * thread, so an add, edit or remove changes just its row, on the 
+	 * Swing thread, instead of every first name being copied again.
 	 * @return True on success, false on failure.
 	 */
 	private boolean populateList (){
-		final DefaultListModel dlm = new DefaultListModel();
-		EventQueue.invokeLater(new Runnable() {
-			@Override
-			public void run() {
-				getContactJList().setModel(dlm);
-			}
-		});
-		if (this.getSize()<=0){
-			//dlm.addElement("NO CONTACTS AVAILABLE");
-			return false;
+		final EventList<String> shown;
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			shown = GlazedListsSwing.swingThreadProxyList(
+					new FunctionList<Contact, String>(getAddressBook(), 
+							new FunctionList.Function<Contact, String>(){
+				@Override
+				public String evaluate(Contact c){
+					return c.getFirstName();
+				}
+			}));
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
 		}
-		
-		for(int i=0; i< this.getSize();i++)
-			dlm.addElement( this.getContact(i).getFirstName());
-		//getAddressBook().setSelectedIndex(0);
 		EventQueue.invokeLater(new Runnable() {
 			@Override
 			public void run() {
+				getContactJList().setModel(
+						new DefaultEventListModel<String>(shown));
 				getContactJList().setSelectionMode
 					(ListSelectionModel.SINGLE_SELECTION);
 			}
@@ -249,18 +299,18 @@ public class AddressBook{
 	
 
 	/**
-	 * Refreshes the JList.
-	 * @return True on success, false on failure.
+	 * Refreshes the JList.<br/>
+	 * The JList follows the changes by itself, see populateList().
+	 * @return True if there are contacts to show, false otherwise.
 	 */
 	public boolean update(){
-		if (populateList()){
-			if (getDebugStatus())
-				System.out.println("AB: update(): Contact JList updated.");
+		if (isInBatch()){
+			m_batchRefresh = true;
 			return true;
 		}
 		if (getDebugStatus())
-			System.out.println("AB: update(): Contact JList didn't update.");
-		return false;
+			System.out.println("AB: update(): Contact JList is up to date.");
+		return getSize() > 0;
 	}
 
 	/**
@@ -269,81 +319,163 @@ public class AddressBook{
 	 * @return True on success, false on failure.
 	 */
 	public boolean addContact(Contact c){
-		if (!SystemDate.validateTimeStamp(c.getID())){
-			if(getDebugStatus())
-				System.err.println("AB: addContact(Contact): "+
-						"Invalid ID format. Contact not added.");
+		if (!insertContact(c))
 			return false;
+		if (!isInBatch())
+			checkSoftLimit();
+		update();
+		if(getDebugStatus())
+			System.out.println("AB: addContact(): Added a contact: " +
+					"["+c.getFirstName()+"].");
+		if(getFileWritingMode()){
+			if(getDebugStatus())
+				System.out.println("AB: addContact(): " +
+						"Writing it to file...");
+			DigitalOrganiser.getContactFileManager().write(c);
+	        if (getDebugStatus())
+	        	System.out.println("AB: addContact(): " +
+	        			"Finished write call.");
 		}
-		int NOT_FOUND = -1;
-		if (findContactIndex(c.getID()) != NOT_FOUND){
+		return true;
+	}
+	
+	/**
+	 * Validates the ID of a contact and stores it.<br/>
+	 * Neither refreshes the display nor writes to the file.
+	 * @param c The contact to be stored.
+	 * @return True on success, false on failure.
+	 */
+	private boolean insertContact(Contact c){
+		if (!SystemDate.validateTimeStamp(c.getID())){
 			if(getDebugStatus())
-			System.err.println("AB: addContact(Contact): "+
-					"ID already exists. Contact not added.");
+				System.err.println("AB: insertContact(): "+
+						"Invalid ID format. Contact not added.");
 			return false;
 		}
-		if(!INNER_ADD_CALL)
-			if (getSize() >= SIZE_LIMIT){
-				JOptionPane.showMessageDialog(	null,
-										"Sorry, the limit is 1000 Contacts.",
-										"Cannot add Contact",
-										JOptionPane.ERROR_MESSAGE);
+		//Checked and stored under one hold of the lock, so two threads
+		//can't both add the same ID.
+		getAddressBook().getReadWriteLock().writeLock().lock();
+		try{
+			if (getContactIndex().containsKey(c.getID())){
 				if(getDebugStatus())
-					System.out.println("AB: addContact(Contact): " +
-							"Popped size limit message." +
-							"My size is: "+getSize());
+				System.err.println("AB: insertContact(): "+
+						"ID already exists. Contact not added.");
 				return false;
-			} else {
-				getAddressBook().getReadWriteLock().writeLock().lock();
-				getAddressBook().add(c);
-				getAddressBook().getReadWriteLock().writeLock().unlock();
-				update();
-				if(getDebugStatus())
-					System.out.println("AB: addContact(): Added a contact: " +
-							"["+c.getFirstName()+"].");
-				if(getFileWritingMode()){
-					if(getDebugStatus())
-						System.out.println("AB: addContact(): " +
-								"Writing it to file...");
-					DigitalOrganiser.getContactFileManager().write(c);
-			        if (getDebugStatus())
-			        	System.out.println("AB: addContact(): " +
-			        			"Finished write call.");
-				}
-				return true;
 			}
-		else 
-			getAddressBook().add(c);
-		if(getDebugStatus())
-			System.out.println("AB: addContact(): Added a Contact without" +
-					" writing to file: ["+c.getFirstName()+"]");
+			storeContact(c);
+		} finally {
+			getAddressBook().getReadWriteLock().writeLock().unlock();
+		}
 		return true;
-		
 	}
 	
+	/**
+	 * Checks the list size against the soft limit.<br/>
+	 * Going past the limit doesn't stop contacts from being added; 
+	 * it only prints a warning, once per crossing.
+	 * @return True if the list is larger than the soft limit.
+	 */
+	public boolean checkSoftLimit(){
+		if (getSize() <= getSoftLimit()){
+			m_softLimitWarned = false;
+			return false;
+		}
+		if (!m_softLimitWarned){
+			System.err.println("AB: checkSoftLimit(): "+getSize()+
+					" contacts stored, over the soft limit of "+
+					getSoftLimit()+".");
+			m_softLimitWarned = true;
+		}
+		return true;
+	}	
+	/**
+	 * Begins a batch of changes.<br/>
+	 * Until the matching commitBatch() all the adds, edits and removes made
+	 * by this thread are applied under one hold of the address book's write lock,
+	 * the display isn't refreshed and the file manager collects the writes 
+	 * instead of doing them.<br/>
+	 * Batches can be nested; only the outermost commit refreshes and writes.
+	 * The batch must be committed by the thread which began it, preferably 
+	 * in a finally block.
+	 * @return True on success.
+	 */
+	public boolean beginBatch(){
+		getAddressBook().getReadWriteLock().writeLock().lock();
+		if (m_batchDepth == 0){
+			m_batchThread = Thread.currentThread();
+			m_batchRefresh = false;
+			if (getFileWritingMode())
+				DigitalOrganiser.getContactFileManager().beginBatch();
+		}
+		m_batchDepth++;
+		return true;
+	}
+	
+	/**
+	 * Commits a batch of changes.<br/>
+	 * The outermost commit releases the write lock, then refreshes the 
+	 * display once and has the file manager write all the changes at once.
+	 * @return True on success, false if this thread hasn't begun a batch.
+	 */
+	public boolean commitBatch(){
+		if (!isInBatch())
+			return false;
+		m_batchDepth--;
+		boolean outermost = (m_batchDepth == 0);
+		boolean refresh = false;
+		if (outermost){
+			m_batchThread = null;
+			refresh = m_batchRefresh;
+			m_batchRefresh = false;
+		}
+		getAddressBook().getReadWriteLock().writeLock().unlock();
+		if (!outermost)
+			return true;
+		if (getDebugStatus())
+			System.out.println("AB: commitBatch(): Committing the batch.");
+		if (refresh){
+			checkSoftLimit();
+			update();
+		}
+		return DigitalOrganiser.getContactFileManager() == null
+				|| DigitalOrganiser.getContactFileManager().commitBatch();
+	}
+	
+	/**
+	 * Checks if the current thread is in the middle of a batch.
+	 * @return True if it has begun a batch and not yet committed it.
+	 */
+	public boolean isInBatch(){
+		return m_batchThread == Thread.currentThread();
+	}
+
+	
 	/**
 	 * Adds an contact based on a string array.
 	 * @param eArray The array with the Contact values.
 	 * @return True on success, false on failure.
 	 */
 	public boolean addContact(String[] eArray){
-		if (getSize() >= SIZE_LIMIT){
-			if(getDebugStatus())
-				System.err.println("AB: addContact(String[]): "+
-						"Sorry, the limit is " + SIZE_LIMIT +" contacts. "+
-						"My current size is: "+getSize()+". "+
-						"Cannot add Contact.");
-			return false;
-		}
 		Contact c = new Contact();
 		if (!c.setFromStringArray(eArray))
 			return false;
-		INNER_ADD_CALL = true;
-		if(!(addContact(c))){
-			INNER_ADD_CALL = false;
+		return addLoadedContact(c);
+	}
+	
+	/**
+	 * Adds a contact that was loaded from the file, without writing it
+	 * back to the file.<br/>
+	 * Loads should be done in a batch, so the display is refreshed once.
+	 * @param c The contact to be stored.
+	 * @return True on success, false on failure.
+	 */
+	public boolean addLoadedContact(Contact c){
+		if (!insertContact(c))
 			return false;
-		}
-		INNER_ADD_CALL = false;
+		if(getDebugStatus())
+			System.out.println("AB: addLoadedContact(): Added a contact " +
+					"without writing to file: ["+c.getFirstName()+"]");
+		update();
 		return true;
 	}
 	
@@ -358,17 +490,27 @@ public class AddressBook{
 			if (getDebugStatus())
 				System.out.println("AB: editContact(): " +
 						"Editing the Contact at index: "+i);
+			Contact old;
 			getAddressBook().getReadWriteLock().writeLock().lock();
-			getAddressBook().add(i, contact);
-			removeContact(i+1);
-			getAddressBook().getReadWriteLock().writeLock().unlock();
+			try{
+				m_textIndex.replaced(getAddressBook().get(i), contact);
+				m_fuzzyIndex.replaced(getAddressBook().get(i), contact);
+				m_phoneIndex.replaced(getAddressBook().get(i), contact);
+				old = getAddressBook().set(i, contact);
+				if (getContactIndex().get(old.getID()) == old)
+					getContactIndex().remove(old.getID());
+				getContactIndex().put(contact.getID(), contact);
+			} finally {
+				getAddressBook().getReadWriteLock().writeLock().unlock();
+			}
 			if (getDebugStatus())
 				System.out.println("AB: editContact(): Replaced the Contact.");
 			if(getFileWritingMode()){
 				if(getDebugStatus())
 					System.out.println("AB: editContact(): " +
 							"ReWriting the file...");
-				DigitalOrganiser.getContactFileManager().write();
+				DigitalOrganiser.getContactFileManager()
+					.writeEdit(old.getID(), contact);
 		        if (getDebugStatus())
 		        	System.out.println("AB: editContact(): " +
 		        			"Finished rewrite call.");
@@ -403,31 +545,95 @@ public class AddressBook{
     }
 	
 	/**
-	 * Finds the list index of a contact based on the ID.
+	 * Finds the list index of a contact based on the ID.<br/>
+	 * Unknown IDs are rejected straight from the ID index; known ones only 
+	 * need a reference comparison to find their position.
 	 * @param id The ID of the contact.
 	 * @return The index or -1 if it wasn't found.
 	 */
 	public int findContactIndex(String id){
-		for (int i = 0; i < getSize() ; i++){
-			Contact c = getContact(i);
-			
-			if (getDebugStatus())
+		int i = -1;
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			Contact c = getContactIndex().get(id);
+			if (c != null)
+				i = getAddressBook().indexOf(c);
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
+		}
+		if (getDebugStatus()){
+			if (i != -1)
 				System.out.println("AB: findContact(): "+
-						"Comparing: [" + c.getID() + "] vs [" + id + "]");
-
-			if (c.getID().equals(id)){
-				if (getDebugStatus())
-					System.out.println("AB: findContact(): "+
-							"Found: [" + c.getID() + "] at index [" + i + "]");
-				return i;
-			}
+						"Found: [" + id + "] at index [" + i + "]");
+			else
+				System.out.println("AB: findContactIndex(): "+
+						"Could not find ID : [" + id + "]");
 		}
-		if (getDebugStatus())
-			System.out.println("AB: findContactIndex(): "+
-								"Could not find ID : [" + id + "]");
-		return -1;
+		return i;
 	}
 	
+	/**
+	 * Checks if a contact with the given ID is stored in the list.
+	 * @param id The ID of the contact.
+	 * @return True if found, false otherwise.
+	 */
+	public boolean containsContact(String id){
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			return getContactIndex().containsKey(id);
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Finds the contacts whose names or emails are closest to a search,
+	 * allowing for typing mistakes and names that sound alike.
+	 * @param text The search.
+	 * @param limit The greatest number of contacts returned.
+	 * @return The contacts, closest first.
+	 * @see FuzzyContactIndex
+	 */
+	public List<Contact> findContacts(String text, int limit){
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			return m_fuzzyIndex.search(text, limit);
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the contact owning a telephone number, however it is written,
+	 * e.g. with spaces or a country code.
+	 * @param number The number.
+	 * @return The contact, or null if no contact has the number.
+	 * @see PhoneNumberIndex
+	 */
+	public Contact findContactByNumber(String number){
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			return m_phoneIndex.findOwner(number);
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the contacts owning many telephone numbers in one go.
+	 * @param numbers The numbers.
+	 * @return The contact owning each number that has one, by the number.
+	 * @see findContactByNumber(String)
+	 */
+	public Map<String, Contact> findContactsByNumbers(Iterable<String> numbers){
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			return m_phoneIndex.findOwners(numbers);
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
+		}
+	}
+
     /**
      * Gets a contact from the list based on the index.
      * @param index The index of the desired Contact.
@@ -452,10 +658,32 @@ public class AddressBook{
      * @see getContact(int)
      */
     public Contact getContact(String id){
-    	if (getDebugStatus())
-			System.out.println("AB: getContact(String): " +
-					"A call to getContact(int) is to follow after this.");
-    	return getContact(findContactIndex(id));    	
+    	Contact c;
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			c = getContactIndex().get(id);
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
+		}
+    	if (c == null && getDebugStatus())
+			System.err.println("AB: getContact(String): " +
+					"Could not find ID : [" + id + "]");
+    	return c;
+    }
+    
+    /**
+     * Gets a copy of the contacts, taken under the list's read lock.<br/>
+     * Safe to use from threads other than the one changing the list.
+     * @return The contacts, in list order.
+     */
+    public Contact[] toArray(){
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			return getAddressBook().toArray(
+					new Contact[getAddressBook().size()]);
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
+		}
     }
     
     /**
@@ -472,10 +700,19 @@ public class AddressBook{
     	if (getDebugStatus())
     		System.out.println("AB: removeContact(): Passed index: " +
     				"["+index+"].");
-    	if (index < 0 || index > getSize()) return false;
+    	if (index < 0 || index >= getSize()) return false;
+		Contact removed;
 		getAddressBook().getReadWriteLock().writeLock().lock();
-		getAddressBook().remove(index);
-		getAddressBook().getReadWriteLock().writeLock().unlock();
+		try{
+			removed = getAddressBook().remove(index);
+			if (getContactIndex().get(removed.getID()) == removed)
+				getContactIndex().remove(removed.getID());
+			m_textIndex.removed(removed);
+			m_fuzzyIndex.removed(removed);
+			m_phoneIndex.removed(removed);
+		} finally {
+			getAddressBook().getReadWriteLock().writeLock().unlock();
+		}
 
         this.update();
         if (getDebugStatus())
@@ -485,7 +722,8 @@ public class AddressBook{
 			if(getDebugStatus())
 				System.out.println("AB: removeContact(): " +
 						"ReWriting the file...");
-			DigitalOrganiser.getContactFileManager().write();
+			DigitalOrganiser.getContactFileManager()
+				.writeRemove(removed.getID());
 	        if (getDebugStatus())
 	        	System.out.println("AB: removeContact(): " +
 	        			"Finished rewrite call.");
@@ -509,7 +747,16 @@ public class AddressBook{
      * @return True on success, false on failure.
      */
     public boolean clear(){
-    	getAddressBook().clear();
+		getAddressBook().getReadWriteLock().writeLock().lock();
+		try{
+			getAddressBook().clear();
+			getContactIndex().clear();
+			m_textIndex.clear();
+			m_fuzzyIndex.clear();
+			m_phoneIndex.clear();
+		} finally {
+			getAddressBook().getReadWriteLock().writeLock().unlock();
+		}
     	this.update();
     	
     	return true;
@@ -554,14 +801,55 @@ public class AddressBook{
 		COL = "2"; ROW = "3";
 		jp.add(searchFieldLabel, COL+", "+ROW+", center, default");
 	
-		TextFilterator<Contact> tf = new MyTextFilterator();		
-		TextComponentMatcherEditor<Contact> matchEditor = 
-				new TextComponentMatcherEditor<Contact>( searchField , tf );		
 		FilterList<Contact> filteredContacts = 
-				new FilterList<Contact>( getAddressBook() , matchEditor ); 		
+				new FilterList<Contact>( getAddressBook() );
+		//Closest first while close matches are shown, else in list order.
+		final SortedList<Contact> sortedContacts = 
+				new SortedList<Contact>( filteredContacts , null );
+		//Also shows the contacts closest to a long enough search, or to one
+		//matching nothing, allowing for typos.
+		TextIndexMatcherEditor<Contact> matchEditor = 
+				new TextIndexMatcherEditor<Contact>( searchField , m_textIndex ){
+			@Override
+			protected Matcher<Contact> createMatcher(
+					TextIndex<Contact>.Query query, String text){
+				if (query.isEmpty() || (!query.isFruitless()
+						&& text.trim().length() < FUZZY_SEARCH_MIN_LENGTH))
+					return query;
+				List<Contact> close = 
+						m_fuzzyIndex.search(text, FUZZY_SEARCH_LIMIT);
+				if (close.isEmpty())
+					return query;
+				return new CloseMatcher(query, close);
+			}
+
+			@Override
+			protected void filtering(Matcher<Contact> matcher){
+				Comparator<Contact> order = matcher instanceof CloseMatcher
+						? (CloseMatcher) matcher : null;
+				getAddressBook().getReadWriteLock().writeLock().lock();
+				try{
+					if (order != null || sortedContacts.getComparator() != null)
+						sortedContacts.setComparator(order);
+				} finally {
+					getAddressBook().getReadWriteLock().writeLock().unlock();
+				}
+			}
+		};
+		filteredContacts.setMatcherEditor(matchEditor);
+		//Searches filter the list in the background, the table only sees 
+		//the changes on the Swing thread.
+		EventList<Contact> shownContacts;
+		getAddressBook().getReadWriteLock().readLock().lock();
+		try{
+			shownContacts = 
+					GlazedListsSwing.swingThreadProxyList(sortedContacts);
+		} finally {
+			getAddressBook().getReadWriteLock().readLock().unlock();
+		}
 		ContactTableFormat columns = new ContactTableFormat();		
 	    DefaultEventTableModel<Contact> tableModel = 
-	    		new DefaultEventTableModel<Contact>( filteredContacts , columns );
+	    		new DefaultEventTableModel<Contact>( shownContacts , columns );
 
 	    setSearchTable(new JTable(tableModel));
         formatTable();  
@@ -652,6 +940,55 @@ public class AddressBook{
         }
     }
 	
+	/**
+	 * @brief Matches the contacts a search finds, or which are close to it,
+	 * and orders them closest first.
+	 *
+	 * The close contacts come first, in the order FuzzyContactIndex ranks
+	 * them, then the others found in list order.
+	 */
+	private static class CloseMatcher 
+			implements Matcher<Contact>, Comparator<Contact>{
+
+		/**
+		 * Creates the matcher.
+		 * @param query The query of the search.
+		 * @param close The contacts close to the search, closest first.
+		 */
+		CloseMatcher(TextIndex<Contact>.Query query, List<Contact> close){
+			m_query = query;
+			for (int i = 0; i < close.size(); i++)
+				m_ranks.put(close.get(i), i);
+		}
+
+		@Override
+		public boolean matches(Contact c){
+			return m_ranks.containsKey(c) || m_query.matches(c);
+		}
+
+		@Override
+		public int compare(Contact a, Contact b){
+			return getRank(a) - getRank(b);
+		}
+
+		/**
+		 * Gets the rank of a contact.
+		 * @param c The contact.
+		 * @return Its place among the close contacts, or their number if it
+		 * isn't one of them.
+		 */
+		private int getRank(Contact c){
+			Integer rank = m_ranks.get(c);
+			return rank == null ? m_ranks.size() : rank;
+		}
+
+		/** The query of the search. */
+		private TextIndex<Contact>.Query m_query;
+		/** The place of each close contact, closest first. */
+		private Map<Contact, Integer> m_ranks = 
+				new IdentityHashMap<Contact, Integer>();
+	}
+	
 	/**
 	 * @brief Own implementation of a TextFilterator class.
 	 * @author Codrin Morhan; Yan Sun
@@ -721,14 +1058,38 @@ public class AddressBook{
 	
 	/** The list of contacts. */
     private BasicEventList<Contact> m_AddressBook = new BasicEventList<Contact>();
+    /** Maps each stored contact's ID to the contact, kept in step with the list. */
+    private Map<String, Contact> m_contactIndex = new HashMap<String, Contact>();
+    /** The words of the searched fields of the contacts. */
+    private TextIndex<Contact> m_textIndex = 
+    		new TextIndex<Contact>(new MyTextFilterator());
+    /** The words of the names and emails, for searches allowing typos. */
+    private FuzzyContactIndex m_fuzzyIndex = new FuzzyContactIndex();
+    /** The contacts owning each telephone number. */
+    private PhoneNumberIndex m_phoneIndex = new PhoneNumberIndex();
+    /** The most close matches the search table shows beside the others. */
+    public static final int FUZZY_SEARCH_LIMIT = 100;
+    /** 
+     * The shortest search the table shows close matches of, unless it 
+     * finds nothing; shorter ones are close to too many contacts.
+     */
+    public static final int FUZZY_SEARCH_MIN_LENGTH = 3;
     /** Debug switch */
     private boolean m_debug = false;
     /** The JList widget. */
 	private JList m_contactJList;
-	/** Tracks if the addContact(Contact) was called by the add(String[]). */
-	private static boolean INNER_ADD_CALL = false;
-	/** The limit of the Contact list size. */
-	public static final int SIZE_LIMIT = 1000;
+	/** The default soft limit of the Contact list size. */
+	public static final int DEFAULT_SOFT_LIMIT = 100000;
+	/** The thread that has begun a batch, null when there is no batch. */
+	private volatile Thread m_batchThread = null;
+	/** The number of batches begun and not yet committed by the thread. */
+	private int m_batchDepth = 0;
+	/** Tracks if a refresh was put off until the batch is committed. */
+	private boolean m_batchRefresh = false;
+	/** The list size after which a warning is given. Contacts are still accepted. */
+	private int m_softLimit = DEFAULT_SOFT_LIMIT;
+	/** Tracks if the soft limit warning was already given. */
+	private boolean m_softLimitWarned = false;
 	
 	/** 
 	 * Declares if the class is to be used in junction with the file package.<br/>
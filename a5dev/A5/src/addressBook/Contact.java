@@ -11,6 +11,9 @@
  */
 package addressBook;
 
+import java.util.List;
+
+import common.FieldValidator;
 import dateAndTime.SystemDate;
 
 /**
@@ -372,7 +375,7 @@ public class Contact{
 		if(firstname.isEmpty()){
 			return true;
 		}
-		if(!firstname.matches( "[a-zA-z]+(([ '-][a-zA-Z]+)*)?")){
+		if(!VALIDATOR.validatePattern(FIRSTNAME_ARRAY_INDEX, firstname)){
 			System.out.println("Error: Invalid First Name");
 			return false;
 		} 
@@ -388,7 +391,7 @@ public class Contact{
 		if(lastname.isEmpty()){
 			return true;
 		}
-		if(!lastname.matches( "[a-zA-z]+(([ '-][a-zA-Z]+)*)?" )){
+		if(!VALIDATOR.validatePattern(LASTNAME_ARRAY_INDEX, lastname)){
 			System.out.println("Error: Invalid Last Name");
 			return false;
 		} 
@@ -404,7 +407,7 @@ public class Contact{
 		if(nickname.isEmpty()){
 			return true;
 		}
-		if(!nickname.matches( "[a-zA-z0-9-_ ]*" )){
+		if(!VALIDATOR.validatePattern(NICKNAME_ARRAY_INDEX, nickname)){
 			System.out.println("Error: Invalid Nickname");
 			return false;
 		} 
@@ -488,8 +491,7 @@ public class Contact{
 		if(email.isEmpty()){
 			return true;
 		}
-		if(!email.matches("^([a-zA-z0-9-_])+[@]([A-Za-z0-9])+" +
-				"((\\.[A-Za-z0-9]{2,4}){1,2})$")){
+		if(!VALIDATOR.validatePattern(PERSONALEMAIL_ARRAY_INDEX, email)){
 			System.out.println("Error: Invalid Email Address");
 			return false;
 		}
@@ -520,12 +522,7 @@ public class Contact{
 			return true;
 		}
 		
-		if(!url.matches("^([a-zA-Z0-9]{2,5}://)?" + // protocol part
-				"([wW]{3}.)?" + // www part
-				"[a-zA-z]+" + // domain name part
-				"(.[a-zA-Z]{2,4}){1,2}" + //TLD part
-				"(/(.*)?)?")) // slash or slash whatever part
-		{
+		if(!VALIDATOR.validatePattern(URL_ARRAY_INDEX, url)){
 			System.out.println("Error: Invalid URL");
 			return false;
 		}
@@ -601,6 +598,45 @@ public class Contact{
 		return contactArray;
 	}
 	
+	/**
+	 * Validates every field of a contact stored as a string array, without
+	 * setting anything, for checking a record before it is loaded.
+	 * @param contactString The contact, as from getAsStingArray().
+	 * @return The errors found, in field order; empty if it is valid.
+	 */
+	public static List<String> validateStringArray(String[] contactString){
+		return VALIDATOR.validate(contactString);
+	}
+	
+	/**
+	 * Builds the rules the fields of a contact follow.
+	 * @return The validator holding the rules.
+	 */
+	private static FieldValidator createValidator(){
+		FieldValidator v = new FieldValidator();
+		String[] names = getHeaderStringArray();
+		int[] nameFields = {FIRSTNAME_ARRAY_INDEX, LASTNAME_ARRAY_INDEX};
+		for (int field : nameFields)
+			v.addRule(field, names[field], NAME_MAXLENGTH, NAME_REGEX);
+		v.addRule(NICKNAME_ARRAY_INDEX, names[NICKNAME_ARRAY_INDEX],
+				NAME_MAXLENGTH, NICKNAME_REGEX);
+		v.addRule(ADDRESS_ARRAY_INDEX, names[ADDRESS_ARRAY_INDEX],
+				ADDRESS_MAXLENGTH, null);
+		v.addRule(POSTCODE_ARRAY_INDEX, names[POSTCODE_ARRAY_INDEX],
+				POSTCODE_MAXLENGTH, null);
+		int[] numberFields = {HOMENUMBER_ARRAY_INDEX, MOBILENUMBER_ARRAY_INDEX,
+				WORKNUMBER_ARRAY_INDEX, FAXNUMBER_ARRAY_INDEX};
+		for (int field : numberFields)
+			v.addRule(field, names[field], TEL_MAXLENGTH, null);
+		int[] emailFields = {PERSONALEMAIL_ARRAY_INDEX, WORKEMAIL_ARRAY_INDEX,
+				OTHEREMAIL_ARRAY_INDEX};
+		for (int field : emailFields)
+			v.addRule(field, names[field], EMAIL_MAXLENGTH, EMAIL_REGEX);
+		v.addRule(URL_ARRAY_INDEX, names[URL_ARRAY_INDEX], URL_MAXLENGTH,
+				URL_REGEX);
+		return v;
+	}
+	
 	/**
 	 * This method receives all strings and converts them into the appropriate
 	 * format.
@@ -685,6 +721,22 @@ public class Contact{
 	/** The ID for a contact. */
 	private String m_ID; 
 
+	/** The pattern first and last names must match. */
+	private static final String NAME_REGEX = "[a-zA-z]+(([ '-][a-zA-Z]+)*)?";
+	/** The pattern nicknames must match. */
+	private static final String NICKNAME_REGEX = "[a-zA-z0-9-_ ]*";
+	/** The pattern email addresses must match. */
+	private static final String EMAIL_REGEX = 
+			"^([a-zA-z0-9-_])+[@]([A-Za-z0-9])+" +
+			"((\\.[A-Za-z0-9]{2,4}){1,2})$";
+	/** The pattern URLs must match. */
+	private static final String URL_REGEX = 
+			"^([a-zA-Z0-9]{2,5}://)?" + // protocol part
+			"([wW]{3}.)?" + // www part
+			"[a-zA-z]+" + // domain name part
+			"(.[a-zA-Z]{2,4}){1,2}" + //TLD part
+			"(/(.*)?)?"; // slash or slash whatever part
+
 	/** Maximum number of characters for lengths of names. */
 	public static final int NAME_MAXLENGTH = 20;
 	/** Maximum constant for lengths of telephone numbers. */
@@ -732,6 +784,8 @@ public class Contact{
 	public static final int URL_ARRAY_INDEX = 13;
 	/** The index position in the array for path. */
 	public static final int PATH_ARRAY_INDEX = 14;
+	/** The rules of the fields, with their patterns compiled once. */
+	private static final FieldValidator VALIDATOR = createValidator();
 	/** Keeps the first name of the contact. */
 	private String m_firstname;
 	/** Keeps the surname of the contact. */
@@ -0,0 +1,560 @@
+/**
+ * @file FuzzyContactIndex.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the FuzzyContactIndex class.
+ */
+
+/**
+ * @package addressBook
+ * @brief Contains the contacts list, the contact model, view and controller.
+ */
+package addressBook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * @brief Finds contacts by name or email, forgiving typing mistakes.
+ *
+ * The names, nick name and email addresses of each contact are split into
+ * words of letters and digits. A contact is found by a word when the word:
+ * <ul>
+ * <li>is the same as the word searched for,</li>
+ * <li>starts with it,</li>
+ * <li>is within MAX_DISTANCE typing mistakes of it, counting a wrong,
+ * missing, extra or swapped letter as one mistake, or</li>
+ * <li>for names, sounds like it, by its Soundex code.</li>
+ * </ul>
+ * Short words allow fewer mistakes, as any three letter word is two
+ * mistakes away from another.<br/>
+ * To avoid comparing the search with every word, each word is indexed by
+ * its trigrams, the groups of three letters in it with the ends marked.
+ * A mistake changes at most four trigrams, two letters swapped being the
+ * worst: "smith" and "smtih" only share "$sm". So only the words sharing
+ * enough trigrams with the search are compared. When a search is too
+ * short for that, only the words of about the same length are.<br/>
+ * Contacts are ranked by how closely each word searched for matched, best
+ * first. The address book tells the index about every change.
+ * @author agent
+ */
+public class FuzzyContactIndex {
+
+	/** The most typing mistakes allowed in a word. */
+	public static final int MAX_DISTANCE = 2;
+
+	/**
+	 * Adds a contact which was added to the address book.
+	 * @param c The contact.
+	 */
+	public synchronized void added(Contact c){
+		removed(c);
+		Map<String, Boolean> words = getWords(c);
+		m_contactWords.put(c, words);
+		for (Map.Entry<String, Boolean> w : words.entrySet()){
+			Word word = m_words.get(w.getKey());
+			if (word == null){
+				word = new Word(w.getKey());
+				m_words.put(word.m_text, word);
+				index(word);
+			}
+			word.m_contacts.add(c);
+			if (w.getValue() && word.m_names++ == 0 && word.m_soundex != null)
+				addTo(m_soundex, word.m_soundex, word);
+		}
+	}
+
+	/**
+	 * Removes a contact which was removed from the address book.
+	 * @param c The contact.
+	 */
+	public synchronized void removed(Contact c){
+		//The words it had when added, as it may have been changed since.
+		Map<String, Boolean> words = m_contactWords.remove(c);
+		if (words == null)
+			return;
+		for (Map.Entry<String, Boolean> w : words.entrySet()){
+			Word word = m_words.get(w.getKey());
+			word.m_contacts.remove(c);
+			if (w.getValue() && --word.m_names == 0 && word.m_soundex != null)
+				removeFrom(m_soundex, word.m_soundex, word);
+			if (word.m_contacts.isEmpty()){
+				m_words.remove(w.getKey());
+				unindex(word);
+			}
+		}
+	}
+
+	/**
+	 * Replaces a contact which was replaced in the address book. The new
+	 * contact may be the old one, changed.
+	 * @param old The contact replaced.
+	 * @param c The new contact.
+	 */
+	public synchronized void replaced(Contact old, Contact c){
+		removed(old);
+		added(c);
+	}
+
+	/**
+	 * Forgets every contact, after the address book was cleared.
+	 */
+	public synchronized void clear(){
+		m_contactWords.clear();
+		m_words.clear();
+		m_trigrams.clear();
+		m_lengths.clear();
+		m_soundex.clear();
+	}
+
+	/**
+	 * Finds the contacts matching a search, best first.<br/>
+	 * Every word searched for must match a word of the contact.
+	 * @param text The search.
+	 * @param limit The greatest number of contacts returned.
+	 * @return The contacts, ranked.
+	 */
+	public synchronized List<Contact> search(String text, int limit){
+		final Map<Contact, Integer> scores = score(text);
+		List<Contact> found = new ArrayList<Contact>(scores.keySet());
+		Collections.sort(found, new Comparator<Contact>(){
+			public int compare(Contact a, Contact b){
+				int diff = scores.get(a) - scores.get(b);
+				if (diff == 0)
+					diff = a.getLastName().compareToIgnoreCase(b.getLastName());
+				if (diff == 0)
+					diff = a.getFirstName().compareToIgnoreCase(
+							b.getFirstName());
+				return diff;
+			}
+		});
+		return found.size() > limit ? found.subList(0, limit) : found;
+	}
+
+	/**
+	 * Scores the contacts matching a search.
+	 * @param text The search.
+	 * @return The score of each contact matching every word searched for;
+	 * the lower, the closer the match.
+	 */
+	private Map<Contact, Integer> score(String text){
+		Map<Contact, Integer> scores = null;
+		for (String term : splitWords(text)){
+			Map<Contact, Integer> termScores =
+					new IdentityHashMap<Contact, Integer>();
+			for (Map.Entry<Word, Integer> m : findWords(term).entrySet())
+				for (Contact c : m.getKey().m_contacts){
+					Integer best = termScores.get(c);
+					if (best == null || m.getValue() < best)
+						termScores.put(c, m.getValue());
+				}
+			if (scores == null){
+				scores = termScores;
+				continue;
+			}
+			Map<Contact, Integer> both =
+					new IdentityHashMap<Contact, Integer>();
+			for (Map.Entry<Contact, Integer> s : scores.entrySet()){
+				Integer t = termScores.get(s.getKey());
+				if (t != null)
+					both.put(s.getKey(), s.getValue() + t);
+			}
+			scores = both;
+		}
+		return scores == null ? new IdentityHashMap<Contact, Integer>()
+				: scores;
+	}
+
+	/**
+	 * Finds the words matching a word searched for.
+	 * @param term The word, in lower case.
+	 * @return The score of each word found.
+	 */
+	private Map<Word, Integer> findWords(String term){
+		Map<Word, Integer> found = new HashMap<Word, Integer>();
+		for (Word w : m_words.subMap(term, true, term + Character.MAX_VALUE,
+				true).values())
+			found.put(w, w.m_text.equals(term) ? SCORE_EXACT : SCORE_PREFIX);
+		String code = soundex(term);
+		if (code != null && m_soundex.containsKey(code))
+			for (Word w : m_soundex.get(code))
+				if (!found.containsKey(w))
+					found.put(w, SCORE_SOUNDS_LIKE);
+		int allowed = allowedDistance(term);
+		if (allowed == 0)
+			return found;
+		for (Word w : findCandidates(term, allowed)){
+			int d = distance(term, w.m_text, allowed);
+			if (d > allowed)
+				continue;
+			int score = d == 1 ? SCORE_ONE_MISTAKE : SCORE_TWO_MISTAKES;
+			Integer before = found.get(w);
+			if (before == null || score < before)
+				found.put(w, score);
+		}
+		return found;
+	}
+
+	/**
+	 * Finds the words which may be within a number of mistakes of a word,
+	 * by the trigrams they share with it.
+	 * @param term The word.
+	 * @param allowed The number of mistakes allowed.
+	 * @return The words to compare with it.
+	 */
+	private Set<Word> findCandidates(String term, int allowed){
+		Set<Word> candidates = new HashSet<Word>();
+		long[] grams = trigrams(term);
+		int needed = grams.length - TRIGRAMS_PER_MISTAKE * allowed;
+		if (needed < 1){
+			for (int len = term.length() - allowed;
+					len <= term.length() + allowed; len++)
+				if (m_lengths.containsKey(len))
+					candidates.addAll(m_lengths.get(len));
+			return candidates;
+		}
+		Map<Word, Integer> shared = new HashMap<Word, Integer>();
+		for (long g : grams){
+			List<Word> words = m_trigrams.get(g);
+			if (words == null)
+				continue;
+			for (Word w : words){
+				Integer n = shared.get(w);
+				shared.put(w, n == null ? 1 : n + 1);
+			}
+		}
+		for (Map.Entry<Word, Integer> s : shared.entrySet())
+			if (s.getValue() >= needed)
+				candidates.add(s.getKey());
+		return candidates;
+	}
+
+	/**
+	 * Gets the words of the searchable fields of a contact.
+	 * @param c The contact.
+	 * @return The words, each true if it is from a name.
+	 */
+	private static Map<String, Boolean> getWords(Contact c){
+		Map<String, Boolean> words = new HashMap<String, Boolean>();
+		String[] names = {c.getFirstName(), c.getLastName(), c.getNickName()};
+		String[] emails = {c.getPersonalEmail(), c.getWorkEmail(),
+				c.getOtherEmail()};
+		for (String email : emails)
+			for (String w : splitWords(email))
+				words.put(w, false);
+		for (String name : names)
+			for (String w : splitWords(name))
+				words.put(w, true);
+		return words;
+	}
+
+	/**
+	 * Adds a word to the trigram and length indexes.
+	 * @param w The word.
+	 */
+	private void index(Word w){
+		for (long g : trigrams(w.m_text))
+			addTo(m_trigrams, g, w);
+		addTo(m_lengths, w.m_text.length(), w);
+	}
+
+	/**
+	 * Removes a word from the trigram and length indexes.
+	 * @param w The word.
+	 */
+	private void unindex(Word w){
+		for (long g : trigrams(w.m_text))
+			removeFrom(m_trigrams, g, w);
+		removeFrom(m_lengths, w.m_text.length(), w);
+	}
+
+	/**
+	 * Adds a word to the list of a key.
+	 * @param map The lists.
+	 * @param key The key.
+	 * @param w The word.
+	 */
+	private static <K> void addTo(Map<K, List<Word>> map, K key, Word w){
+		List<Word> words = map.get(key);
+		if (words == null){
+			words = new ArrayList<Word>();
+			map.put(key, words);
+		}
+		words.add(w);
+	}
+
+	/**
+	 * Removes a word from the list of a key.
+	 * @param map The lists.
+	 * @param key The key.
+	 * @param w The word.
+	 */
+	private static <K> void removeFrom(Map<K, List<Word>> map, K key, Word w){
+		List<Word> words = map.get(key);
+		if (words == null)
+			return;
+		words.remove(w);
+		if (words.isEmpty())
+			map.remove(key);
+	}
+
+	/**
+	 * Gets the number of typing mistakes allowed in a word searched for.
+	 * @param term The word.
+	 * @return The number of mistakes.
+	 */
+	static int allowedDistance(String term){
+		if (term.length() <= 3)
+			return 0;
+		if (term.length() <= 6)
+			return 1;
+		return MAX_DISTANCE;
+	}
+
+	/**
+	 * Splits text into lower case words of letters and digits.
+	 * @param s The text, which may be null.
+	 * @return The words.
+	 */
+	static List<String> splitWords(String s){
+		List<String> words = new ArrayList<String>();
+		if (s == null)
+			return words;
+		int start = -1;
+		for (int i = 0; i <= s.length(); i++){
+			boolean letter = i < s.length()
+					&& Character.isLetterOrDigit(s.charAt(i));
+			if (letter && start < 0){
+				start = i;
+			} else if (!letter && start >= 0){
+				words.add(s.substring(start, i).toLowerCase());
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Gets the trigrams of a word, with its ends marked. Each trigram is
+	 * its three characters packed into a number, saving a string per
+	 * trigram.
+	 * @param w The word.
+	 * @return The trigrams, one per letter.
+	 */
+	static long[] trigrams(String w){
+		long[] grams = new long[w.length()];
+		long gram = END;
+		for (int i = 0; i <= w.length(); i++){
+			char ch = i < w.length() ? w.charAt(i) : END;
+			gram = ((gram << 16) | ch) & TRIGRAM_MASK;
+			if (i > 0)
+				grams[i - 1] = gram;
+		}
+		return grams;
+	}
+
+	/**
+	 * Counts the typing mistakes between two words: letters replaced,
+	 * added, removed or swapped with the next one.
+	 * @param a A word.
+	 * @param b The other word.
+	 * @param max The most mistakes of interest.
+	 * @return The number of mistakes, or more than max if there are more.
+	 */
+	static int distance(String a, String b, int max){
+		int n = a.length(), m = b.length();
+		if (Math.abs(n - m) > max)
+			return max + 1;
+		int[] before = new int[m + 1], previous = new int[m + 1],
+				current = new int[m + 1];
+		for (int j = 0; j <= m; j++)
+			previous[j] = j;
+		for (int i = 1; i <= n; i++){
+			current[0] = i;
+			int rowBest = i;
+			for (int j = 1; j <= m; j++){
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+						previous[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2)
+						&& a.charAt(i - 2) == b.charAt(j - 1))
+					d = Math.min(d, before[j - 2] + 1);
+				current[j] = d;
+				rowBest = Math.min(rowBest, d);
+			}
+			if (rowBest > max)
+				return max + 1;
+			int[] t = before;
+			before = previous;
+			previous = current;
+			current = t;
+		}
+		return previous[m];
+	}
+
+	/**
+	 * Gets the Soundex code of a word, the same for words which sound
+	 * alike in English.
+	 * @param w The word, in lower case.
+	 * @return The code, e.g. "r163" for "robert", or null if the word does
+	 * not start with a letter from a to z.
+	 */
+	static String soundex(String w){
+		if (w.isEmpty() || w.charAt(0) < 'a' || w.charAt(0) > 'z')
+			return null;
+		final String CODES = "01230120022455012623010202";
+		StringBuilder code = new StringBuilder(4);
+		code.append(w.charAt(0));
+		char last = CODES.charAt(w.charAt(0) - 'a');
+		for (int i = 1; i < w.length() && code.length() < 4; i++){
+			char ch = w.charAt(i);
+			if (ch < 'a' || ch > 'z')
+				continue;
+			char digit = CODES.charAt(ch - 'a');
+			if (digit != '0' && digit != last)
+				code.append(digit);
+			//h and w don't separate letters with the same code.
+			if (ch != 'h' && ch != 'w')
+				last = digit;
+		}
+		while (code.length() < 4)
+			code.append('0');
+		return code.toString();
+	}
+
+	/**
+	 * @brief A word of the contacts.
+	 */
+	private static class Word {
+		/**
+		 * Creates a word no contact has yet.
+		 * @param text The word.
+		 */
+		Word(String text){
+			m_text = text;
+			m_soundex = soundex(text);
+		}
+		/** The word. */
+		private String m_text;
+		/** The Soundex code of the word, or null. */
+		private String m_soundex;
+		/** The number of contacts with the word in a name. */
+		private int m_names = 0;
+		/** The contacts with the word. */
+		private Set<Contact> m_contacts = Collections.newSetFromMap(
+				new IdentityHashMap<Contact, Boolean>(2));
+	}
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
+	public static void main(String[] args){
+		FuzzyContactIndex index = new FuzzyContactIndex();
+		Contact john = new Contact(), jon = new Contact(),
+				michael = new Contact(), smyth = new Contact();
+		john.setFirstName("John");
+		john.setLastName("Smith");
+		john.setPersonalEmail("jsmith@mail.com");
+		jon.setFirstName("Jon");
+		jon.setLastName("Jones");
+		michael.setFirstName("Michael");
+		michael.setLastName("Roberts");
+		smyth.setFirstName("Anne");
+		smyth.setLastName("Smyth");
+		index.added(john);
+		index.added(jon);
+		index.added(michael);
+		index.added(smyth);
+
+		/** @test soundex() and distance(). */
+		System.out.print("test1----------------------");
+		System.out.println(soundex("robert").equals("r163")
+				&& soundex("rupert").equals("r163")
+				&& soundex("ashcraft").equals("a261")
+				&& distance("micheal", "michael", 2) == 1
+				&& distance("jhon", "john", 2) == 1
+				&& distance("smith", "smooth", 1) == 2
+				? "Passed" : "Failed");
+
+		/** @test search() Exact matches are ranked first. */
+		System.out.print("test2----------------------");
+		List<Contact> found = index.search("smith", 10);
+		System.out.println(found.size() == 2 && found.get(0) == john
+				&& found.get(1) == smyth ? "Passed" : "Failed");
+
+		/** @test search() Typing mistakes, prefixes and sounds. */
+		System.out.print("test3----------------------");
+		System.out.println(index.search("micheal", 10).contains(michael)
+				&& index.search("rob", 10).contains(michael)
+				&& index.search("jhon smiht", 10).get(0) == john
+				&& index.search("jon", 10).get(0) == jon
+				&& index.search("xyz", 10).isEmpty()
+				? "Passed" : "Failed");
+
+		/** @test search() Two letters swapped in an email, where sounds
+		 * can't help. */
+		System.out.print("test4----------------------");
+		System.out.println(index.search("jsmtih", 10).equals(
+				Collections.singletonList(john))
+				&& index.search("mial", 10).contains(john)
+				? "Passed" : "Failed");
+
+		/** @test removed(), replaced() The index follows the list. */
+		System.out.print("test5----------------------");
+		index.removed(smyth);
+		Contact anna = new Contact();
+		anna.setFirstName("Anna");
+		anna.setLastName("Schmidt");
+		index.replaced(jon, anna);
+		found = index.search("smyth", 10);
+		System.out.println(found.size() == 2 && found.get(0) == john
+				&& found.get(1) == anna
+				&& index.search("jones", 10).isEmpty()
+				&& index.search("schmit", 10).contains(anna)
+				? "Passed" : "Failed");
+	}
+
+	/** The score of a word that is the one searched for. */
+	private static final int SCORE_EXACT = 0;
+	/** The score of a word starting with the one searched for. */
+	private static final int SCORE_PREFIX = 1;
+	/** The score of a word one typing mistake away. */
+	private static final int SCORE_ONE_MISTAKE = 2;
+	/** The score of a name sounding like the word searched for. */
+	private static final int SCORE_SOUNDS_LIKE = 3;
+	/** The score of a word two typing mistakes away. */
+	private static final int SCORE_TWO_MISTAKES = 4;
+	/** The character marking the ends of a word in its trigrams. */
+	private static final char END = '$';
+	/** Keeps the last three characters of a packed trigram. */
+	private static final long TRIGRAM_MASK = 0xFFFFFFFFFFFFL;
+	/**
+	 * The most trigrams one typing mistake can change: three for a letter
+	 * replaced, added or removed, four for two letters swapped.
+	 */
+	private static final int TRIGRAMS_PER_MISTAKE = 4;
+	/** The words of each contact. */
+	private Map<Contact, Map<String, Boolean>> m_contactWords =
+			new IdentityHashMap<Contact, Map<String, Boolean>>();
+	/** Every word, in order, so words starting with a search are found. */
+	private NavigableMap<String, Word> m_words = new TreeMap<String, Word>();
+	/** The words with each trigram. */
+	private Map<Long, List<Word>> m_trigrams =
+			new HashMap<Long, List<Word>>();
+	/** The words of each length. */
+	private Map<Integer, List<Word>> m_lengths =
+			new HashMap<Integer, List<Word>>();
+	/** The name words with each Soundex code. */
+	private Map<String, List<Word>> m_soundex =
+			new HashMap<String, List<Word>>();
+}
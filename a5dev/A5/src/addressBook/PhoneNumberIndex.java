@@ -0,0 +1,268 @@
+/**
+ * @file PhoneNumberIndex.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the PhoneNumberIndex class.
+ */
+
+/**
+ * @package addressBook
+ * @brief Contains the contacts list, the contact model, view and controller.
+ */
+package addressBook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @brief Finds the contacts owning a telephone number.
+ *
+ * The home, mobile, work and fax numbers of each contact are stored under
+ * their digits, so "01923 456952", "(01923) 456-952" and "+44 1923 456952"
+ * are the same number. A number starting with + or 00 has a country code:
+ * the home country's is dropped, with the 0 dialled before national
+ * numbers, while other countries keep theirs after a +.<br/>
+ * Looking a number up is a single hash map access. Several contacts may
+ * share a number, e.g. a home number, and are returned in the order they
+ * were added. The address book tells the index about every change.
+ * @author agent
+ */
+public class PhoneNumberIndex {
+
+	/** The country code of the numbers stored without one, the UK's. */
+	public static final String DEFAULT_COUNTRY_CODE = "44";
+
+	/**
+	 * Creates an index for numbers of the default country.
+	 */
+	public PhoneNumberIndex(){
+		this(DEFAULT_COUNTRY_CODE);
+	}
+
+	/**
+	 * Creates an index for numbers of a country.
+	 * @param countryCode The country code, digits only, e.g. "44".
+	 */
+	public PhoneNumberIndex(String countryCode){
+		m_countryCode = countryCode;
+	}
+
+	/**
+	 * Adds a contact which was added to the address book.
+	 * @param c The contact.
+	 */
+	public synchronized void added(Contact c){
+		removed(c);
+		List<String> keys = new ArrayList<String>(NUMBERS_PER_CONTACT);
+		String[] numbers = {c.getHomeNumber(), c.getMobileNumber(),
+				c.getWorkNumber(), c.getFaxNumber()};
+		for (String number : numbers){
+			String key = normalise(number);
+			if (key == null || keys.contains(key))
+				continue;
+			keys.add(key);
+			List<Contact> owners = m_owners.get(key);
+			if (owners == null){
+				owners = new ArrayList<Contact>(1);
+				m_owners.put(key, owners);
+			}
+			owners.add(c);
+		}
+		if (!keys.isEmpty())
+			m_contactKeys.put(c, keys);
+	}
+
+	/**
+	 * Removes a contact which was removed from the address book.
+	 * @param c The contact.
+	 */
+	public synchronized void removed(Contact c){
+		//The numbers it had when added, as it may have been changed since.
+		List<String> keys = m_contactKeys.remove(c);
+		if (keys == null)
+			return;
+		for (String key : keys){
+			List<Contact> owners = m_owners.get(key);
+			for (int i = 0; i < owners.size(); i++)
+				if (owners.get(i) == c){
+					owners.remove(i);
+					break;
+				}
+			if (owners.isEmpty())
+				m_owners.remove(key);
+		}
+	}
+
+	/**
+	 * Replaces a contact which was replaced in the address book. The new
+	 * contact may be the old one, changed.
+	 * @param old The contact replaced.
+	 * @param c The new contact.
+	 */
+	public synchronized void replaced(Contact old, Contact c){
+		removed(old);
+		added(c);
+	}
+
+	/**
+	 * Forgets every contact, after the address book was cleared.
+	 */
+	public synchronized void clear(){
+		m_owners.clear();
+		m_contactKeys.clear();
+	}
+
+	/**
+	 * Gets the contacts owning a number.
+	 * @param number The number, written in any way.
+	 * @return The contacts, empty if nobody owns it.
+	 */
+	public synchronized List<Contact> findOwners(String number){
+		List<Contact> owners = m_owners.get(normalise(number));
+		if (owners == null)
+			return Collections.emptyList();
+		return new ArrayList<Contact>(owners);
+	}
+
+	/**
+	 * Gets the first contact owning a number.
+	 * @param number The number, written in any way.
+	 * @return The contact, or null if nobody owns it.
+	 */
+	public synchronized Contact findOwner(String number){
+		List<Contact> owners = m_owners.get(normalise(number));
+		return owners == null ? null : owners.get(0);
+	}
+
+	/**
+	 * Gets the first contact owning each of many numbers, in one go.
+	 * @param numbers The numbers, written in any way.
+	 * @return The owner of each number that has one, by the number as
+	 * given, in the order of the numbers.
+	 */
+	public synchronized Map<String, Contact> findOwners(
+			Iterable<String> numbers){
+		Map<String, Contact> found = new LinkedHashMap<String, Contact>();
+		for (String number : numbers){
+			List<Contact> owners = m_owners.get(normalise(number));
+			if (owners != null)
+				found.put(number, owners.get(0));
+		}
+		return found;
+	}
+
+	/**
+	 * Gets the number of different numbers stored.
+	 * @return The number of numbers.
+	 */
+	public synchronized int getSize(){
+		return m_owners.size();
+	}
+
+	/**
+	 * Gets the key a number is stored under: its digits, without the home
+	 * country code or the 0 before a national number. A number of another
+	 * country is its code and digits after a +.
+	 * @param number The number, which may be null.
+	 * @return The key, or null if the number has no digits.
+	 */
+	public String normalise(String number){
+		if (number == null)
+			return null;
+		StringBuilder digits = new StringBuilder(number.length());
+		boolean plus = false;
+		for (int i = 0; i < number.length(); i++){
+			char ch = number.charAt(i);
+			if (ch >= '0' && ch <= '9')
+				digits.append(ch);
+			else if (ch == '+' && digits.length() == 0)
+				plus = true;
+		}
+		int start = 0;
+		if (!plus && digits.length() > 2 && digits.charAt(0) == '0'
+				&& digits.charAt(1) == '0'){
+			plus = true;
+			start = 2;
+		}
+		if (plus){
+			if (digits.indexOf(m_countryCode, start) != start)
+				return digits.length() == start ? null
+						: "+" + digits.substring(start);
+			start += m_countryCode.length();
+		}
+		if (start < digits.length() && digits.charAt(start) == '0')
+			start++;
+		return start < digits.length() ? digits.substring(start) : null;
+	}
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
+	public static void main(String[] args){
+		PhoneNumberIndex index = new PhoneNumberIndex();
+		Contact anne = new Contact(), bob = new Contact();
+		anne.setHomeNumber("01923 456952");
+		anne.setMobileNumber("+44 (0)7700 900123");
+		bob.setHomeNumber("(01923) 456-952");
+		bob.setWorkNumber("+33 1 23 45 67 89");
+		index.added(anne);
+		index.added(bob);
+
+		/** @test normalise() The ways of writing a number. */
+		System.out.print("test1----------------------");
+		System.out.println(index.normalise("01923 456952").equals("1923456952")
+				&& index.normalise("+44 1923 456952").equals("1923456952")
+				&& index.normalise("0044 1923-456952").equals("1923456952")
+				&& index.normalise("+33 1 23").equals("+33123")
+				&& index.normalise("0033 123").equals("+33123")
+				&& index.normalise(" - ") == null
+				? "Passed" : "Failed");
+
+		/** @test findOwner(), findOwners() Shared and foreign numbers. */
+		System.out.print("test2----------------------");
+		System.out.println(index.findOwner("07700900123") == anne
+				&& index.findOwners("+441923456952").size() == 2
+				&& index.findOwner("0033 123456789") == bob
+				&& index.findOwner("0123456789") == null
+				&& index.getSize() == 3
+				? "Passed" : "Failed");
+
+		/** @test findOwners(Iterable) Many numbers in one go. */
+		System.out.print("test3----------------------");
+		Map<String, Contact> owners = index.findOwners(
+				Arrays.asList("07700 900123", "999", "+33123456789"));
+		System.out.println(owners.size() == 2
+				&& owners.get("07700 900123") == anne
+				&& owners.get("+33123456789") == bob
+				? "Passed" : "Failed");
+
+		/** @test removed(), replaced() The index follows the list. */
+		System.out.print("test4----------------------");
+		index.removed(anne);
+		Contact carol = new Contact();
+		carol.setFaxNumber("07700 900123");
+		index.replaced(bob, carol);
+		System.out.println(index.findOwners("01923456952").isEmpty()
+				&& index.findOwner("+447700900123") == carol
+				&& index.getSize() == 1
+				? "Passed" : "Failed");
+	}
+
+	/** The usual number of numbers of a contact. */
+	private static final int NUMBERS_PER_CONTACT = 4;
+	/** The country code of numbers stored without one. */
+	private String m_countryCode;
+	/** The contacts owning each number, by its key. */
+	private Map<String, List<Contact>> m_owners =
+			new HashMap<String, List<Contact>>();
+	/** The keys of the numbers of each contact. */
+	private Map<Contact, List<String>> m_contactKeys =
+			new IdentityHashMap<Contact, List<String>>();
+}
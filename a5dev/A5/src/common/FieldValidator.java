@@ -0,0 +1,185 @@
+/**
+ * @file FieldValidator.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the FieldValidator class.
+ */
+
+/**
+ * @package common
+ * @brief Things used in common, so far only between addressBook and events.
+ */
+package common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @brief A registry of the rules the fields of a record must follow.
+ *
+ * A rule is registered for a field by its index in the string array the
+ * record is stored as, e.g. Contact.FIRSTNAME_ARRAY_INDEX. It gives the
+ * greatest length of the field and, optionally, a pattern the field must
+ * match. An empty field is always valid.<br/>
+ * Patterns are compiled once, when the rule is registered, instead of by
+ * String.matches() on every check. Each thread reuses its own matcher, as
+ * records are also built by several threads while a file is loaded.<br/>
+ * A whole record can be checked in one go, getting back every error
+ * instead of only the first.
+ * @author agent
+ */
+public class FieldValidator {
+
+	/**
+	 * Registers the rule of a field, replacing any rule it had.
+	 * @param field The index of the field in the record.
+	 * @param name The name of the field, used in the error messages.
+	 * @param maxLength The greatest number of characters allowed.
+	 * @param regex The pattern the field must match, or null if any
+	 * characters are allowed.
+	 * @return True on success, false if the pattern is invalid.
+	 */
+	public boolean addRule(int field, String name, int maxLength,
+			String regex){
+		Pattern pattern = null;
+		if (regex != null){
+			try{
+				pattern = Pattern.compile(regex);
+			} catch (IllegalArgumentException iae){
+				System.out.println("IllegalArgumentException caught, " +
+						"the exception was: " + iae);
+				return false;
+			}
+		}
+		m_rules.put(field, new Rule(name, maxLength, pattern));
+		return true;
+	}
+
+	/**
+	 * Checks a field against both the length and the pattern of its rule.
+	 * @param field The index of the field in the record.
+	 * @param value The value of the field.
+	 * @return True if the field is valid or has no rule, false otherwise.
+	 */
+	public boolean validate(int field, String value){
+		return validateLength(field, value) && validatePattern(field, value);
+	}
+
+	/**
+	 * Checks a field against the length of its rule.
+	 * @param field The index of the field in the record.
+	 * @param value The value of the field.
+	 * @return True if the field is short enough or has no rule.
+	 */
+	public boolean validateLength(int field, String value){
+		Rule r = m_rules.get(field);
+		return r == null || value.length() <= r.m_maxLength;
+	}
+
+	/**
+	 * Checks a field against the pattern of its rule.
+	 * @param field The index of the field in the record.
+	 * @param value The value of the field.
+	 * @return True if the field is empty, matches or has no pattern.
+	 */
+	public boolean validatePattern(int field, String value){
+		Rule r = m_rules.get(field);
+		if (r == null || r.m_pattern == null || value.isEmpty())
+			return true;
+		return r.m_matcher.get().reset(value).matches();
+	}
+
+	/**
+	 * Checks every field of a record which has a rule.
+	 * @param record The record, as a string array.
+	 * @return The errors found, in field order; empty if the record is
+	 * valid.
+	 */
+	public List<String> validate(String[] record){
+		List<String> errors = new ArrayList<String>();
+		for (int field = 0; field < record.length; field++){
+			Rule r = m_rules.get(field);
+			String value = record[field];
+			if (r == null)
+				continue;
+			if (value == null)
+				errors.add(r.m_name + ": Missing");
+			else if (!validateLength(field, value))
+				errors.add(r.m_name + ": Must be at maximum " +
+						r.m_maxLength + " characters long");
+			else if (!validatePattern(field, value))
+				errors.add(r.m_name + ": Invalid");
+		}
+		return errors;
+	}
+
+	/**
+	 * @brief The rule of a field.
+	 */
+	private static class Rule {
+		/**
+		 * Creates a rule.
+		 * @param name The name of the field.
+		 * @param maxLength The greatest number of characters allowed.
+		 * @param pattern The pattern the field must match, or null.
+		 */
+		Rule(String name, int maxLength, final Pattern pattern){
+			m_name = name;
+			m_maxLength = maxLength;
+			m_pattern = pattern;
+			m_matcher = new ThreadLocal<Matcher>(){
+				protected Matcher initialValue(){
+					return pattern == null ? null : pattern.matcher("");
+				}
+			};
+		}
+		/** The name of the field. */
+		private String m_name;
+		/** The greatest number of characters allowed. */
+		private int m_maxLength;
+		/** The pattern the field must match, or null. */
+		private Pattern m_pattern;
+		/** The matcher of the pattern reused by each thread. */
+		private ThreadLocal<Matcher> m_matcher;
+	}
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
+	public static void main(String[] args){
+		FieldValidator v = new FieldValidator();
+		v.addRule(0, "Name", 5, "[a-z]+");
+		v.addRule(2, "Code", 3, null);
+
+		/** @test validate() A field with a pattern. */
+		System.out.print("test1----------------------");
+		System.out.println(v.validate(0, "abc") && !v.validate(0, "ab1")
+				&& !v.validate(0, "abcdef") && v.validate(0, "")
+				? "Passed" : "Failed");
+
+		/** @test validate() Fields without a rule or a pattern. */
+		System.out.print("test2----------------------");
+		System.out.println(v.validate(1, "anything at all")
+				&& v.validate(2, "a1!") && !v.validate(2, "abcd")
+				? "Passed" : "Failed");
+
+		/** @test validate(String[]) Every error is reported. */
+		System.out.print("test3----------------------");
+		List<String> errors = v.validate(new String[]{"A1", "x", "abcd"});
+		System.out.println(errors.size() == 2
+				&& errors.get(0).equals("Name: Invalid")
+				? "Passed" : "Failed");
+
+		/** @test addRule() An invalid pattern is refused. */
+		System.out.print("test4----------------------");
+		System.out.println(!v.addRule(3, "Bad", 1, "[") ? "Passed" : "Failed");
+	}
+
+	/** The rules, by the index of their field. */
+	private Map<Integer, Rule> m_rules = new HashMap<Integer, Rule>();
+}
@@ -0,0 +1,662 @@
+/**
+ * @file TextIndex.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the TextIndex class.
+ */
+
+/**
+ * @package common
+ * @brief Things used in common, so far only between addressBook and events.
+ */
+package common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.odell.glazedlists.TextFilterator;
+import ca.odell.glazedlists.matchers.Matcher;
+
+/**
+ * @brief An inverted index of the words in the searchable fields of a list.
+ *
+ * The search panels used to go through every field of every element on
+ * each key stroke. Instead, the fields of an element are split into words
+ * at white space once, when it is stored, and each word keeps the numbers
+ * of the elements it is in. A search only looks through the words, of
+ * which there are far fewer than elements, and joins the numbers of the
+ * words found into a set of bits; an element then matches if its bit is
+ * set.<br/>
+ * Searches give the same results as the Glazed Lists text matcher the
+ * panels used before: the search is split into terms at white space, and
+ * an element matches when each term is in one of its fields, ignoring the
+ * case of letters. As a term has no white space, it is in a field exactly
+ * when it is in one of the words of the field.<br/>
+ * Elements are numbered in the order they are indexed and numbers are not
+ * reused, so a search can tell the elements added after it from those it
+ * has looked at. Once more numbers belong to removed elements than to
+ * elements, the elements are numbered again from 0, so the numbers and
+ * the sets of bits don't keep growing; a search made before then checks
+ * the fields of each element instead.<br/>
+ * The list tells the index about every change, like it does its other
+ * caches, while holding its lock; the index only guards itself.
+ * @param <E> The type of the elements.
+ * @author agent
+ */
+public class TextIndex<E> {
+
+	/**
+	 * Creates an empty index.
+	 * @param filterator Gives the searchable fields of an element.
+	 */
+	public TextIndex(TextFilterator<? super E> filterator){
+		m_filterator = filterator;
+	}
+
+	/**
+	 * Adds an element which was added to the list.
+	 * @param e The element.
+	 */
+	public synchronized void added(E e){
+		removed(e);
+		int id = m_nextID++;
+		Entry entry = createEntry(e, id);
+		m_entries.put(e, entry);
+		if (id == m_elements.length)
+			m_elements = Arrays.copyOf(m_elements, id * 2);
+		m_elements[id] = e;
+		for (String w : entry.m_words){
+			Posting p = m_postings.get(w);
+			if (p == null){
+				p = new Posting();
+				m_postings.put(w, p);
+				m_termCache.clear();
+			}
+			p.add(id);
+		}
+	}
+
+	/**
+	 * Removes an element which was removed from the list.
+	 * @param e The element.
+	 */
+	public synchronized void removed(E e){
+		Entry entry = m_entries.remove(e);
+		if (entry == null)
+			return;
+		m_elements[entry.m_id] = null;
+		for (String w : entry.m_words){
+			Posting p = m_postings.get(w);
+			p.remove(entry.m_id);
+			if (p.m_size == 0){
+				m_postings.remove(w);
+				m_termCache.clear();
+			}
+		}
+		int unused = m_nextID - m_entries.size();
+		if (unused > INITIAL_CAPACITY && unused > m_entries.size())
+			renumber();
+	}
+
+	/**
+	 * Numbers the elements again from 0, in the order they were indexed,
+	 * dropping the numbers of removed elements.
+	 */
+	private void renumber(){
+		int[] renumbered = new int[m_nextID];
+		Object[] elements = new Object[Math.max(INITIAL_CAPACITY,
+				m_entries.size() * 2)];
+		int next = 0;
+		for (int id = 0; id < m_nextID; id++)
+			if (m_elements[id] != null){
+				renumbered[id] = next;
+				elements[next++] = m_elements[id];
+			}
+		for (Entry entry : m_entries.values())
+			entry.m_id = renumbered[entry.m_id];
+		//Numbers keep their order, so the postings stay sorted.
+		for (Posting p : m_postings.values())
+			for (int i = 0; i < p.m_size; i++)
+				p.m_ids[i] = renumbered[p.m_ids[i]];
+		m_elements = elements;
+		m_nextID = next;
+		m_renumbers++;
+	}
+
+	/**
+	 * Replaces an element which was replaced in the list. The new element
+	 * may be the old one, changed.
+	 * @param old The element replaced.
+	 * @param e The new element.
+	 */
+	public synchronized void replaced(E old, E e){
+		removed(old);
+		added(e);
+	}
+
+	/**
+	 * Forgets every element, after the list was cleared.
+	 */
+	public synchronized void clear(){
+		m_entries.clear();
+		m_postings.clear();
+		m_termCache.clear();
+		m_elements = new Object[INITIAL_CAPACITY];
+		m_nextID = 0;
+		m_clears++;
+	}
+
+	/**
+	 * Gets the number of elements indexed.
+	 * @return The number of elements.
+	 */
+	public synchronized int getSize(){
+		return m_entries.size();
+	}
+
+	/**
+	 * Gets the number of different words indexed.
+	 * @return The number of words.
+	 */
+	public synchronized int getWordCount(){
+		return m_postings.size();
+	}
+
+	/**
+	 * Prepares a search.
+	 * @param text The text typed in the search field.
+	 * @return The query, which matches every element if the text has no
+	 * search terms.
+	 */
+	public synchronized Query getQuery(String text){
+		Set<String> terms = new LinkedHashSet<String>();
+		if (text != null)
+			splitWords(normalise(text), terms);
+		Query query = new Query(terms.toArray(new String[terms.size()]),
+				m_nextID);
+		BitSet found = null;
+		for (String term : terms){
+			BitSet hits = new BitSet(m_nextID);
+			for (String w : findWords(term)){
+				Posting p = m_postings.get(w);
+				for (int i = 0; i < p.m_size; i++)
+					hits.set(p.m_ids[i]);
+			}
+			if (found == null)
+				found = hits;
+			else
+				found.and(hits);
+			if (found.isEmpty())
+				break;
+		}
+		query.m_found = found;
+		return query;
+	}
+
+	/**
+	 * Finds the elements matching a search.
+	 * @param text The text typed in the search field.
+	 * @return The matching elements, in the order they were indexed.
+	 */
+	public synchronized List<E> search(String text){
+		return getQuery(text).getFound();
+	}
+
+	/**
+	 * Finds the words containing a term.<br/>
+	 * The words found for recent terms are kept, so typing one more letter
+	 * only looks through the words found for the term before it.
+	 * @param term The term, normalised and without white space.
+	 * @return The words.
+	 */
+	private Set<String> findWords(String term){
+		Set<String> words = m_termCache.get(term);
+		if (words != null)
+			return words;
+		Collection<String> from = m_postings.keySet();
+		for (Map.Entry<String, Set<String>> c : m_termCache.entrySet())
+			if (term.contains(c.getKey()) && c.getValue().size() < from.size())
+				from = c.getValue();
+		words = new HashSet<String>();
+		for (String w : from)
+			if (w.contains(term))
+				words.add(w);
+		m_termCache.put(term, words);
+		return words;
+	}
+
+	/**
+	 * Works out what is indexed of an element.
+	 * @param e The element.
+	 * @param id The number of the element.
+	 * @return The entry.
+	 */
+	private Entry createEntry(E e, int id){
+		List<String> raw = new ArrayList<String>();
+		m_filterator.getFilterStrings(raw, e);
+		List<String> fields = new ArrayList<String>(raw.size());
+		Set<String> words = new HashSet<String>();
+		for (String field : raw){
+			if (field == null || field.isEmpty())
+				continue;
+			String f = normalise(field);
+			fields.add(f);
+			splitWords(f, words);
+		}
+		return new Entry(id, fields.toArray(new String[fields.size()]),
+				words.toArray(new String[words.size()]));
+	}
+
+	/**
+	 * Gets the entry of an element.
+	 * @param e The element.
+	 * @return The entry, or null if it isn't indexed.
+	 */
+	private synchronized Entry getEntry(E e){
+		return m_entries.get(e);
+	}
+
+	/**
+	 * Gets an element by its number.
+	 * @param id The number.
+	 * @return The element, or null if it was removed.
+	 */
+	@SuppressWarnings("unchecked")
+	private E getElement(int id){
+		return (E) m_elements[id];
+	}
+
+	/**
+	 * Puts text in the form it is indexed in, ignoring case. Each letter
+	 * is compared the way the Glazed Lists text matcher does.
+	 * @param s The text.
+	 * @return The text, of the same length.
+	 */
+	static String normalise(String s){
+		char[] c = s.toCharArray();
+		for (int i = 0; i < c.length; i++)
+			c[i] = Character.toLowerCase(Character.toUpperCase(c[i]));
+		return new String(c);
+	}
+
+	/**
+	 * Splits text into words at white space.
+	 * @param s The text.
+	 * @param words Where the words are added.
+	 */
+	private static void splitWords(String s, Collection<String> words){
+		int start = -1;
+		for (int i = 0; i <= s.length(); i++){
+			boolean space = i == s.length()
+					|| Character.isWhitespace(s.charAt(i));
+			if (!space && start < 0){
+				start = i;
+			} else if (space && start >= 0){
+				words.add(s.substring(start, i));
+				start = -1;
+			}
+		}
+	}
+
+	/**
+	 * @brief A search, worked out when it is made, which matches elements
+	 * of the index.
+	 */
+	public class Query implements Matcher<E> {
+		/**
+		 * Creates a query.
+		 * @param terms The normalised terms.
+		 * @param limit The number of the first element it hasn't seen.
+		 */
+		private Query(String[] terms, int limit){
+			m_terms = terms;
+			m_limit = limit;
+			m_clears = TextIndex.this.m_clears;
+			m_renumbers = TextIndex.this.m_renumbers;
+		}
+
+		/**
+		 * Tells if the elements are still numbered as when the query was
+		 * made, i.e. the index wasn't cleared or renumbered since.
+		 * @return True if the numbers the query found are still right.
+		 */
+		private boolean isCurrent(){
+			return m_clears == TextIndex.this.m_clears
+					&& m_renumbers == TextIndex.this.m_renumbers;
+		}
+
+		/**
+		 * Tells if the query has no terms and so matches everything.
+		 * @return True if the query is empty.
+		 */
+		public boolean isEmpty(){
+			return m_terms.length == 0;
+		}
+
+		/**
+		 * Tells if the query has terms but matched nothing when it was
+		 * made.
+		 * @return True if nothing was found.
+		 */
+		public boolean isFruitless(){
+			return m_found != null && m_found.isEmpty();
+		}
+
+		/**
+		 * Tells if this query can only match elements that an other query
+		 * matches, which happens when text is typed onto the end of it.
+		 * @param q The other query.
+		 * @return True if every element matched is matched by the other.
+		 */
+		public boolean isNarrowerThan(Query q){
+			if (q.m_page)
+				return false;
+			for (String t : q.m_terms){
+				boolean covered = false;
+				for (String mine : m_terms)
+					covered |= mine.contains(t);
+				if (!covered)
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Checks an element against the query.
+		 * @param e The element.
+		 * @return True if every term is in one of its fields.
+		 */
+		public boolean matches(E e){
+			if (isEmpty())
+				return true;
+			if (!isCurrent()){
+				if (m_page)
+					return false;
+				Entry entry = getEntry(e);
+				return contains(entry != null ? entry : createEntry(e, -1));
+			}
+			//A filtered list checks its elements in order, which is mostly
+			//the order they were numbered in, so the next one is guessed.
+			int id = m_next;
+			Object[] elements = m_elements;
+			if (id < m_limit && id < elements.length && elements[id] == e){
+				m_next = id + 1;
+				return m_found.get(id);
+			}
+			Entry entry = getEntry(e);
+			if (entry != null && entry.m_id < m_limit){
+				m_next = entry.m_id + 1;
+				return m_found.get(entry.m_id);
+			}
+			//Not indexed, or indexed after the query was made; left for the
+			//whole query if this is a page.
+			if (m_page)
+				return false;
+			return contains(entry != null ? entry : createEntry(e, -1));
+		}
+
+		/**
+		 * Checks the fields of an element against the query.
+		 * @param entry The entry of the element.
+		 * @return True if every term is in one of its fields.
+		 */
+		private boolean contains(Entry entry){
+			for (String t : m_terms){
+				boolean found = false;
+				for (String f : entry.m_fields)
+					found |= f.contains(t);
+				if (!found)
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Gets a query matching only the first elements this one matched,
+		 * in the order they were indexed, to show while the rest are
+		 * filtered.
+		 * @param size The greatest number of elements matched.
+		 * @return The query, or this one if it matches no more elements.
+		 */
+		public Query getPage(int size){
+			if (m_found == null || m_found.cardinality() <= size)
+				return this;
+			BitSet page = new BitSet(m_limit);
+			int id = m_found.nextSetBit(0);
+			for (int i = 0; i < size; i++){
+				page.set(id);
+				id = m_found.nextSetBit(id + 1);
+			}
+			Query q = new Query(m_terms, m_limit);
+			q.m_found = page;
+			q.m_page = true;
+			return q;
+		}
+
+		/**
+		 * Tells if this query only matches the first page of a search.
+		 * @return True if it is a page.
+		 */
+		public boolean isPage(){
+			return m_page;
+		}
+
+		/**
+		 * Gets the elements the query matched when it was made.
+		 * @return The elements still indexed, in the order they were
+		 * indexed.
+		 */
+		public List<E> getFound(){
+			List<E> found = new ArrayList<E>();
+			synchronized (TextIndex.this){
+				//None of them are left once the index is cleared.
+				if (m_clears != TextIndex.this.m_clears)
+					return found;
+				//Once renumbered, they are found by their fields.
+				if (m_renumbers != TextIndex.this.m_renumbers){
+					for (int id = 0; id < m_nextID; id++){
+						E e = getElement(id);
+						if (e != null && contains(getEntry(e)))
+							found.add(e);
+					}
+					return found;
+				}
+				for (int id = 0; id < m_limit; id++){
+					if (m_found != null){
+						id = m_found.nextSetBit(id);
+						if (id < 0)
+							break;
+					}
+					E e = getElement(id);
+					if (e != null)
+						found.add(e);
+				}
+			}
+			return found;
+		}
+
+		/** The normalised terms. */
+		private String[] m_terms;
+		/** The number of the first element indexed after the query. */
+		private int m_limit;
+		/** The numbers of the elements matched, or null if it is empty. */
+		private BitSet m_found;
+		/** The number of times the index was cleared before the query. */
+		private int m_clears;
+		/** The number of times the index was renumbered before the query. */
+		private int m_renumbers;
+		/** True if only the first page of the search is matched. */
+		private boolean m_page = false;
+		/** The number the next element checked is guessed to have. */
+		private int m_next = 0;
+	}
+
+	/**
+	 * @brief The numbers of the elements a word is in, in order.
+	 */
+	private static class Posting {
+		/**
+		 * Adds the number of an element, larger than all the others.
+		 * @param id The number.
+		 */
+		void add(int id){
+			if (m_size == m_ids.length)
+				m_ids = Arrays.copyOf(m_ids, m_size * 2);
+			m_ids[m_size++] = id;
+		}
+
+		/**
+		 * Removes the number of an element.
+		 * @param id The number.
+		 */
+		void remove(int id){
+			int i = Arrays.binarySearch(m_ids, 0, m_size, id);
+			if (i < 0)
+				return;
+			System.arraycopy(m_ids, i + 1, m_ids, i, m_size - i - 1);
+			m_size--;
+		}
+
+		/** The numbers, from smallest to largest. */
+		private int[] m_ids = new int[2];
+		/** The count of numbers. */
+		private int m_size = 0;
+	}
+
+	/**
+	 * @brief What is indexed of an element.
+	 */
+	private static class Entry {
+		/**
+		 * Creates an entry.
+		 * @param id The number of the element.
+		 * @param fields The normalised fields.
+		 * @param words The different words of the fields.
+		 */
+		Entry(int id, String[] fields, String[] words){
+			m_id = id;
+			m_fields = fields;
+			m_words = words;
+		}
+		/** The number of the element. */
+		private int m_id;
+		/** The normalised fields. */
+		private String[] m_fields;
+		/** The different words of the fields. */
+		private String[] m_words;
+	}
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
+	public static void main(String[] args){
+		TextFilterator<String> byLine = new TextFilterator<String>(){
+			public void getFilterStrings(List<String> baseList, String e){
+				for (String field : e.split("\n"))
+					baseList.add(field);
+			}
+		};
+		TextIndex<String> index = new TextIndex<String>(byLine);
+		String a = "Team Meeting\nRoom 101", b = "Lunch\nCanteen meeting room",
+				c = "Dentist\nHigh Street";
+		index.added(a);
+		index.added(b);
+		index.added(c);
+
+		/** @test search() Terms are found inside words, ignoring case. */
+		System.out.print("test1----------------------");
+		System.out.println(index.search("MEET").size() == 2
+				&& index.search("eet roo").size() == 2
+				&& index.search("den str").contains(c)
+				&& index.search("").size() == 3 ? "Passed" : "Failed");
+
+		/** @test search() Every term must be found. */
+		System.out.print("test2----------------------");
+		System.out.println(index.search("meeting room 101").size() == 1
+				&& index.search("meeting -lunch").isEmpty()
+				? "Passed" : "Failed");
+
+		/** @test removed(), replaced() The index follows the list. */
+		System.out.print("test3----------------------");
+		index.removed(a);
+		String d = "Team Meeting\nRoom 102";
+		index.replaced(c, d);
+		System.out.println(index.search("101").isEmpty()
+				&& index.search("dentist").isEmpty()
+				&& index.search("102").contains(d) && index.getSize() == 2
+				? "Passed" : "Failed");
+
+		/** @test matches() Elements added after the query are checked. */
+		System.out.print("test4----------------------");
+		TextIndex<String>.Query q = index.getQuery("street");
+		String e = "High Street";
+		index.added(e);
+		System.out.println(q.matches(e) && !q.matches(a)
+				&& q.getFound().isEmpty() ? "Passed" : "Failed");
+
+		/** @test isNarrowerThan() Typing onto the end narrows a query. */
+		System.out.print("test5----------------------");
+		System.out.println(index.getQuery("meet r").isNarrowerThan(
+				index.getQuery("mee")) && !index.getQuery("mee")
+				.isNarrowerThan(index.getQuery("meet"))
+				? "Passed" : "Failed");
+
+		/** @test removed() Numbers of removed elements are dropped. */
+		System.out.print("test6----------------------");
+		List<String> many = new ArrayList<String>();
+		for (int i = 0; i < 4 * INITIAL_CAPACITY; i++){
+			many.add("Item " + i);
+			index.added(many.get(i));
+		}
+		TextIndex<String>.Query items = index.getQuery("item 1");
+		for (int i = 0; i < many.size(); i++)
+			if (i % 4 != 3)
+				index.removed(many.get(i));
+		System.out.println(index.m_renumbers == 1
+				&& index.m_nextID < 2 * index.getSize()
+				&& items.matches(many.get(11)) && !items.matches(many.get(27))
+				&& index.search("item 3").size() == 7
+				&& items.getFound().size() == 5
+				&& index.getQuery("item 3").matches(many.get(31))
+				? "Passed" : "Failed");
+	}
+
+	/** The number of elements there is room for at first. */
+	private static final int INITIAL_CAPACITY = 16;
+	/** The number of recent terms whose words are kept. */
+	private static final int TERM_CACHE_SIZE = 32;
+	/** Gives the searchable fields of an element. */
+	private TextFilterator<? super E> m_filterator;
+	/** What is indexed of each element. */
+	private Map<E, Entry> m_entries = new IdentityHashMap<E, Entry>();
+	/** The elements by number, null where one was removed. */
+	private Object[] m_elements = new Object[INITIAL_CAPACITY];
+	/** The number of times the index was cleared. */
+	private volatile int m_clears = 0;
+	/** The number of times the elements were numbered again. */
+	private volatile int m_renumbers = 0;
+	/** The number the next element indexed gets. */
+	private int m_nextID = 0;
+	/** The numbers of the elements each word is in. */
+	private Map<String, Posting> m_postings = new HashMap<String, Posting>();
+	/** The words containing each recent term. */
+	@SuppressWarnings("serial")
+	private Map<String, Set<String>> m_termCache =
+			new LinkedHashMap<String, Set<String>>(16, 0.75f, true){
+		protected boolean removeEldestEntry(
+				Map.Entry<String, Set<String>> eldest){
+			return size() > TERM_CACHE_SIZE;
+		}
+	};
+}
@@ -0,0 +1,228 @@
+/**
+ * @file TextIndexMatcherEditor.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the TextIndexMatcherEditor class.
+ */
+
+/**
+ * @package common
+ * @brief Things used in common, so far only between addressBook and events.
+ */
+package common;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+
+import ca.odell.glazedlists.matchers.AbstractMatcherEditor;
+import ca.odell.glazedlists.matchers.Matcher;
+
+/**
+ * @brief Filters a list by the text of a search field, using a TextIndex.
+ *
+ * Takes the place of the Glazed Lists TextComponentMatcherEditor behind
+ * the search panels. The text is only searched for once typing has paused
+ * for SEARCH_DELAY milliseconds; each key stroke cancels the search before
+ * it, whether it is still waiting or already running.<br/>
+ * A search is worked out away from the Event Dispatch Thread, and the
+ * filtered list is told about it from there too, so the table must show
+ * the filtered list through a Swing thread proxy list. The first
+ * PAGE_SIZE matches are handed over first, then all of them, so the table
+ * fills in straight away even when the search matches most of a long
+ * list.<br/>
+ * When text is typed onto the end of the search, only the elements that
+ * matched before are checked again; when it is deleted, only those that
+ * didn't.<br/>
+ * A subclass may filter by another matcher than the query, e.g. one also
+ * matching close spellings, by overriding createMatcher(), and hear which
+ * matcher the list is filtered by through filtering().
+ * @param <E> The type of the elements.
+ * @author agent
+ */
+public class TextIndexMatcherEditor<E> extends AbstractMatcherEditor<E> {
+
+	/** Milliseconds without typing before the text is searched for. */
+	public static final int SEARCH_DELAY = 150;
+	/** The number of matches handed over before the rest. */
+	public static final int PAGE_SIZE = 100;
+
+	/**
+	 * Creates the matcher editor, searches for the text already in the
+	 * search field and starts following it.
+	 * @param field The search field.
+	 * @param index The index of the list being filtered.
+	 */
+	public TextIndexMatcherEditor(JTextComponent field, TextIndex<E> index){
+		m_field = field;
+		m_index = index;
+		m_timer = new Timer(SEARCH_DELAY, new ActionListener(){
+			public void actionPerformed(ActionEvent e){
+				refilter();
+			}
+		});
+		m_timer.setRepeats(false);
+		m_field.getDocument().addDocumentListener(new DocumentListener(){
+			public void insertUpdate(DocumentEvent e){textChanged();}
+			public void removeUpdate(DocumentEvent e){textChanged();}
+			public void changedUpdate(DocumentEvent e){textChanged();}
+		});
+		refilter();
+	}
+
+	/**
+	 * Cancels the search in progress and waits for typing to pause
+	 * before starting a new one.
+	 */
+	private void textChanged(){
+		cancel();
+		m_timer.restart();
+	}
+
+	/**
+	 * Cancels the search in progress, if any.
+	 */
+	private void cancel(){
+		m_searchCount++;
+		if (m_worker != null){
+			//Not interrupted: it gives up by itself when it sees it is stale.
+			m_worker.cancel(false);
+			m_worker = null;
+		}
+	}
+
+	/**
+	 * Starts searching for the current text of the search field in the
+	 * background, cancelling the search in progress.
+	 * @return True on execution.
+	 */
+	public boolean refilter(){
+		m_timer.stop();
+		cancel();
+		final String text = m_field.getText();
+		final int search = m_searchCount;
+		m_worker = new SwingWorker<Void, Void>(){
+			@Override
+			protected Void doInBackground(){
+				if (isStale(search))
+					return null;
+				TextIndex<E>.Query query = m_index.getQuery(text);
+				Matcher<E> matcher = createMatcher(query, text);
+				TextIndex<E>.Query page = query.getPage(PAGE_SIZE);
+				//Only the query's own matches can be handed over early.
+				if (matcher == query && page != query)
+					apply(page, page, search);
+				apply(query, matcher, search);
+				return null;
+			}
+
+			@Override
+			protected void done(){
+				if (isCancelled())
+					return;
+				try{
+					get();
+				} catch (InterruptedException ie){
+					System.out.println("InterruptedException caught, " +
+							"the exception was: " + ie);
+				} catch (ExecutionException ee){
+					System.out.println("ExecutionException caught, " +
+							"the exception was: " + ee.getCause());
+				}
+			}
+		};
+		m_worker.execute();
+		return true;
+	}
+
+	/**
+	 * Creates the matcher the list is filtered by. Called away from the
+	 * Event Dispatch Thread.
+	 * @param query The query of the text.
+	 * @param text The text searched for.
+	 * @return The query itself, or another matcher, in which case the
+	 * matches are all handed over at once.
+	 */
+	protected Matcher<E> createMatcher(TextIndex<E>.Query query, String text){
+		return query;
+	}
+
+	/**
+	 * Called just before the list is filtered by a matcher, once its
+	 * search is known not to be stale, e.g. to sort the list to go with
+	 * it. Called away from the Event Dispatch Thread.
+	 * @param matcher The matcher, as returned by createMatcher(), or a
+	 * page of the query.
+	 */
+	protected void filtering(Matcher<E> matcher){
+	}
+
+	/**
+	 * Tells if a search has been cancelled or a later one started.
+	 * @param search The number of the search.
+	 * @return True if its result is no longer wanted.
+	 */
+	private boolean isStale(int search){
+		return search != m_searchCount;
+	}
+
+	/**
+	 * Filters the list by a query, unless its search is stale.<br/>
+	 * The list is told how the query compares to the one before it, so it
+	 * can check fewer elements. A matcher other than the query can't be
+	 * compared, so every element is checked again.
+	 * @param query The query.
+	 * @param matcher The matcher of the query.
+	 * @param search The number of its search.
+	 * @return True if the list was filtered.
+	 */
+	private boolean apply(TextIndex<E>.Query query, Matcher<E> matcher,
+			int search){
+		//Not the editor's own lock, so typing never waits for the list.
+		synchronized (m_applyLock){
+			if (isStale(search))
+				return false;
+			TextIndex<E>.Query previous = m_query;
+			boolean other = m_otherMatcher;
+			m_query = query;
+			m_otherMatcher = matcher != query;
+			filtering(matcher);
+			if (query.isEmpty() && !m_otherMatcher)
+				fireMatchAll();
+			else if (m_otherMatcher || other)
+				fireChanged(matcher);
+			else if (previous == null || previous.isEmpty())
+				fireConstrained(query);
+			else if (query.isNarrowerThan(previous))
+				fireConstrained(query);
+			else if (previous.isNarrowerThan(query))
+				fireRelaxed(query);
+			else
+				fireChanged(query);
+			return true;
+		}
+	}
+
+	/** The search field. */
+	private JTextComponent m_field;
+	/** The index of the list being filtered. */
+	private TextIndex<E> m_index;
+	/** Starts the search once typing has paused. */
+	private Timer m_timer;
+	/** The search in progress, or null. Only used on the Swing thread. */
+	private SwingWorker<Void, Void> m_worker = null;
+	/** Counts the searches started or cancelled; the latest is wanted. */
+	private volatile int m_searchCount = 0;
+	/** Held while the list is filtered, so searches don't overlap. */
+	private final Object m_applyLock = new Object();
+	/** The query the list is filtered by, or null before the first. */
+	private TextIndex<E>.Query m_query = null;
+	/** True if the list is filtered by another matcher than m_query. */
+	private boolean m_otherMatcher = false;
+}
@@ -17,8 +17,8 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @brief Utility class for working with date.
@@ -381,34 +381,136 @@ public class SystemDate {
 	
 	/**
 	 * Generates an accurate time stamp, down to the milliseconds.<br/>
-	 * The last 6 digits of the nanoseconds are artificially generated.<br/>
+	 * The last 6 digits of the nanoseconds count the stamps generated 
+	 * within the millisecond, so every stamp is unique within the program
+	 * and later than the one before, even across threads. The stamps count
+	 * local wall clock time, so if the clock goes back, either by hand or
+	 * when summer time ends, they carry on from the last one.<br/>
 	 * The general purpose of the class is to generate unique strings every time it's run. 
-	 * @return A string of the format <tt>2012-03-20 22:42:39.529123456</tt>
+	 * @return A string of the format <tt>2012-03-20 22:42:39.529000003</tt>
 	 * @author Codrin Morhan
-	 * @see validateTimeStamp() for a regex version.
+	 * @see validateTimeStamp()
 	 */
 	public static String generateTimeStamp(){
-		DateTime stamp = DateTime.now(TimeZone.getDefault());
-		//System.out.println(stamp.toString());
-		int nanoseconds = new Random().nextInt(999999);
-		//The last 6 digits are always zero due to DateTime not having 
-		//such precision by default
-		return stamp.toString().replaceFirst("[0]{6}$", nanoseconds+"");
+		return generateTimeStamp(System.currentTimeMillis(), 
+				TimeZone.getDefault());
 	}
 	
 	/**
-	 * Validates a time stamp.
+	 * Generates the time stamp of a time, later than any before it.
+	 * @param millis The time, in milliseconds since 1970 UTC.
+	 * @param zone The time zone the stamp is written in.
+	 * @return The stamp.
+	 * @see generateTimeStamp()
+	 */
+	private static String generateTimeStamp(long millis, TimeZone zone){
+		//Local time, so the stamps never repeat when the offset shrinks.
+		long now = (millis + zone.getOffset(millis)) * STAMPS_PER_MILLISECOND;
+		long last, next;
+		do {
+			last = LAST_STAMP.get();
+			next = Math.max(now, last + 1);
+		} while (!LAST_STAMP.compareAndSet(last, next));
+		return formatTimeStamp(next);
+	}
+	
+	/**
+	 * Writes a stamp out.
+	 * @param stamp The stamp, in millionths of a millisecond since 1970,
+	 * local time.
+	 * @return A string of the format <tt>2012-03-20 22:42:39.529000003</tt>
+	 */
+	private static String formatTimeStamp(long stamp){
+		long millis = stamp / STAMPS_PER_MILLISECOND;
+		final long MILLIS_PER_DAY = 86400000L;
+		//Stamps are never before 1970, so the divisions round down.
+		long days = millis / MILLIS_PER_DAY;
+		long time = millis % MILLIS_PER_DAY;
+		
+		//Days since 1970 to the civil date, counting in 400 year eras.
+		long z = days + 719468;
+		long era = z / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+		
+		char[] c = "0000-00-00 00:00:00.000000000".toCharArray();
+		writeDigits(c, 0, 4, year);
+		writeDigits(c, 5, 2, month);
+		writeDigits(c, 8, 2, day);
+		writeDigits(c, 11, 2, time / 3600000);
+		writeDigits(c, 14, 2, time / 60000 % 60);
+		writeDigits(c, 17, 2, time / 1000 % 60);
+		writeDigits(c, 20, 3, time % 1000);
+		writeDigits(c, 23, 6, stamp % STAMPS_PER_MILLISECOND);
+		return new String(c);
+	}
+	
+	/**
+	 * Writes a number into a character array, padded with zeros.
+	 * @param c The array.
+	 * @param at The position of the first digit.
+	 * @param digits The number of digits written.
+	 * @param n The number.
+	 */
+	private static void writeDigits(char[] c, int at, int digits, long n){
+		for (int i = at + digits - 1; i >= at; i--){
+			c[i] = (char) ('0' + n % 10);
+			n /= 10;
+		}
+	}
+	
+	/**
+	 * Validates a time stamp.<br/>
+	 * Done by hand, as it is called for every event and contact added or
+	 * loaded.
 	 * @param ts The time stamp to be validated.
-	 * @return True if the time stamp fits the regex <tt>(((19[7-9][0-9])|2[0-1][0-9]{2}))-((1[0-2])|(0[1-9]))-(([0-2][1-9])|(3[0-1])) (([0-1][0-9])|(2[0-4])):[0-5][0-9]:[0-5][0-9].[0-9]{3}[0-9]{1,6}</tt> 
-	 * , in essence, any date of the format 2000-01-30 00:00:00 that is between 1970 and 2200; false otherwise.
+	 * @return True if the time stamp is of the format 
+	 * <tt>2000-01-30 00:00:00.0000</tt>, with 4 to 9 digits after the
+	 * point, between 1970 and 2200 (24:00 is allowed as a time); false
+	 * otherwise.
 	 * @author Codrin Morhan
 	 * @see generateTimeStamp
 	 */
 	public static boolean validateTimeStamp(String ts){
-		return ts.matches(
-	"(((19[7-9][0-9])|2[0-1][0-9]{2}))-((1[0-2])|(0[1-9]))-(([0-2][1-9])|" +
-	"(3[0-1])) (([0-1][0-9])|(2[0-4])):[0-5][0-9]:[0-5][0-9].[0-9]{3}[0-9]{1,6}"
-		); //super long regex
+		final int MIN_LENGTH = 24, MAX_LENGTH = 29;
+		if (ts == null || ts.length() < MIN_LENGTH 
+				|| ts.length() > MAX_LENGTH)
+			return false;
+		final String FORMAT = "0000-00-00 00:00:00.";
+		for (int i = 0; i < ts.length(); i++){
+			char c = ts.charAt(i);
+			char f = i < FORMAT.length() ? FORMAT.charAt(i) : '0';
+			if (f == '0' ? c < '0' || c > '9' : c != f)
+				return false;
+		}
+		int year = readDigits(ts, 0, 4);
+		int month = readDigits(ts, 5, 2);
+		int day = readDigits(ts, 8, 2);
+		int hour = readDigits(ts, 11, 2);
+		int minute = readDigits(ts, 14, 2);
+		int second = readDigits(ts, 17, 2);
+		return year >= 1970 && year < 2200 && month >= 1 && month <= 12
+				&& day >= 1 && day <= 31 && hour <= 24 && minute <= 59 
+				&& second <= 59;
+	}
+	
+	/**
+	 * Reads a number made of digits only.
+	 * @param s The string holding the number.
+	 * @param at The position of the first digit.
+	 * @param digits The number of digits.
+	 * @return The number.
+	 */
+	private static int readDigits(String s, int at, int digits){
+		int n = 0;
+		for (int i = at; i < at + digits; i++)
+			n = n * 10 + (s.charAt(i) - '0');
+		return n;
 	}
 	
 	/**
@@ -439,6 +541,10 @@ public class SystemDate {
 	public static String DATE_FORMAT = "YYYY-MM-DD hh:mm:ss";
 	/** The date format standard for the application, in java format. */
 	public static String DATE_FORMAT_JAVA = "yyyy-MM-dd HH:mm:ss";
+	/** The number of time stamps which can be generated in a millisecond. */
+	private final static long STAMPS_PER_MILLISECOND = 1000000L;
+	/** The last time stamp generated, in millionths of a local millisecond. */
+	private final static AtomicLong LAST_STAMP = new AtomicLong();
 	/** The date lower limit. */
 	private final static DateTime MINIMUM_DATE = new DateTime("1970-01-01");
 	/** The date upper limit. */
@@ -648,6 +754,49 @@ public class SystemDate {
 			System.out.println("[PASSED]");
 		else
 			System.out.println("[FAILED]!");
+		
+		/** @test generateTimeStamp() stamps are valid and always later. */
+		System.out.print("-[TEST16]"+FILLER);
+		boolean passT16 = true;
+		String previous = "";
+		final int STAMPS = 100000;
+		for (int i = 0; i < STAMPS && passT16; i++){
+			String timeStamp = generateTimeStamp();
+			if (timeStamp.compareTo(previous) <= 0 
+					|| !validateTimeStamp(timeStamp))
+				passT16 = false;
+			previous = timeStamp;
+		}
+		if (passT16)
+			System.out.println("[PASSED]");
+		else 
+			System.out.println("[FAILED]!");
+		
+		/** @test validateTimeStamp() with days 10, 20 and 30. */
+		System.out.print("-[TEST17]"+FILLER);
+		if (validateTimeStamp("2012-04-10 10:00:00.000000001")
+				&& validateTimeStamp("2012-04-20 10:00:00.0001")
+				&& validateTimeStamp("2012-04-30 24:00:00.000")
+						== false
+				&& validateTimeStamp("2012-04-00 10:00:00.0001") == false
+				&& validateTimeStamp("2200-01-01 10:00:00.0001") == false)
+			System.out.println("[PASSED]");
+		else
+			System.out.println("[FAILED]!");
+		
+		/** @test generateTimeStamp() An hour apart across the end of summer
+		 * time, when both times read 01:30 in London. */
+		System.out.print("-[TEST18]"+FILLER);
+		TimeZone london = TimeZone.getTimeZone("Europe/London");
+		final long BEFORE = 1792888200000L, AFTER = BEFORE + 3600000L;
+		String summer = generateTimeStamp(BEFORE, london);
+		String winter = generateTimeStamp(AFTER, london);
+		if (winter.compareTo(summer) > 0 && validateTimeStamp(summer)
+				&& validateTimeStamp(winter)
+				&& generateTimeStamp().compareTo(winter) > 0)
+			System.out.println("[PASSED]");
+		else
+			System.out.println("[FAILED]!");
 	}
 
 }
@@ -15,7 +15,6 @@ import java.awt.EventQueue;
 
 import testingFramework.TestData;
 import ui.UserInterface;
-import views.CalendarTableModel;
 import views.DayView;
 import views.MonthView;
 import views.WeekView;
@@ -246,9 +245,41 @@ public class DigitalOrganiser {
 		setEventFileManager(new EventFileManager());
 		setContactFileManager(new ContactFileManager());
 		
+		//Edits and deletes are appended to the journals instead of
+		//rewriting the files.
+		getEventFileManager().setJournalMode(true);
+		getContactFileManager().setJournalMode(true);
+		
 		//Loading from the default files.
 		getEventFileManager().load();
 		getContactFileManager().load();
+		
+		//Saving is done on background writer threads from now on, so the
+		//queues must be flushed before the program exits.
+		getEventFileManager().setWriteBehindMode(true);
+		getContactFileManager().setWriteBehindMode(true);
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				closeStorage();
+			}
+		}));
+	}
+	
+	/**
+	 * This method writes out any saves still queued by the file managers
+	 * and stops their writer threads.
+	 * @return True if everything was saved correctly.
+	 */
+	public static boolean closeStorage(){
+		boolean success = true;
+		if (getEventFileManager() != null){
+			success &= getEventFileManager().close();
+		}
+		if (getContactFileManager() != null){
+			success &= getContactFileManager().close();
+		}
+		return success;
 	}
 	
 	/**
@@ -281,10 +312,7 @@ public class DigitalOrganiser {
 			getWeekView().setToDisplay(getEventList());
 			getMonthView().setToDisplay(getEventList());
 			getYearView().setEventList(getEventList());
-			
-			CalendarTableModel ctm = (CalendarTableModel) 
-					getYearView().getToDisplay().getModel();	
-			ctm.refreshData();
+			getYearView().updateDisplay();
 		} catch (Exception ex){
 			System.err.println("DO: loadViews(): Could not tell the views " +
 					"to make use of the EL. " +
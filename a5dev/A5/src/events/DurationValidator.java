@@ -2,7 +2,7 @@
  * @file DurationValidator.java
  * @author Adewale Odunlami
  * @date 14/03/2012
- * @brief Contains the DurationValidator class. 
+ * @brief Contains the DurationValidator class.
  */
 
 /**
@@ -12,17 +12,30 @@
 package events;
 
 import hirondelle.date4j.DateTime;
-import dateAndTime.SystemDate;
-import dateAndTime.SystemTime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * @brief Validates event durations.
- * 
+ *
  * Provides duration checks for any event category.<br/>
- * Later on it was determined by the client that there should be almost no duration checks, 
- * therefore this class is largely useless now.<br/>
- * However removing it or the unused methods would run the risk of giving the 
- * appearance that the author did not perform enough work for the project. 
+ * The checks are a table with a rule per entry of Event.CATEGORIES, giving
+ * the shortest and longest duration allowed and the times of day the event
+ * may start at. A category without a rule, like "Other", may last any time.
+ * Categories are matched ignoring case and spaces, so "Happy hour" and
+ * "HappyHour" are the same.<br/>
+ * Dates are turned into seconds since 1970, reading the wall clock time as
+ * UTC, so a check is only a few subtractions. As before, the duration is
+ * the time between the two dates whichever comes first.<br/>
+ * Later on it was determined by the client that there should be almost no
+ * duration checks, so a failed check only gives a warning the user can
+ * confirm, or a report when events are loaded.
  * @author Adewale Odunlami
 */
 public class DurationValidator {
@@ -31,528 +44,280 @@ public class DurationValidator {
 	 * @return The switch status.
 	 */
 	public boolean getDebugStatus(){return m_debug;}
-	
+
 	/**
 	 * Sets the debug switch status.
 	 * @param f The new switch status.
 	 */
 	public void setDebugStatus(boolean f){m_debug = f;}
-	
-	 /**
-     * Validates the time duration of Social event.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if valid, otherwise false.
-     */
-    public boolean validateSocialEvent(DateTime s, DateTime e) {
- 
-    	if (s == null || e == null){
-    		if(getDebugStatus())
-    			System.err.println("DurationValidator.java:\n" +
-            		" ValidateSocialEvents():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-    	};
-        long duration = SystemDate.calculateDuration(s,e);
-        int MAX_DURATION = 604800, MIN_DURATION = 0; //maximum of 7 days
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-        	if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateSocialEvent():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }        
-        return true;
-    }
-    
-    /**
-     * Validates the time duration of a Birthday.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-    public boolean validateBirthday(DateTime s, DateTime e) {
-        
-    	if (s == null || e == null){
-    		if(getDebugStatus())
-    			System.err.println("DurationValidator.java:\n" +
-            		" ValidateBirthday():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-    	}
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 86400, MIN_DURATION = 0; //24hours maximum
-
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-        	if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateBirthday():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
-    }
-    
-    /**
-     * Validates the time duration of an Anniversary.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-    public boolean validateAnniversary(DateTime s, DateTime e) {
-    	if (s == null || e == null){
-    		if(getDebugStatus())
-    			System.err.println("DurationValidator.java:\n" +
-            		" ValidateAnniversary():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-    	}
-	        
-	    long duration = SystemDate.calculateDuration(s,e);
-	    
-	    int MAX_DURATION = 86400, MIN_DURATION = 0; // 24hours duration
-	    if ( duration > MAX_DURATION || duration < MIN_DURATION){
-	    	if(getDebugStatus())
-	    		System.err.println("DurationValidator.java:\n" +
-	                	" ValidateAnniversary():\n" +
-	              		"  Invalid event duration: " + duration + " seconds.");
-	                    return false;
-	    }  
-	    return true;
-    }
-   
-    /**
-     * Validates the time duration of a Meal.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */	    
-	public boolean validateMeal(DateTime s, DateTime e) {
-		
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateMeal():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		};
-	        
-	    long duration = SystemDate.calculateDuration(s,e);
-	    
-	    int MAX_DURATION = 3600, MIN_DURATION = 0; //an hour duration
 
-	    if ( duration > MAX_DURATION || duration < MIN_DURATION){
-		    if(getDebugStatus())
-		    	System.err.println("DurationValidator.java:\n" +
-	                	" ValidateMeal():\n" +
-	              		"  Invalid event duration: " + duration + " seconds.");
-	                    return false;
-	        }  
-	    return true;
+	/**
+	 * Creates a validator with the standard rule of every category.
+	 */
+	public DurationValidator(){
+		m_rules = new HashMap<String, Rule>(RULES);
 	}
 
 	/**
-     * Validates the time duration of a Happy Hour.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateHappyHour(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateHappyHour():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		}
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int DURATION = 3600; //an hour duration
-    
-        if ( duration != DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateHappyHour():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
+	 * Gets the validator with the standard rules, shared by all events.
+	 * @return The validator. Its rules should not be changed.
+	 */
+	public static DurationValidator getDefault(){
+		return DEFAULT;
 	}
 
 	/**
-     * Validates the time duration of a Concert.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */	 
-    public boolean validateConcert(DateTime s, DateTime e) {
-       
-    	if (s == null || e == null){
-    		if(getDebugStatus())
-    			System.err.println("DurationValidator.java:\n" +
-            		" ValidateSports():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-    	};
-
-        return true;
-    }
-
-    /**
-     * Validates the time duration of a Sport event.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-    public boolean validateSports(DateTime s, DateTime e) {
-   
-        if (s == null || e == null){
-         	if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateSports():\n" +
-                		"  Invalid Start or End date.");
-                return false;
-        }
-        return true;
-    }
-	    
-    /**
-     * Validates the date of a Work Deadline.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */	  
-	public boolean validateWorkDeadline(DateTime s, DateTime e) {
-		
-		if (s == null || e == null){
-			if(getDebugStatus()) 
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateWorkDeadline():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		};
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 0, MIN_DURATION = 0; //start date equals end date
-
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateWorkDeadline():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
+	 * Sets the rule of a category for this validator.
+	 * @param category The category, as in Event.CATEGORIES.
+	 * @param minDuration The shortest duration allowed, in seconds.
+	 * @param maxDuration The longest duration allowed, in seconds.
+	 * @param fromTime The earliest time of day the event may start at,
+	 * in seconds after midnight.
+	 * @param toTime The time of day the event must start before, in seconds
+	 * after midnight. If it is before fromTime the times wrap past midnight.
+	 * @return True on success, false if the durations or times are invalid.
+	 */
+	public boolean setRule(String category, long minDuration,
+			long maxDuration, int fromTime, int toTime){
+		if (minDuration < 0 || minDuration > maxDuration || fromTime < 0
+				|| toTime < 0 || fromTime > SECONDS_PER_DAY
+				|| toTime > SECONDS_PER_DAY)
+			return false;
+		m_rules.put(toKey(category), new Rule(minDuration, maxDuration,
+				fromTime, toTime, false));
+		return true;
 	}
 
-	 /**
-     * Validates the time duration of a Meeting.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateMeeting(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateMeeting():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		}
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 28800, MIN_DURATION = 600; //10minutes - 8 hours
-
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateMeeting():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        } 
-        return true;
+	/**
+	 * Validates the time duration of an event of a category.
+	 * @param category The category, as in Event.CATEGORIES.
+	 * @param s The starting date.
+	 * @param e The ending date.
+	 * @return True if valid, otherwise false.
+	 */
+	public boolean validate(String category, DateTime s, DateTime e){
+		String problem = check(category, s, e);
+		if (problem != null && getDebugStatus())
+			System.err.println("DurationValidator.java:\n" +
+					" validate():\n  " + problem);
+		return problem == null;
 	}
-	
-	
-	 /**
-     * Validates the time duration of an Appointment.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateAppointment(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateAppointment():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-    }
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 3600, MIN_DURATION = 600; //10 minutes - 1 hour
 
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateAppointment():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
+	/**
+	 * Validates the time duration of an event.
+	 * @param ev The event.
+	 * @return True if valid, otherwise false.
+	 */
+	public boolean validate(Event ev){
+		return validate(ev.getCategory(), ev.getStartingDateTime(),
+				ev.getEndingDateTime());
 	}
-	
 
-	 /**
-     * Validates the time duration of a Bank Holiday.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateBankHoliday(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateBankHoliday():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-    }
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 86400, MIN_DURATION = 0;   //24 hours
-
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateBankHoliday():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
+	/**
+	 * Validates the time durations of many events at once, sharing them
+	 * out between the cores.
+	 * @param events The events.
+	 * @return A message for each event whose duration is invalid, in the
+	 * order of the events; empty if all of them are valid.
+	 */
+	public List<String> validateAll(Event[] events){
+		return ForkJoinPool.commonPool().invoke(
+				new CheckTask(events, 0, events.length));
 	}
-	
 
-	 /**
-     * Validates the date of a Bill Payment. 
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateBillPayment(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateBillPayment():\n" +
-            		"  Invalid Start or End date.");
-            return false;
+	/**
+	 * Checks the time duration of an event of a category.
+	 * @param category The category, as in Event.CATEGORIES.
+	 * @param s The starting date.
+	 * @param e The ending date.
+	 * @return What is wrong with the duration, or null if it is valid.
+	 */
+	public String check(String category, DateTime s, DateTime e){
+		if (s == null || e == null)
+			return "Invalid Start or End date.";
+		Rule r = m_rules.get(toKey(category));
+		if (r == null)
+			return null;
+		long start = toSeconds(s);
+		long duration = Math.abs(toSeconds(e) - start);
+		if (duration < r.m_minDuration || duration > r.m_maxDuration)
+			return "Invalid event duration of " + duration + " seconds, " +
+					category + " must last " + r.m_minDuration + " to " +
+					r.m_maxDuration + " seconds.";
+		int time = (int) (((start % SECONDS_PER_DAY) + SECONDS_PER_DAY)
+				% SECONDS_PER_DAY);
+		boolean inWindow = r.m_fromTime <= r.m_toTime
+				? time >= r.m_fromTime && time < r.m_toTime
+				: time >= r.m_fromTime || time < r.m_toTime;
+		if (!inWindow)
+			return category + " can't start at that time of day.";
+		if (r.m_pastOnly){
+			long now = System.currentTimeMillis();
+			now = (now + TimeZone.getDefault().getOffset(now)) / 1000;
+			if (start > now)
+				return "This is not a past payment.";
 		}
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 0, MIN_DURATION = 0; //start time equals end time
-
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateBillPayment():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
+		return null;
 	}
-	  
 
-	 /**
-     * Validates the time duration of a Lecture.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateLecture(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateLecture():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		};
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 10800, MIN_DURATION = 3000;  //50 - 180 minutes
-     
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-        	   if(getDebugStatus())
-        		   System.err.println("DurationValidator.java:\n" +
-                		" ValidateLecture():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
+	/**
+	 * Converts a date & time to seconds since 1970, reading the wall
+	 * clock time as UTC.
+	 * @param d The date & time.
+	 * @return The seconds.
+	 */
+	private static long toSeconds(DateTime d){
+		return Math.floorDiv(EventIntervalIndex.toKey(d), 1000L);
 	}
 
-
-	 /**
-     * Validates the date an Accident happened.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateAccident(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateSports():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		}
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 0, MIN_DURATION = 0;
-  
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateAccident():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
+	/**
+	 * Gets the key a category is looked up by.
+	 * @param category The category.
+	 * @return The category in lower case, without spaces.
+	 */
+	private static String toKey(String category){
+		if (category == null)
+			return "";
+		return category.replace(" ", "").toLowerCase();
 	}
 
-	
-	 /**
-     * Validates the date of a previous payment.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validatePreviousPayment(DateTime s, DateTime e) {
-       
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidatePreviousPayment():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		};
-        
-        DateTime dateNow = SystemDate.getCurrentDate();
-        String timeNow = SystemTime.getCurrentTime();
-        DateTime dateAndTimeNow = new DateTime(dateNow.toString() +
-        							" " + timeNow);
-       // System.out.println(dateAndTimeNow.toString());
-        
-        if(s.gt(dateAndTimeNow)){ 
-        	if(getDebugStatus())
-        		System.err.println("DurationValidator.java:\n" +
-            		" ValidatePreviousPayment():\n" +
-            		"  This is not a past payment.");
-            return false;
-        }
-        long duration= SystemDate.calculateDuration(s,e);
-        
-      //  System.out.println("Duration is: "+ duration);
-       // System.out.println(s);
-        //System.out.println(e);
-        
-        int MAX_DURATION = 0;
-        int MIN_DURATION = 0;
-
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidatePreviousPayment():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-    
-        return true;
+	/**
+	 * Builds the standard rules, one per category of Event.CATEGORIES.
+	 * "Other", "Concert" and "Sports" may last any time so have no rule.
+	 * @return The rules, by category key.
+	 */
+	private static Map<String, Rule> createRules(){
+		final long MINUTE = 60, HOUR = 3600, DAY = 86400, WEEK = 604800;
+		Map<String, Rule> rules = new HashMap<String, Rule>();
+		rules.put(toKey("Social event"), new Rule(0, WEEK));
+		rules.put(toKey("Birthday"), new Rule(0, DAY));
+		rules.put(toKey("Anniversary"), new Rule(0, DAY));
+		rules.put(toKey("Meal"), new Rule(0, HOUR));
+		rules.put(toKey("Happy hour"), new Rule(HOUR, HOUR));
+		//The start date equals the end date.
+		rules.put(toKey("Work deadline"), new Rule(0, 0));
+		rules.put(toKey("Meeting"), new Rule(10 * MINUTE, 8 * HOUR));
+		rules.put(toKey("Appointment"), new Rule(10 * MINUTE, HOUR));
+		rules.put(toKey("Bank holiday"), new Rule(0, DAY));
+		rules.put(toKey("Bill payment"), new Rule(0, 0));
+		rules.put(toKey("Class/Lecture"), new Rule(50 * MINUTE, 3 * HOUR));
+		rules.put(toKey("Accident"), new Rule(0, 0));
+		rules.put(toKey("Previous Payment"),
+				new Rule(0, 0, 0, SECONDS_PER_DAY, true));
+		rules.put(toKey("Gym"), new Rule(30 * MINUTE, 2 * HOUR));
+		rules.put(toKey("Vacation"), new Rule(DAY, 4 * WEEK));
+		return rules;
 	}
-	
 
+	/**
+	 * @brief The rule of a category.
+	 */
+	private static class Rule {
+		/**
+		 * Creates a rule allowing any time of day.
+		 * @param minDuration The shortest duration allowed, in seconds.
+		 * @param maxDuration The longest duration allowed, in seconds.
+		 */
+		Rule(long minDuration, long maxDuration){
+			this(minDuration, maxDuration, 0, SECONDS_PER_DAY, false);
+		}
 
-	 /**
-     * Validates the time duration of a Gym session.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateGym(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateGym():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		};
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 7200, MIN_DURATION = 1800;  //30minutes to 2 hrs
+		/**
+		 * Creates a rule.
+		 * @param minDuration The shortest duration allowed, in seconds.
+		 * @param maxDuration The longest duration allowed, in seconds.
+		 * @param fromTime The earliest start time, in seconds of the day.
+		 * @param toTime The time to start before, in seconds of the day.
+		 * @param pastOnly True if the event can't start in the future.
+		 */
+		Rule(long minDuration, long maxDuration, int fromTime, int toTime,
+				boolean pastOnly){
+			m_minDuration = minDuration;
+			m_maxDuration = maxDuration;
+			m_fromTime = fromTime;
+			m_toTime = toTime;
+			m_pastOnly = pastOnly;
+		}
+		/** The shortest duration allowed, in seconds. */
+		private long m_minDuration;
+		/** The longest duration allowed, in seconds. */
+		private long m_maxDuration;
+		/** The earliest start time, in seconds of the day. */
+		private int m_fromTime;
+		/** The time to start before, in seconds of the day. */
+		private int m_toTime;
+		/** True if the event can't start in the future. */
+		private boolean m_pastOnly;
+	}
 
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateGym():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
-  	}
-	
+	/**
+	 * @brief Checks a range of events, splitting it between workers.
+	 */
+	@SuppressWarnings("serial")
+	private class CheckTask extends RecursiveTask<List<String>> {
+		/**
+		 * Creates the task.
+		 * @param events The events.
+		 * @param from The first event checked.
+		 * @param to The event after the last one checked.
+		 */
+		CheckTask(Event[] events, int from, int to){
+			m_events = events;
+			m_from = from;
+			m_to = to;
+		}
 
-	 /**
-     * Validates the time duration of a Vacation period.
-     * @param s The starting date.
-     * @param e The ending date.
-     * @return True if passed, otherwise false.
-     */
-	public boolean validateVacation(DateTime s, DateTime e) {
-        
-		if (s == null || e == null){
-			if(getDebugStatus())
-				System.err.println("DurationValidator.java:\n" +
-            		" ValidateVacation():\n" +
-            		"  Invalid Start or End date.");
-            return false;
-		};
-        
-        long duration = SystemDate.calculateDuration(s,e);
-        
-        int MAX_DURATION = 2419200, MIN_DURATION = 86400; //1 day to 4 weeks
+		/**
+		 * Checks the range, or its two halves in parallel.
+		 * @return The messages of the invalid events, in order.
+		 */
+		protected List<String> compute(){
+			if (m_to - m_from <= EVENTS_PER_TASK){
+				List<String> problems = new ArrayList<String>();
+				for (int i = m_from; i < m_to; i++){
+					Event ev = m_events[i];
+					String problem = check(ev.getCategory(),
+							ev.getStartingDateTime(), ev.getEndingDateTime());
+					if (problem != null)
+						problems.add(ev.getTitle() + ": " + problem);
+				}
+				return problems;
+			}
+			int mid = (m_from + m_to) >>> 1;
+			CheckTask left = new CheckTask(m_events, m_from, mid);
+			left.fork();
+			List<String> right =
+					new CheckTask(m_events, mid, m_to).compute();
+			List<String> problems = left.join();
+			problems.addAll(right);
+			return problems;
+		}
 
-        if ( duration > MAX_DURATION || duration < MIN_DURATION){
-            if(getDebugStatus())
-                System.err.println("DurationValidator.java:\n" +
-                		" ValidateVacation():\n" +
-                		"  Invalid event duration: " + duration + " seconds.");
-                return false;
-        }  
-        return true;
+		/** The events. */
+		private Event[] m_events;
+		/** The first event checked. */
+		private int m_from;
+		/** The event after the last one checked. */
+		private int m_to;
 	}
-	
-
 
     /** Tracks the debug status. Off by default. */
 	private boolean m_debug = false;
-	
+	/** The rules of this validator, by category key. */
+	private Map<String, Rule> m_rules;
+	/** The number of seconds in a day. */
+	private static final int SECONDS_PER_DAY = 86400;
+	/** The number of events a task checks without splitting. */
+	private static final int EVENTS_PER_TASK = 2048;
+	/** The standard rules, by category key. */
+	private static final Map<String, Rule> RULES = createRules();
+	/** The validator with the standard rules. */
+	private static final DurationValidator DEFAULT = new DurationValidator();
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
 	public static void main(String[] args){
         final String FILLER = "-----------------------------------------";  
         DurationValidator dv = new DurationValidator();
@@ -563,7 +328,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-08 01:01:01");
         
-        if (dv.validateSocialEvent(d1,d2))
+        if (dv.validate("Social event", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");        
@@ -572,7 +337,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-10 01:01:01");
         
-        if (dv.validateSocialEvent(d1,d2))
+        if (dv.validate("Social event", d1, d2))
             System.out.println("[FAILED]!");
         else
             System.out.println("[PASSED]");        
@@ -581,7 +346,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (dv.validateSocialEvent(d1,d2))
+        if (dv.validate("Social event", d1, d2))
             System.out.println("[FAILED]!");
         else
             System.out.println("[PASSED]");
@@ -591,7 +356,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-02 01:01:01");
         
-        if (dv.validateBirthday(d1,d2))
+        if (dv.validate("Birthday", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -600,7 +365,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-08 01:01:01");
         
-        if (dv.validateBirthday(d1,d2))
+        if (dv.validate("Birthday", d1, d2))
             System.out.println("[FAILED]!");
         else
             System.out.println("[PASSED]");        
@@ -609,7 +374,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (dv.validateBirthday(d1,d2))
+        if (dv.validate("Birthday", d1, d2))
             System.out.println("[FAILED]!");
         else
             System.out.println("[PASSED]");
@@ -619,7 +384,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-02 01:01:01");
         
-        if (dv.validateAnniversary(d1,d2))
+        if (dv.validate("Anniversary", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -628,7 +393,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-08 01:01:01");
         
-        if (dv.validateAnniversary(d1,d2))
+        if (dv.validate("Anniversary", d1, d2))
             System.out.println("[FAILED]!");
         else
             System.out.println("[PASSED]");        
@@ -637,7 +402,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (dv.validateAnniversary(d1,d2))
+        if (dv.validate("Anniversary", d1, d2))
             System.out.println("[FAILED]!");
         else
             System.out.println("[PASSED]");
@@ -647,7 +412,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 02:01:01");
         
-        if (dv.validateMeal(d1,d2))
+        if (dv.validate("Meal", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -656,7 +421,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 02:01:02");
         
-        if (dv.validateMeal(d1,d2))
+        if (dv.validate("Meal", d1, d2))
             System.out.println("[FAILED]!");
         else
             System.out.println("[PASSED]");        
@@ -665,7 +430,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (dv.validateMeal(d1,d2))
+        if (dv.validate("Meal", d1, d2))
             System.out.println("[FAILED]!");
         else
             System.out.println("[PASSED]");
@@ -675,7 +440,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 02:01:01");
         
-        if (dv.validateHappyHour(d1,d2))
+        if (dv.validate("Happy hour", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -684,7 +449,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 02:01:02");
         
-        if (!dv.validateHappyHour(d1,d2))
+        if (!dv.validate("Happy hour", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -693,7 +458,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:02");
         
-        if (!dv.validateHappyHour(d1,d2))
+        if (!dv.validate("Happy hour", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!"); 
@@ -702,7 +467,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateHappyHour(d1,d2))
+        if (!dv.validate("Happy hour", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -712,7 +477,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateConcert(d1,d2))
+        if (!dv.validate("Concert", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -722,7 +487,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateSports(d1,d2))
+        if (!dv.validate("Sports", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -732,7 +497,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:01");
         
-        if (dv.validateWorkDeadline(d1,d2))
+        if (dv.validate("Work deadline", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -741,7 +506,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 02:01:02");
         
-        if (!dv.validateWorkDeadline(d1,d2))
+        if (!dv.validate("Work deadline", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -750,7 +515,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateWorkDeadline(d1,d2))
+        if (!dv.validate("Work deadline", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -760,7 +525,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:11:01");
         
-        if (dv.validateMeeting(d1,d2))
+        if (dv.validate("Meeting", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -769,7 +534,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 09:01:02");
         
-        if (!dv.validateMeeting(d1,d2))
+        if (!dv.validate("Meeting", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -778,7 +543,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:02");
         
-        if (!dv.validateMeeting(d1,d2))
+        if (!dv.validate("Meeting", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!"); 
@@ -787,7 +552,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateMeeting(d1,d2))
+        if (!dv.validate("Meeting", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -797,7 +562,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:11:01");
         
-        if (dv.validateAppointment(d1,d2))
+        if (dv.validate("Appointment", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -806,7 +571,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 09:01:02");
         
-        if (!dv.validateAppointment(d1,d2))
+        if (!dv.validate("Appointment", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -815,7 +580,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:02");
         
-        if (!dv.validateAppointment(d1,d2))
+        if (!dv.validate("Appointment", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!"); 
@@ -824,7 +589,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateAppointment(d1,d2))
+        if (!dv.validate("Appointment", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -834,7 +599,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-02 01:01:01");
         
-        if (dv.validateBankHoliday(d1,d2))
+        if (dv.validate("Bank holiday", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -843,7 +608,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-03 02:01:02");
         
-        if (!dv.validateBankHoliday(d1,d2))
+        if (!dv.validate("Bank holiday", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -852,7 +617,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateBankHoliday(d1,d2))
+        if (!dv.validate("Bank holiday", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -862,7 +627,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:01");
         
-        if (dv.validateBillPayment(d1,d2))
+        if (dv.validate("Bill payment", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -871,7 +636,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 02:01:02");
         
-        if (!dv.validateBillPayment(d1,d2))
+        if (!dv.validate("Bill payment", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -880,7 +645,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateBillPayment(d1,d2))
+        if (!dv.validate("Bill payment", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -890,7 +655,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:51:01");
         
-        if (dv.validateLecture(d1,d2))
+        if (dv.validate("Class/Lecture", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -899,7 +664,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 05:01:02");
         
-        if (!dv.validateLecture(d1,d2))
+        if (!dv.validate("Class/Lecture", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -908,7 +673,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:50:02");
         
-        if (!dv.validateLecture(d1,d2))
+        if (!dv.validate("Class/Lecture", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!"); 
@@ -917,7 +682,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateLecture(d1,d2))
+        if (!dv.validate("Class/Lecture", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -927,7 +692,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:01");
         
-        if (dv.validateAccident(d1,d2))
+        if (dv.validate("Accident", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -936,7 +701,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:02");
         
-        if (!dv.validateAccident(d1,d2))
+        if (!dv.validate("Accident", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -945,7 +710,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateAccident(d1,d2))
+        if (!dv.validate("Accident", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -955,7 +720,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:01");
         
-        if (dv.validatePreviousPayment(d1,d2))
+        if (dv.validate("Previous Payment", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -964,7 +729,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:01:02");
         
-        if (!dv.validatePreviousPayment(d1,d2))
+        if (!dv.validate("Previous Payment", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -973,7 +738,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validatePreviousPayment(d1,d2))
+        if (!dv.validate("Previous Payment", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -983,7 +748,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:47:01");
         
-        if (dv.validateGym(d1,d2))
+        if (dv.validate("Gym", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -992,7 +757,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-01 01:03:02");
         
-        if (!dv.validateGym(d1,d2))
+        if (!dv.validate("Gym", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -1001,7 +766,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:00");   
         d2 = new DateTime("2000-01-01 01:30:59");
         
-        if (!dv.validateGym(d1,d2))
+        if (!dv.validate("Gym", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!"); 
@@ -1010,7 +775,7 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateGym(d1,d2))
+        if (!dv.validate("Gym", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -1020,7 +785,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:01");   
         d2 = new DateTime("2000-01-27 01:01:01");
         
-        if (dv.validateVacation(d1,d2))
+        if (dv.validate("Vacation", d1, d2))
             System.out.println("[PASSED]");
         else
             System.out.println("[FAILED]!");
@@ -1029,7 +794,7 @@ public class DurationValidator {
         d1 = new DateTime("2008-02-01 01:01:01");   
         d2 = new DateTime("2008-03-01 01:01:01");
         
-        if (!dv.validateVacation(d1,d2))
+        if (!dv.validate("Vacation", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
@@ -1038,7 +803,7 @@ public class DurationValidator {
         d1 = new DateTime("2000-01-01 01:01:00");   
         d2 = new DateTime("2000-01-02 01:00:00");
         
-        if (!dv.validateVacation(d1,d2))
+        if (!dv.validate("Vacation", d1, d2))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!"); 
@@ -1047,11 +812,39 @@ public class DurationValidator {
         d1 = null;   
         d2 = null;
         
-        if (!dv.validateVacation(d1,d2))
+        if (!dv.validate("Vacation", d1, d2))
+        	System.out.println("[PASSED]");
+        else
+        	System.out.println("[FAILED]!");
+
+        /** @test A time of day window wrapping past midnight. */
+        System.out.print("-[TEST54]" +FILLER);
+        DurationValidator night = new DurationValidator();
+        night.setRule("Other", 0, 86400, 22 * 3600, 2 * 3600);
+        if (night.validate("Other", new DateTime("2000-01-01 23:00:00"),
+        		new DateTime("2000-01-02 01:00:00"))
+        		&& !night.validate("Other", new DateTime("2000-01-01 12:00:00"),
+        		new DateTime("2000-01-01 13:00:00"))
+        		&& dv.validate("Other", new DateTime("2000-01-01 12:00:00"),
+        		new DateTime("2000-01-01 13:00:00")))
+        	System.out.println("[PASSED]");
+        else
+        	System.out.println("[FAILED]!");
+
+        /** @test validateAll() reports the invalid events in order. */
+        System.out.print("-[TEST55]" +FILLER);
+        Event[] events = new Event[10000];
+        for (int i = 0; i < events.length; i++){
+        	String end = i % 1000 == 0 ? "2000-01-01 03:00:00"
+        			: "2000-01-01 02:00:00";
+        	events[i] = new Event("2000-01-01 00:00:00.0001", "E" + i,
+        			"Happy hour", new DateTime("2000-01-01 01:00:00"),
+        			new DateTime(end), "", "No", "", "");
+        }
+        List<String> problems = dv.validateAll(events);
+        if (problems.size() == 10 && problems.get(1).startsWith("E1000:"))
         	System.out.println("[PASSED]");
         else
         	System.out.println("[FAILED]!");
-        
 	   }
 }
- 
\ No newline at end of file
@@ -21,8 +21,11 @@
  */
 package events;
 
+import java.util.List;
+
 import javax.swing.ImageIcon;
 
+import common.FieldValidator;
 import dateAndTime.SystemDate;
 
 import hirondelle.date4j.DateTime;
@@ -72,12 +75,20 @@ public class Event {
 	 * Sets the frequency of the occurrence of an event.
 	 * @param r The new frequency.
 	 */
-	public void setRepetition(String r){	m_Repetition = r;}  
+	public void setRepetition(String r){
+		m_Repetition = r;
+		m_RepetitionKind = Repetition.parse(r);
+	}
 	/**
 	 * Gets the event frequency.
 	 * @return The frequency.
 	 */
 	public String getRepetition(){ return  m_Repetition;}
+	/**
+	 * Gets the event frequency, parsed when it was set.
+	 * @return The frequency, or null if it is not one of REPEATS.
+	 */
+	public Repetition getRepetitionKind(){ return m_RepetitionKind;}
 ////////////////////////////////////////////////////////////////////////////////
 	/**
 	 * Gets the event title.
@@ -287,7 +298,36 @@ public class Event {
 		setCategory("Other");
 		setRepetition("No");
 	}
-	
+
+	/**
+	 * Constructor for values that were validated before they were stored,
+	 * such as the ones read back from a snapshot file.<br/>
+	 * Nothing is validated again.
+	 * @param id The ID.
+	 * @param title The title.
+	 * @param category The category.
+	 * @param start The starting date & time, null if not set.
+	 * @param end The ending date & time, null if not set.
+	 * @param location The location.
+	 * @param repetition The repetition.
+	 * @param description The description.
+	 * @param persons The persons involved.
+	 */
+	public Event(String id, String title, String category, DateTime start,
+			DateTime end, String location, String repetition,
+			String description, String persons){
+		setID(id);
+		m_Title = title;
+		m_Category = category;
+		m_startingDateTime = start;
+		m_endingDateTime = end;
+		m_Location = location;
+		m_Repetition = repetition;
+		m_RepetitionKind = Repetition.parse(repetition);
+		m_Description = description;
+		m_PersonsInvolved = persons;
+	}
+
 
 	/**
 	 * Compares the event with a given event.
@@ -442,6 +482,32 @@ public class Event {
 		return true;
 	}
 	
+	/**
+	 * Validates every field of an event stored as a string array, without
+	 * setting anything, for checking a record before it is loaded.
+	 * @param eventString The event, as from getAsStingArray().
+	 * @return The errors found, in field order; empty if it is valid.
+	 */
+	public static List<String> validateStringArray(String[] eventString){
+		return VALIDATOR.validate(eventString);
+	}
+	
+	/**
+	 * Builds the rules the fields of an event follow.
+	 * @return The validator holding the rules.
+	 */
+	private static FieldValidator createValidator(){
+		FieldValidator v = new FieldValidator();
+		String[] names = getHeaderStringArray();
+		v.addRule(TITLE_ARRAY_INDEX, names[TITLE_ARRAY_INDEX],
+				TITLE_MAXLENGTH, null);
+		v.addRule(LOCATION_ARRAY_INDEX, names[LOCATION_ARRAY_INDEX],
+				LOCATION_MAXLENGTH, null);
+		v.addRule(DESCRIPTION_ARRAY_INDEX, names[DESCRIPTION_ARRAY_INDEX],
+				DESCRIPTION_MAXLENGTH, null);
+		return v;
+	}
+	
 	/**
 	 * Validates the title, allowing empty strings and
 	 * checking the length.
@@ -541,7 +607,6 @@ public class Event {
 	 * @return True on valid duration, false otherwise.
 	 */
 	public boolean validateDuration(){
-		DurationValidator dv = new DurationValidator();
 		DateTime s = getStartingDateTime();
 		DateTime e = getEndingDateTime();
 		if (s==null || e == null){
@@ -552,10 +617,7 @@ public class Event {
 			return false;
 		}
 		
-		if (getCategory().equalsIgnoreCase("HappyHour"))
-			return dv.validateHappyHour(s,e);
-		else
-		return true;
+		return DurationValidator.getDefault().validate(getCategory(), s, e);
 	}
 	
 	/** Maximum number of characters for lengths of names. */
@@ -584,6 +646,8 @@ public class Event {
 	public static final int DESCRIPTION_ARRAY_INDEX = 7;
 	/** The array index position of persons involved. */
 	public static final int PERSONS_ARRAY_INDEX = 8;
+	/** The rules of the fields which have any. */
+	private static final FieldValidator VALIDATOR = createValidator();
 	/** The ID for the event. */
 	private String m_ID; 
     /** Tracks the debug status. Off by default. */
@@ -600,6 +664,8 @@ public class Event {
     private String m_Location; 
     /** The Repetition period for the event. */
     private String m_Repetition;
+    /** The Repetition period, parsed. */
+    private Repetition m_RepetitionKind;
     /** The Description for the event. */
     private String m_Description;
     /** The persons involved. */
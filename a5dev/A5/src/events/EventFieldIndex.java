@@ -0,0 +1,498 @@
+/**
+ * @file EventFieldIndex.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the EventFieldIndex class.
+ */
+
+/**
+ * @package events
+ * @brief Everything about calendar events, except icon resources.
+ */
+package events;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @brief Indexes of the fields of an event list which queries filter on.
+ *
+ * Each event is known by a number, given in the order the events were
+ * added to the list; an event replacing another takes over its number, so
+ * the numbers are in list order. The index holds:
+ * <ul>
+ * <li>a bitmap of the events of each category,</li>
+ * <li>a bitmap of the events of each repetition,</li>
+ * <li>the numbers of the events sorted by their start, so the events
+ * starting in a range are found with two binary searches.</li>
+ * </ul>
+ * Bitmaps are combined a word of 64 events at a time, and the number of
+ * events in a range is known before they are collected, so EventQuery can
+ * start from the field that leaves the fewest events.<br/>
+ * Like the word index, the event list tells the index about every change,
+ * and the bitmaps are changed a bit at a time. Like the interval index,
+ * an event added is put aside until there are too many to look through,
+ * then merged into the start order; a removed one is left there until
+ * then, and skipped. Once more numbers belong to removed events than to
+ * events, the events are numbered again.<br/>
+ * The event list calls every method that changes the index while holding
+ * its lock; the index only guards itself. A query holds the index's own
+ * lock while it runs, so it sees no change half made.
+ * @author agent
+ */
+public class EventFieldIndex {
+
+	/**
+	 * Creates an empty index.
+	 */
+	public EventFieldIndex(){
+		clear();
+	}
+
+	/**
+	 * Builds the index of some events.
+	 * @param events The events of the list, in list order.
+	 */
+	public EventFieldIndex(Event[] events){
+		this();
+		for (Event e : events)
+			added(e);
+	}
+
+	/**
+	 * Adds an event which was added at the end of the list.
+	 * @param e The event.
+	 */
+	public synchronized void added(Event e){
+		removed(e);
+		int i = m_nextNumber++;
+		if (i == m_events.length)
+			grow();
+		put(e, i);
+		m_size++;
+	}
+
+	/**
+	 * Removes an event which was removed from the list.
+	 * @param e The event.
+	 */
+	public synchronized void removed(Event e){
+		Integer i = m_numbers.get(e);
+		if (i == null)
+			return;
+		take(i);
+		m_size--;
+		int unused = m_nextNumber - m_size;
+		if (unused > MAX_PENDING && unused > m_size)
+			renumber();
+	}
+
+	/**
+	 * Replaces an event which was replaced in the list. The new event may
+	 * be the old one, changed.
+	 * @param old The event replaced.
+	 * @param e The event which took its place.
+	 */
+	public synchronized void replaced(Event old, Event e){
+		Integer i = m_numbers.get(old);
+		if (i == null){
+			added(e);
+			return;
+		}
+		if (e != old)
+			removed(e);
+		take(i);
+		put(e, i);
+	}
+
+	/**
+	 * Forgets every event, after the list was cleared.
+	 */
+	public synchronized void clear(){
+		m_numbers.clear();
+		m_categories.clear();
+		m_events = new Event[INITIAL_CAPACITY];
+		m_categoryOf = new String[INITIAL_CAPACITY];
+		m_starts = new long[INITIAL_CAPACITY];
+		m_changed = new long[INITIAL_CAPACITY];
+		m_repetitions = new BitSet[Repetition.values().length];
+		for (int r = 0; r < m_repetitions.length; r++)
+			m_repetitions[r] = new BitSet();
+		m_live = new BitSet();
+		m_started = new BitSet();
+		m_startOrder = new int[0];
+		m_sortedStarts = new long[0];
+		m_pending.clear();
+		m_stale = 0;
+		m_nextNumber = 0;
+		m_size = 0;
+	}
+
+	/**
+	 * Gets the number of events in the index.
+	 * @return The number of events.
+	 */
+	public synchronized int getSize(){
+		return m_size;
+	}
+
+	/**
+	 * Gets every event of the index.
+	 * @return The numbers of the events, a new bitmap.
+	 */
+	public synchronized BitSet getAll(){
+		return (BitSet) m_live.clone();
+	}
+
+	/**
+	 * Gets the event with a number.
+	 * @param i The number of the event.
+	 * @return The event, or null if it was removed.
+	 */
+	public synchronized Event getEvent(int i){
+		return i < m_nextNumber ? m_events[i] : null;
+	}
+
+	/**
+	 * Gets the number of an event.
+	 * @param e The event.
+	 * @return The number of the event, or -1 if it is not in the index.
+	 */
+	public synchronized int getNumber(Event e){
+		Integer i = m_numbers.get(e);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Gets the number of changes made to the index so far.
+	 * @return The count, which only grows, even when the index is cleared.
+	 */
+	public synchronized long getVersion(){
+		return m_version;
+	}
+
+	/**
+	 * Tells if an event was added or replaced after a version of the
+	 * index, or isn't in the index at all.
+	 * @param e The event.
+	 * @param version The version, from getVersion().
+	 * @return True if the event is newer than the version.
+	 */
+	public synchronized boolean isChangedSince(Event e, long version){
+		Integer i = m_numbers.get(e);
+		return i == null || m_changed[i] > version;
+	}
+
+	/**
+	 * Gets the events of the categories matching a name.
+	 * @param name The name, ignoring case and spaces.
+	 * @param prefix True to match the categories starting with the name,
+	 * false to match the category with the name only.
+	 * @return The numbers of the events, a new bitmap.
+	 */
+	public synchronized BitSet getCategories(String name, boolean prefix){
+		String key = toKey(name);
+		BitSet found = new BitSet(m_nextNumber);
+		for (Map.Entry<String, BitSet> c : m_categories.entrySet())
+			if (prefix ? c.getKey().startsWith(key) : c.getKey().equals(key))
+				found.or(c.getValue());
+		return found;
+	}
+
+	/**
+	 * Gets the events of the repetitions matching a name.
+	 * @param name The name, as in Event.REPEATS, ignoring case.
+	 * @param prefix True to match the repetitions starting with the name,
+	 * false to match the repetition with the name only.
+	 * @return The numbers of the events, a new bitmap.
+	 */
+	public synchronized BitSet getRepetitions(String name, boolean prefix){
+		String key = toKey(name);
+		BitSet found = new BitSet(m_nextNumber);
+		for (Repetition r : Repetition.values()){
+			String rep = toKey(r.getName());
+			if (prefix ? rep.startsWith(key) : rep.equals(key))
+				found.or(m_repetitions[r.ordinal()]);
+		}
+		return found;
+	}
+
+	/**
+	 * Counts the events starting within a range, without collecting them.
+	 * The count may take in a few events removed since the start order
+	 * was last merged, so it is only exact right after a merge.
+	 * @param from The key of the start of the range, included.
+	 * @param to The key of the end of the range, excluded.
+	 * @return The number of events, or a little more.
+	 * @see EventIntervalIndex.toKey()
+	 */
+	public synchronized int countStarting(long from, long to){
+		mergeIfNeeded();
+		int count = Math.max(0, lowerBound(to) - lowerBound(from));
+		for (int i : m_pending)
+			if (startsWithin(i, from, to))
+				count++;
+		return count;
+	}
+
+	/**
+	 * Gets the events starting within a range.
+	 * @param from The key of the start of the range, included.
+	 * @param to The key of the end of the range, excluded.
+	 * @return The numbers of the events, a new bitmap.
+	 */
+	public synchronized BitSet getStarting(long from, long to){
+		mergeIfNeeded();
+		BitSet found = new BitSet(m_nextNumber);
+		for (int k = lowerBound(from), last = lowerBound(to); k < last; k++)
+			if (isSorted(k))
+				found.set(m_startOrder[k]);
+		for (int i : m_pending)
+			if (startsWithin(i, from, to))
+				found.set(i);
+		return found;
+	}
+
+	/**
+	 * Tells if an event starts within a range.
+	 * @param i The number of the event.
+	 * @param from The key of the start of the range, included.
+	 * @param to The key of the end of the range, excluded.
+	 * @return True if it does, false if not or if it has no start.
+	 */
+	public synchronized boolean startsWithin(int i, long from, long to){
+		return m_started.get(i) && m_starts[i] >= from && m_starts[i] < to;
+	}
+
+	/**
+	 * Indexes an event under a number.
+	 * @param e The event.
+	 * @param i The number, which is free.
+	 */
+	private void put(Event e, int i){
+		m_events[i] = e;
+		m_numbers.put(e, i);
+		m_live.set(i);
+		m_changed[i] = ++m_version;
+		String category = toKey(e.getCategory());
+		m_categoryOf[i] = category;
+		BitSet inCategory = m_categories.get(category);
+		if (inCategory == null){
+			inCategory = new BitSet();
+			m_categories.put(category, inCategory);
+		}
+		inCategory.set(i);
+		if (e.getRepetitionKind() != null)
+			m_repetitions[e.getRepetitionKind().ordinal()].set(i);
+		if (e.getStartingDateTime() != null){
+			m_starts[i] = EventIntervalIndex.toKey(e.getStartingDateTime());
+			m_started.set(i);
+			m_pending.add(i);
+		}
+	}
+
+	/**
+	 * Takes the event with a number out of the index, leaving its number
+	 * unused.
+	 * @param i The number.
+	 */
+	private void take(int i){
+		m_numbers.remove(m_events[i]);
+		m_events[i] = null;
+		m_live.clear(i);
+		//The bitmaps it was put in, as it may have been changed since.
+		BitSet inCategory = m_categories.get(m_categoryOf[i]);
+		inCategory.clear(i);
+		if (inCategory.isEmpty())
+			m_categories.remove(m_categoryOf[i]);
+		m_categoryOf[i] = null;
+		for (BitSet repeating : m_repetitions)
+			repeating.clear(i);
+		//Left in the start order until the next merge, which skips it.
+		if (m_started.get(i))
+			m_stale++;
+		m_started.clear(i);
+	}
+
+	/**
+	 * Makes room for more numbers.
+	 */
+	private void grow(){
+		int size = m_events.length * 2;
+		Event[] events = new Event[size];
+		System.arraycopy(m_events, 0, events, 0, m_events.length);
+		m_events = events;
+		String[] categories = new String[size];
+		System.arraycopy(m_categoryOf, 0, categories, 0, m_categoryOf.length);
+		m_categoryOf = categories;
+		long[] starts = new long[size];
+		System.arraycopy(m_starts, 0, starts, 0, m_starts.length);
+		m_starts = starts;
+		long[] changed = new long[size];
+		System.arraycopy(m_changed, 0, changed, 0, m_changed.length);
+		m_changed = changed;
+	}
+
+	/**
+	 * Numbers the events again from 0, in list order, dropping the unused
+	 * numbers. When each event was last changed is kept.
+	 */
+	private void renumber(){
+		Event[] events = m_events;
+		long[] changed = m_changed;
+		int count = m_nextNumber;
+		long version = m_version;
+		clear();
+		for (int i = 0; i < count; i++)
+			if (events[i] != null){
+				added(events[i]);
+				m_changed[m_nextNumber - 1] = changed[i];
+			}
+		m_version = version;
+		merge();
+	}
+
+	/**
+	 * Tells if an entry of the start order is still right: its number
+	 * belongs to an event starting when the entry says.
+	 * @param k The place of the entry in the start order.
+	 * @return True if it is.
+	 */
+	private boolean isSorted(int k){
+		int i = m_startOrder[k];
+		return m_started.get(i) && m_starts[i] == m_sortedStarts[k];
+	}
+
+	/**
+	 * Merges the events put aside into the start order, and drops the
+	 * entries which are no longer right, if there are too many of them to
+	 * look through.
+	 */
+	private void mergeIfNeeded(){
+		int allowed = Math.max(MAX_PENDING,
+				m_startOrder.length / PENDING_RATIO);
+		if (m_pending.size() + m_stale > allowed)
+			merge();
+	}
+
+	/**
+	 * Merges the events put aside into the start order.
+	 */
+	private void merge(){
+		//An event put aside twice, or which is in the start order already
+		//under the same start, is only kept once.
+		BitSet pendingSet = new BitSet(m_nextNumber);
+		for (Iterator<Integer> it = m_pending.iterator(); it.hasNext(); ){
+			int i = it.next();
+			if (!m_started.get(i) || pendingSet.get(i))
+				it.remove();
+			else
+				pendingSet.set(i);
+		}
+		Collections.sort(m_pending, new Comparator<Integer>(){
+			public int compare(Integer a, Integer b){
+				return Long.compare(m_starts[a], m_starts[b]);
+			}
+		});
+		int n = 0;
+		int[] order = new int[m_startOrder.length + m_pending.size()];
+		long[] sorted = new long[order.length];
+		int k = 0, p = 0;
+		while (k < m_startOrder.length || p < m_pending.size()){
+			if (k < m_startOrder.length && (!isSorted(k)
+					|| pendingSet.get(m_startOrder[k]))){
+				k++;
+			} else if (p == m_pending.size() || (k < m_startOrder.length
+					&& m_sortedStarts[k] <= m_starts[m_pending.get(p)])){
+				order[n] = m_startOrder[k];
+				sorted[n++] = m_sortedStarts[k++];
+			} else {
+				int i = m_pending.get(p++);
+				order[n] = i;
+				sorted[n++] = m_starts[i];
+			}
+		}
+		m_startOrder = new int[n];
+		m_sortedStarts = new long[n];
+		System.arraycopy(order, 0, m_startOrder, 0, n);
+		System.arraycopy(sorted, 0, m_sortedStarts, 0, n);
+		m_pending.clear();
+		m_stale = 0;
+	}
+
+	/**
+	 * Finds the first event in start order starting at or after a time.
+	 * @param key The key of the time.
+	 * @return Its place in start order, or the number of entries in the
+	 * start order if none does.
+	 */
+	private int lowerBound(long key){
+		int lo = 0, hi = m_sortedStarts.length;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if (m_sortedStarts[mid] < key)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Gets the key a category or repetition is looked up by.
+	 * @param name The name.
+	 * @return The name in lower case, without spaces.
+	 */
+	static String toKey(String name){
+		if (name == null)
+			return "";
+		return name.replace(" ", "").toLowerCase();
+	}
+
+	/** The room for numbers made at first. */
+	private static final int INITIAL_CAPACITY = 16;
+	/** The least number of events put aside or removed before a merge. */
+	private static final int MAX_PENDING = 256;
+	/** Merges once more than this fraction of the start order is aside. */
+	private static final int PENDING_RATIO = 64;
+	/** The events, by number; null for an unused number. */
+	private Event[] m_events;
+	/** The number of each event. */
+	private Map<Event, Integer> m_numbers =
+			new IdentityHashMap<Event, Integer>();
+	/** The numbers of the events. */
+	private BitSet m_live;
+	/** The number the next event added at the end of the list gets. */
+	private int m_nextNumber;
+	/** The number of events. */
+	private int m_size;
+	/** The number of changes made to the index. */
+	private long m_version = 0;
+	/** The version each event was added or replaced at, by number. */
+	private long[] m_changed;
+	/** The events of each category, by its key. */
+	private Map<String, BitSet> m_categories = new HashMap<String, BitSet>();
+	/** The key of the category of each event, by number. */
+	private String[] m_categoryOf;
+	/** The events of each repetition, by its ordinal. */
+	private BitSet[] m_repetitions;
+	/** The numbers of the events with a start. */
+	private BitSet m_started;
+	/** The key of the start of each event, by number. */
+	private long[] m_starts;
+	/** Numbers of the events with a start, sorted by start when merged. */
+	private int[] m_startOrder;
+	/** The keys of the starts, in start order, as they were when merged. */
+	private long[] m_sortedStarts;
+	/** The numbers of the events put aside since the last merge. */
+	private List<Integer> m_pending = new ArrayList<Integer>();
+	/** The number of events taken out since the last merge. */
+	private int m_stale;
+}
@@ -0,0 +1,529 @@
+/**
+ * @file EventIntervalIndex.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the EventIntervalIndex class.
+ */
+
+/**
+ * @package events
+ * @brief Everything about calendar events, except icon resources.
+ */
+package events;
+
+import hirondelle.date4j.DateTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * @brief An interval index over the one-off events of an event list.
+ *
+ * The one-off events (repetition "No", with a starting date) are kept in an
+ * array sorted by their start, with a second array holding the greatest end
+ * of every sub-range, laid out as an implicit binary tree.<br/>
+ * A query finds where the range ends with a binary search, then walks down
+ * only the parts of the tree that hold an event ending after the range
+ * starts. Each query costs O(log N + k) for k events found, instead of
+ * checking every event in the list.<br/>
+ * An event without an ending date, or ending before it starts, is treated
+ * as an instant at its start, which overlaps the ranges it lies in.<br/>
+ * The event list tells the index about every change. An event added is put
+ * aside with the others added since the array was sorted. An event
+ * removed from the array is only marked as such, and one removed from
+ * those put aside, or from the repeating ones, takes the place of the
+ * last of them, so a change costs O(1). The events put
+ * aside are looked through one by one; once there are too many of them or
+ * of the removed ones, the next query merges them into the array, in
+ * O(N) as the array is sorted already. Adding a whole file in a batch
+ * therefore sorts once, when the events are first asked for.<br/>
+ * The repeating events are kept aside as they can occur on any date after
+ * their start.<br/>
+ * Results are returned in the order the events have in the list. The
+ * list only adds events at its end, so each event is numbered in the order
+ * it was added, and an event replacing another takes over its number.<br/>
+ * The event list calls every method that changes the index while holding
+ * its lock; the index only guards itself.
+ * @author agent
+ */
+public class EventIntervalIndex {
+
+	/**
+	 * Creates an empty index.
+	 */
+	public EventIntervalIndex(){
+	}
+
+	/**
+	 * Builds the index of some events.
+	 * @param events The events of the list, in list order.
+	 */
+	public EventIntervalIndex(Event[] events){
+		for (Event e : events)
+			added(e);
+	}
+
+	/**
+	 * Adds an event which was added at the end of the list.
+	 * @param e The event.
+	 */
+	public synchronized void added(Event e){
+		add(e, m_nextOrder++);
+	}
+
+	/**
+	 * Removes an event which was removed from the list.
+	 * @param e The event.
+	 */
+	public synchronized void removed(Event e){
+		remove(e);
+	}
+
+	/**
+	 * Replaces an event which was replaced in the list. The new event may
+	 * be the old one, changed.
+	 * @param old The event replaced.
+	 * @param e The event which took its place.
+	 */
+	public synchronized void replaced(Event old, Event e){
+		Entry entry = remove(old);
+		add(e, entry != null ? entry.m_order : m_nextOrder++);
+	}
+
+	/**
+	 * Forgets every event, after the list was cleared.
+	 */
+	public synchronized void clear(){
+		m_live.clear();
+		m_pending.clear();
+		m_repeating.clear();
+		m_entries = new Entry[0];
+		m_starts = new long[0];
+		m_leaves = 1;
+		m_maxEnd = new long[]{Long.MIN_VALUE, Long.MIN_VALUE};
+		m_removed = 0;
+		m_nextOrder = 0;
+	}
+
+	/**
+	 * Gets the one-off events which overlap a range.<br/>
+	 * An event overlaps if it starts before the range ends and ends after
+	 * the range starts. An instant overlaps if it lies inside the range.
+	 * @param from The start of the range, included.
+	 * @param to The end of the range, excluded.
+	 * @return The events, in list order.
+	 */
+	public synchronized List<Event> getOverlapping(DateTime from, DateTime to){
+		long f = toKey(from);
+		long t = toKey(to);
+		List<Entry> found = new ArrayList<Entry>();
+		if (f >= t)
+			return toEvents(found);
+		mergeIfNeeded();
+		collect(1, 0, m_leaves, lowerBound(t), f, found);
+		for (Entry e : m_pending)
+			if (e.m_start < t && e.m_end > f)
+				found.add(e);
+		return toEvents(found);
+	}
+
+	/**
+	 * Gets the one-off events which start within a range.
+	 * @param from The start of the range, included.
+	 * @param to The end of the range, excluded.
+	 * @return The events, in list order.
+	 */
+	public synchronized List<Event> getStarting(DateTime from, DateTime to){
+		List<Entry> found = new ArrayList<Entry>();
+		addStarting(toKey(from), toKey(to), found);
+		return toEvents(found);
+	}
+
+	/**
+	 * Gets the repeating events, which are not in the interval index.
+	 * @return The events, in list order.
+	 */
+	public synchronized List<Event> getRepeating(){
+		return toEvents(new ArrayList<Entry>(m_repeating));
+	}
+
+	/**
+	 * Gets the one-off events which start within a range, together with
+	 * all the repeating events; that is every event which can occur in
+	 * the range.
+	 * @param from The start of the range, included.
+	 * @param to The end of the range, excluded.
+	 * @return The events, in list order.
+	 */
+	public synchronized List<Event> getStartingOrRepeating(DateTime from,
+			DateTime to){
+		List<Entry> found = new ArrayList<Entry>(m_repeating);
+		addStarting(toKey(from), toKey(to), found);
+		return toEvents(found);
+	}
+
+	/**
+	 * Gets the number of one-off events in the index.
+	 * @return The number of events.
+	 */
+	public synchronized int getSize(){
+		return m_entries.length - m_removed + m_pending.size();
+	}
+
+	/**
+	 * Indexes an event.
+	 * @param e The event.
+	 * @param order The number giving its place in the list.
+	 */
+	private void add(Event e, int order){
+		remove(e);
+		Entry entry;
+		if (e.getStartingDateTime() == null){
+			entry = new Entry(e, order, 0, 0, UNINDEXED);
+		} else if (e.getRepetitionKind() != Repetition.NO){
+			entry = new Entry(e, order, 0, 0, REPEATING);
+			addTo(m_repeating, entry);
+		} else {
+			long start = toKey(e.getStartingDateTime());
+			//An instant lasts one millisecond, so it overlaps the range
+			//it lies in.
+			long end = start + 1;
+			if (e.getEndingDateTime() != null)
+				end = Math.max(end, toKey(e.getEndingDateTime()));
+			entry = new Entry(e, order, start, end, PENDING);
+			addTo(m_pending, entry);
+		}
+		m_live.put(e, entry);
+	}
+
+	/**
+	 * Takes an event out of the index.
+	 * @param e The event.
+	 * @return Its entry, or null if it wasn't indexed.
+	 */
+	private Entry remove(Event e){
+		//Where it was put when added, as it may have been changed since.
+		Entry entry = m_live.remove(e);
+		if (entry == null)
+			return null;
+		if (entry.m_where == REPEATING){
+			removeFrom(m_repeating, entry);
+		} else if (entry.m_where == PENDING){
+			removeFrom(m_pending, entry);
+		} else if (entry.m_where == SORTED){
+			//Left in the array until the next merge.
+			entry.m_where = REMOVED;
+			m_removed++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Puts an entry at the end of a list of entries, noting its slot.
+	 * @param list The list.
+	 * @param entry The entry.
+	 */
+	private static void addTo(List<Entry> list, Entry entry){
+		entry.m_slot = list.size();
+		list.add(entry);
+	}
+
+	/**
+	 * Takes an entry out of a list of entries, moving the last entry into
+	 * its slot rather than shifting every entry after it.
+	 * @param list The list.
+	 * @param entry The entry.
+	 */
+	private static void removeFrom(List<Entry> list, Entry entry){
+		Entry last = list.remove(list.size() - 1);
+		if (last != entry){
+			list.set(entry.m_slot, last);
+			last.m_slot = entry.m_slot;
+		}
+	}
+
+	/**
+	 * Adds the one-off events starting within a range to a list.
+	 * @param f The key of the start of the range, included.
+	 * @param t The key of the end of the range, excluded.
+	 * @param found The list.
+	 */
+	private void addStarting(long f, long t, List<Entry> found){
+		mergeIfNeeded();
+		for (int i = lowerBound(f), last = lowerBound(t); i < last; i++)
+			if (m_entries[i].m_where == SORTED)
+				found.add(m_entries[i]);
+		for (Entry e : m_pending)
+			if (e.m_start >= f && e.m_start < t)
+				found.add(e);
+	}
+
+	/**
+	 * Merges the events put aside into the sorted array, and drops the
+	 * removed ones, if there are too many of them to look through.
+	 */
+	private void mergeIfNeeded(){
+		int allowed = Math.max(MAX_PENDING, m_entries.length / PENDING_RATIO);
+		if (m_pending.size() + m_removed <= allowed)
+			return;
+		Collections.sort(m_pending, START_ORDER);
+		Entry[] merged = new Entry[getSize()];
+		int i = 0, p = 0, n = 0;
+		while (i < m_entries.length || p < m_pending.size()){
+			if (i < m_entries.length && m_entries[i].m_where == REMOVED){
+				i++;
+			} else if (p == m_pending.size() || (i < m_entries.length
+					&& m_entries[i].m_start <= m_pending.get(p).m_start)){
+				merged[n++] = m_entries[i++];
+			} else {
+				Entry e = m_pending.get(p++);
+				e.m_where = SORTED;
+				merged[n++] = e;
+			}
+		}
+		m_pending.clear();
+		m_removed = 0;
+		m_entries = merged;
+		m_starts = new long[m_entries.length];
+		for (i = 0; i < m_entries.length; i++)
+			m_starts[i] = m_entries[i].m_start;
+
+		//The tree has a leaf for every entry; leaves beyond the last
+		//entry can never be visited.
+		m_leaves = 1;
+		while (m_leaves < m_entries.length)
+			m_leaves *= 2;
+		m_maxEnd = new long[2 * m_leaves];
+		Arrays.fill(m_maxEnd, Long.MIN_VALUE);
+		for (i = 0; i < m_entries.length; i++)
+			m_maxEnd[m_leaves + i] = m_entries[i].m_end;
+		for (i = m_leaves - 1; i >= 1; i--)
+			m_maxEnd[i] = Math.max(m_maxEnd[2 * i], m_maxEnd[2 * i + 1]);
+	}
+
+	/**
+	 * Collects the entries under a node of the tree which start before
+	 * a limit and end after a given time.
+	 * @param node The node of the tree.
+	 * @param lo The first entry under the node.
+	 * @param hi The entry after the last one under the node.
+	 * @param limit The entries from this one on start too late.
+	 * @param after The time the entries must end after.
+	 * @param found The list the entries are added to.
+	 */
+	private void collect(int node, int lo, int hi, int limit, long after,
+			List<Entry> found){
+		//Nothing under the node starts early enough or ends late enough.
+		if (lo >= limit || m_maxEnd[node] <= after)
+			return;
+		if (hi - lo == 1){
+			if (m_entries[lo].m_where == SORTED)
+				found.add(m_entries[lo]);
+			return;
+		}
+		int mid = (lo + hi) / 2;
+		collect(2 * node, lo, mid, limit, after, found);
+		collect(2 * node + 1, mid, hi, limit, after, found);
+	}
+
+	/**
+	 * Finds the first entry starting at or after a time.
+	 * @param key The time.
+	 * @return The index of the entry, or the number of entries if none does.
+	 */
+	private int lowerBound(long key){
+		int lo = 0, hi = m_starts.length;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if (m_starts[mid] < key)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Puts the entries found back in list order.
+	 * @param found The entries.
+	 * @return Their events.
+	 */
+	private static List<Event> toEvents(List<Entry> found){
+		Collections.sort(found, LIST_ORDER);
+		List<Event> events = new ArrayList<Event>(found.size());
+		for (Entry e : found)
+			events.add(e.m_event);
+		return events;
+	}
+
+	/**
+	 * Converts a date & time to the key it is indexed by.<br/>
+	 * The wall clock time is read as UTC, so every date & time maps to a
+	 * key whatever the daylight saving rules.
+	 * @param d The date & time.
+	 * @return The key.
+	 */
+	public static long toKey(DateTime d){
+		return d.getMilliseconds(UTC);
+	}
+
+	/**
+	 * @brief An event with its place in the list and its keys.
+	 */
+	private static class Entry {
+		/**
+		 * Creates an entry.
+		 * @param e The event.
+		 * @param order The number giving the place of the event in the list.
+		 * @param start The key of the start.
+		 * @param end The key of the end.
+		 * @param where Where the entry is kept.
+		 */
+		Entry(Event e, int order, long start, long end, int where){
+			m_event = e;
+			m_order = order;
+			m_start = start;
+			m_end = end;
+			m_where = where;
+		}
+		/** The event. */
+		private Event m_event;
+		/** The number giving the place of the event in the list. */
+		private int m_order;
+		/** The key of the start. */
+		private long m_start;
+		/** The key of the end. */
+		private long m_end;
+		/** Where the entry is kept, one of UNINDEXED to REMOVED. */
+		private int m_where;
+		/** Its index in m_pending or m_repeating, when it is in one. */
+		private int m_slot;
+	}
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
+	public static void main(String[] args){
+		Event a = new Event("2012-04-08 10:00:00.000001", "A", "Other",
+				new DateTime("2012-04-08 10:00:00"),
+				new DateTime("2012-04-10 12:00:00"), "", "No", "", "");
+		Event b = new Event("2012-04-08 10:00:00.000002", "B", "Other",
+				new DateTime("2012-04-09 09:00:00"), null, "", "No", "", "");
+		Event c = new Event("2012-04-08 10:00:00.000003", "C", "Other",
+				new DateTime("2012-04-01 09:00:00"),
+				new DateTime("2012-04-01 10:00:00"), "", "Weekly", "", "");
+		EventIntervalIndex index = new EventIntervalIndex(
+				new Event[]{b, a, c});
+
+		/** @test getOverlapping() A range inside a long event. */
+		System.out.print("test1----------------------");
+		List<Event> found = index.getOverlapping(
+				new DateTime("2012-04-10 00:00:00"),
+				new DateTime("2012-04-11 00:00:00"));
+		System.out.println(found.size() == 1 && found.get(0) == a
+				? "Passed" : "Failed");
+
+		/** @test getOverlapping() An instant at the start of the range. */
+		System.out.print("test2----------------------");
+		found = index.getOverlapping(new DateTime("2012-04-09 09:00:00"),
+				new DateTime("2012-04-09 10:00:00"));
+		System.out.println(found.size() == 2 && found.get(0) == b
+				? "Passed" : "Failed");
+
+		/** @test getStarting() Only events starting in the range. */
+		System.out.print("test3----------------------");
+		found = index.getStarting(new DateTime("2012-04-09 00:00:00"),
+				new DateTime("2012-04-10 00:00:00"));
+		System.out.println(found.size() == 1 && found.get(0) == b
+				? "Passed" : "Failed");
+
+		/** @test getRepeating() Repeating events are kept aside. */
+		System.out.print("test4----------------------");
+		System.out.println(index.getRepeating().size() == 1
+				&& index.getSize() == 2 ? "Passed" : "Failed");
+
+		/** @test replaced(), removed() A changed event keeps its place. */
+		System.out.print("test5----------------------");
+		Event d = new Event("2012-04-08 10:00:00.000004", "D", "Other",
+				new DateTime("2012-04-09 08:00:00"), null, "", "No", "", "");
+		index.replaced(b, d);
+		index.removed(a);
+		index.added(b);
+		found = index.getStarting(new DateTime("2012-04-09 00:00:00"),
+				new DateTime("2012-04-10 00:00:00"));
+		System.out.println(found.size() == 2 && found.get(0) == d
+				&& found.get(1) == b && index.getSize() == 2
+				? "Passed" : "Failed");
+
+		/** @test added() Events put aside are merged in, in order. */
+		System.out.print("test6----------------------");
+		for (int i = 0; i < 2 * MAX_PENDING; i++)
+			index.added(new Event("2012-04-08 11:00:00." + (1000000 + i),
+					"E", "Other", new DateTime("2012-04-01 00:00:00")
+					.plusDays(i % 28), null, "", "No", "", ""));
+		index.removed(d);
+		found = index.getOverlapping(new DateTime("2012-04-01 00:00:00"),
+				new DateTime("2012-05-01 00:00:00"));
+		System.out.println(found.size() == 2 * MAX_PENDING + 1
+				&& found.get(0) == b && index.getSize() == found.size()
+				&& index.getStarting(new DateTime("2012-04-09 00:00:00"),
+						new DateTime("2012-04-10 00:00:00")).size() == 19
+				? "Passed" : "Failed");
+	}
+
+	/** Orders the entries by their start. */
+	private static final Comparator<Entry> START_ORDER =
+			new Comparator<Entry>(){
+		public int compare(Entry a, Entry b){
+			return a.m_start < b.m_start ? -1 : a.m_start > b.m_start ? 1 : 0;
+		}
+	};
+	/** Orders the entries by their place in the list. */
+	private static final Comparator<Entry> LIST_ORDER =
+			new Comparator<Entry>(){
+		public int compare(Entry a, Entry b){
+			return a.m_order - b.m_order;
+		}
+	};
+	/** The time zone the keys are counted in. */
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+	/** The least number of events put aside or removed before a merge. */
+	private static final int MAX_PENDING = 256;
+	/** Merges once more than this fraction of the array is put aside. */
+	private static final int PENDING_RATIO = 64;
+	/** An event without a start, which is in no query's results. */
+	private static final int UNINDEXED = 0;
+	/** A repeating event, kept in m_repeating. */
+	private static final int REPEATING = 1;
+	/** A one-off event put aside in m_pending. */
+	private static final int PENDING = 2;
+	/** A one-off event in the sorted array. */
+	private static final int SORTED = 3;
+	/** An event removed, left in the sorted array until the next merge. */
+	private static final int REMOVED = 4;
+	/** The entry of every event, by the event. */
+	private Map<Event, Entry> m_live = new IdentityHashMap<Event, Entry>();
+	/** The one-off events, sorted by start, some of them removed. */
+	private Entry[] m_entries = new Entry[0];
+	/** The start keys of the entries, for binary searches. */
+	private long[] m_starts = new long[0];
+	/** The number of leaves of the tree. */
+	private int m_leaves = 1;
+	/** The greatest end under every node of the tree; node 1 is the root. */
+	private long[] m_maxEnd = {Long.MIN_VALUE, Long.MIN_VALUE};
+	/** The number of removed entries in the sorted array. */
+	private int m_removed = 0;
+	/** The one-off events added since the last merge, unsorted. */
+	private List<Entry> m_pending = new ArrayList<Entry>();
+	/** The repeating events. */
+	private List<Entry> m_repeating = new ArrayList<Entry>();
+	/** The number the next event added at the end of the list gets. */
+	private int m_nextOrder = 0;
+}
@@ -18,14 +18,17 @@ import java.awt.EventQueue;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
-import javax.swing.DefaultListModel;
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JList;
-import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
@@ -38,11 +41,16 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.table.TableColumn;
 
+import common.TextIndex;
+import common.TextIndexMatcherEditor;
 import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.FilterList;
+import ca.odell.glazedlists.FunctionList;
 import ca.odell.glazedlists.TextFilterator;
+import ca.odell.glazedlists.matchers.Matcher;
+import ca.odell.glazedlists.swing.DefaultEventListModel;
 import ca.odell.glazedlists.swing.DefaultEventTableModel;
-import ca.odell.glazedlists.swing.TextComponentMatcherEditor;
+import ca.odell.glazedlists.swing.GlazedListsSwing;
 
 import com.jgoodies.forms.factories.FormFactory;
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -139,6 +147,23 @@ public class EventList{
     		
     }
 	
+	/**
+	 * Gets the soft limit of the list size.
+	 * @return The number of events after which a warning is given.
+	 */
+	public int getSoftLimit(){return m_softLimit;}
+	/**
+	 * Sets the soft limit of the list size.
+	 * @param limit The number of events after which a warning is given.
+	 * @return True on success, false if the limit was not positive.
+	 */
+	public boolean setSoftLimit(int limit){
+		if (limit <= 0)
+			return false;
+		m_softLimit = limit;
+		return true;
+	}
+	
 	/**
 	 * Get the debug switch.
 	 * @return The switch status.
@@ -166,6 +191,158 @@ public class EventList{
 	 * @return The array list of events.
 	 */
 	private BasicEventList<Event> getEventList(){return m_eventList;}
+	/**
+	 * Gets the ID to event index.<br/>
+	 * Must only be changed while holding the list's write lock.
+	 * @return The index.
+	 */
+	private Map<String, Event> getEventIndex(){return m_eventIndex;}
+	
+	/**
+	 * Adds an event to the end of the list and to the ID index.<br/>
+	 * The caller is expected to hold the list's write lock.
+	 * @param e The event to be stored.
+	 */
+	private void storeEvent(Event e){
+		//Indexed first, so the search table finds it when it is added.
+		m_textIndex.added(e);
+		m_positions.put(e, getEventList().size());
+		getEventList().add(e);
+		getEventIndex().put(e.getID(), e);
+		m_intervalIndex.added(e);
+		m_fieldIndex.added(e);
+		m_occurrences.added(e);
+	}
+	
+	/**
+	 * Gets the position of a stored event in the list.<br/>
+	 * A removal moves every event after it, so it only notes the first 
+	 * position it moved; the positions from there on are numbered again 
+	 * here, once, when one of them is next needed.<br/>
+	 * The caller is expected to hold the list's lock.
+	 * @param e The event.
+	 * @return The index or -1 if it isn't stored.
+	 */
+	private int positionOf(Event e){
+		//Callers may only hold the read lock, so two could renumber at once.
+		synchronized (m_positions){
+			for (int i = m_positionsStaleFrom; i < getEventList().size(); i++)
+				m_positions.put(getEventList().get(i), i);
+			m_positionsStaleFrom = Integer.MAX_VALUE;
+			Integer i = m_positions.get(e);
+			return i == null ? -1 : i;
+		}
+	}
+	
+	/**
+	 * Gets the interval index of the list, which is kept up to date as the 
+	 * list changes.
+	 * @return The index.
+	 */
+	public EventIntervalIndex getIntervalIndex(){return m_intervalIndex;}
+	
+	/**
+	 * Gets the field index of the list, which is kept up to date as the 
+	 * list changes.
+	 * @return The index.
+	 */
+	public EventFieldIndex getFieldIndex(){return m_fieldIndex;}
+	
+	/**
+	 * Finds the events matching a search such as 
+	 * <tt>category:Meeting start>=2026-01-01 location:"Faraday"</tt>.<br/>
+	 * Uses the field index, so only the events left by the category, 
+	 * repetition and start clauses are looked at.
+	 * @param text The search.
+	 * @return The events in list order, none if the search is invalid.
+	 * @see EventQuery
+	 */
+	public List<Event> query(String text){
+		EventQuery q = new EventQuery(text);
+		if (!q.isValid()){
+			if (getDebugStatus())
+				System.err.println("EL: query(): " + q.getError());
+			return new ArrayList<Event>();
+		}
+		return q.run(getFieldIndex(), m_textIndex);
+	}
+	
+	/**
+	 * Gets the one-off events overlapping a range of dates & times.<br/>
+	 * Uses the interval index, so only the events found are looked at.
+	 * @param from The start of the range, included.
+	 * @param to The end of the range, excluded.
+	 * @return The events, in list order.
+	 */
+	public List<Event> getEventsBetween(DateTime from, DateTime to){
+		return getIntervalIndex().getOverlapping(from, to);
+	}
+	
+	/**
+	 * Gets the events occurring on a day.<br/>
+	 * The answer is cached, and the cache is kept up to date as the list 
+	 * changes, so asking again for a day costs nothing.
+	 * @param d The day; the time of day is ignored.
+	 * @return The events in list order, which can't be changed. Empty if 
+	 * the date is invalid.
+	 */
+	public List<Event> getOccurrences(DateTime d){
+		if (d == null || !d.hasYearMonthDay())
+			return Collections.emptyList();
+		return getOccurrences(Recurrence.toEpochDay(d));
+	}
+	
+	/**
+	 * Gets the events occurring on a day.
+	 * @param day The number of the day, counted as in Recurrence.
+	 * @return The events in list order, which can't be changed.
+	 * @see getOccurrences(DateTime)
+	 */
+	public List<Event> getOccurrences(int day){
+		List<Event> found = m_occurrences.get(day);
+		if (found != null)
+			return found;
+		getEventList().getReadWriteLock().readLock().lock();
+		try{
+			//Worked out under the read lock so no change can be missed.
+			found = new ArrayList<Event>();
+			DateTime d = Recurrence.toDateTime(day);
+			//Only the day's one-off events and the repeating events can 
+			//occur on the day.
+			for (Event e : getIntervalIndex()
+					.getStartingOrRepeating(d, d.plusDays(1)))
+				if (Recurrence.occursOn(e, d))
+					found.add(e);
+			return m_occurrences.put(day, found);
+		} finally {
+			getEventList().getReadWriteLock().readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Counts the events occurring on each day of a range.<br/>
+	 * Only the one-off events starting in the range are looked at, and the
+	 * days of each repeating event are worked out with sums, so no dates 
+	 * are created however often the events repeat.
+	 * @param from The number of the first day, counted as in Recurrence.
+	 * @param to The number of the day after the last day.
+	 * @return The number of events of each day, the first day first.
+	 */
+	public int[] countOccurrences(int from, int to){
+		int[] counts = new int[Math.max(0, to - from)];
+		if (from >= to)
+			return counts;
+		EventIntervalIndex index = getIntervalIndex();
+		for (Event e : index.getStarting(Recurrence.toDateTime(from), 
+				Recurrence.toDateTime(to)))
+			counts[Recurrence.toEpochDay(e.getStartingDateTime()) - from]++;
+		for (Event e : index.getRepeating()){
+			Recurrence.Occurrences days = Recurrence.occurrences(e, from, to);
+			while (days.hasNext())
+				counts[days.nextEpochDay() - from]++;
+		}
+		return counts;
+	}
 	
 	/**
 	 * Default constructor; populates the JList with events.
@@ -226,30 +403,34 @@ public class EventList{
 	
 	
 	/**
-	 * Populates the list with contact names.
+	 * Backs the JList with the titles of the events.<br/>
+	 * The JList's model follows the list through a proxy on the Swing 
+	 * thread, so an add, edit or remove changes just its row, on the 
+	 * Swing thread, instead of every title being copied again.
 	 * @return True on success, false on failure.
 	 */
 	private boolean populateList (){
-		final DefaultListModel dlm = new DefaultListModel();
-		EventQueue.invokeLater(new Runnable() {
-			@Override
-			public void run() {
-				getEventJList().setModel(dlm);
-			}
-		});
-		if (this.getSize()<=0){
-			//dlm.addElement("NO CONTACTS AVAILABLE");
-			return false;
+		final ca.odell.glazedlists.EventList<String> shown;
+		getEventList().getReadWriteLock().readLock().lock();
+		try{
+			shown = GlazedListsSwing.swingThreadProxyList(
+					new FunctionList<Event, String>(getEventList(), 
+							new FunctionList.Function<Event, String>(){
+				@Override
+				public String evaluate(Event e){
+					return e.getTitle();
+				}
+			}));
+		} finally {
+			getEventList().getReadWriteLock().readLock().unlock();
 		}
-		
-		for(int i=0; i< this.getSize();i++)
-			dlm.addElement( this.getEvent(i).getTitle());
-		//getContactList().setSelectedIndex(0);
 		EventQueue.invokeLater(new Runnable() {
 			@Override
 			public void run() {
-				getEventJList()
-				.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+				getEventJList().setModel(
+						new DefaultEventListModel<String>(shown));
+				getEventJList().setSelectionMode
+					(ListSelectionModel.SINGLE_SELECTION);
 			}
 		});
 		return true;
@@ -258,16 +439,16 @@ public class EventList{
 
 
 	/**
-	 * Refreshes the list.
-	 * @return True on success, false on failure.
+	 * Refreshes the list.<br/>
+	 * The JList follows the changes by itself, see populateList().
+	 * @return True if there are events to show, false otherwise.
 	 */
 	public boolean update(){
-		if (populateList()){
-			//System.out.println("Event JList updated.");
+		if (isInBatch()){
+			m_batchRefresh = true;
 			return true;
 		}
-		//System.out.println("Event JList didn't update.");
-		return false;
+		return getSize() > 0;
 	}
 
 	/**
@@ -276,74 +457,162 @@ public class EventList{
 	 * @return True on success, false on failure.
 	 */
 	public boolean addEvent(Event e){
-		if (!SystemDate.validateTimeStamp(e.getID())){
-			if(getDebugStatus())
-				System.err.println("EL: addEvent(Event): "+
-						"  Invalid ID format. Event not added.");
+		if (!insertEvent(e))
 			return false;
+		if (!isInBatch())
+			checkSoftLimit();
+		update();
+		if(getDebugStatus())
+			System.out.println("EL: addEvent(): Added an event: " +
+					"["+e.getTitle()+"].");
+		if(getFileWritingMode()){
+			if(getDebugStatus())
+				System.out.println("EL: addEvent(): " +
+						"Writing it to file...");
+			DigitalOrganiser.getEventFileManager().write(e);
+	        if (getDebugStatus())
+	        	System.out.println("EL: addEvent(): " +
+	        			"Finished write call.");
 		}
-		if (findEventIndex(e.getID()) != -1){
+		return true;
+	}
+	
+	/**
+	 * Validates the ID of an event and stores it.<br/>
+	 * Neither refreshes the display nor writes to the file.
+	 * @param e The event to be stored.
+	 * @return True on success, false on failure.
+	 */
+	private boolean insertEvent(Event e){
+		if (!SystemDate.validateTimeStamp(e.getID())){
 			if(getDebugStatus())
-			System.err.println("EL: addEvent(Event): "+
-					"ID already exists. Event not added.");
+				System.err.println("EL: insertEvent(): "+
+						"  Invalid ID format. Event not added.");
 			return false;
 		}
-		if(!INNER_ADD_CALL)
-			if (getSize() >= SIZE_LIMIT){
-				JOptionPane.showMessageDialog(	null,
-											"Sorry, the limit is 1000 events.",
-											"Cannot add event",
-											JOptionPane.ERROR_MESSAGE);
-				System.out.println("Size: "+getSize());
-				return false;
-			} else {
-				getEventList().getReadWriteLock().writeLock().lock();
-				getEventList().add(e);
-				getEventList().getReadWriteLock().writeLock().unlock();
-				update();
+		//Checked and stored under one hold of the lock, so two threads
+		//can't both add the same ID.
+		getEventList().getReadWriteLock().writeLock().lock();
+		try{
+			if (getEventIndex().containsKey(e.getID())){
 				if(getDebugStatus())
-					System.out.println("EL: addEvent(): Added an event: " +
-							"["+e.getTitle()+"].");
-				if(getFileWritingMode()){
-					if(getDebugStatus())
-						System.out.println("EL: addEvent(): " +
-								"Writing it to file...");
-					DigitalOrganiser.getEventFileManager().write(e);
-			        if (getDebugStatus())
-			        	System.out.println("EL: addEvent(): " +
-			        			"Finished write call.");
-				}
-				return true;
+				System.err.println("EL: insertEvent(): "+
+						"ID already exists. Event not added.");
+				return false;
 			}
-		else 
-			getEventList().add(e);
-		if(getDebugStatus())
-			System.out.println("EL: addEvent(): Added an event without writing to file: ["+e.getTitle()+"]");
+			storeEvent(e);
+		} finally {
+			getEventList().getReadWriteLock().writeLock().unlock();
+		}
 		return true;
-		
 	}
+	/**
+	 * Checks the list size against the soft limit.<br/>
+	 * Going past the limit doesn't stop events from being added; 
+	 * it only prints a warning, once per crossing.
+	 * @return True if the list is larger than the soft limit.
+	 */
+	public boolean checkSoftLimit(){
+		if (getSize() <= getSoftLimit()){
+			m_softLimitWarned = false;
+			return false;
+		}
+		if (!m_softLimitWarned){
+			System.err.println("EL: checkSoftLimit(): "+getSize()+
+					" events stored, over the soft limit of "+
+					getSoftLimit()+". Views may become slower.");
+			m_softLimitWarned = true;
+		}
+		return true;
+	}	
+	/**
+	 * Begins a batch of changes.<br/>
+	 * Until the matching commitBatch() all the adds, edits and removes made
+	 * by this thread are applied under one hold of the list's write lock,
+	 * the display isn't refreshed and the file manager collects the writes 
+	 * instead of doing them.<br/>
+	 * Batches can be nested; only the outermost commit refreshes and writes.
+	 * The batch must be committed by the thread which began it, preferably 
+	 * in a finally block.
+	 * @return True on success.
+	 */
+	public boolean beginBatch(){
+		getEventList().getReadWriteLock().writeLock().lock();
+		if (m_batchDepth == 0){
+			m_batchThread = Thread.currentThread();
+			m_batchRefresh = false;
+			if (getFileWritingMode())
+				DigitalOrganiser.getEventFileManager().beginBatch();
+		}
+		m_batchDepth++;
+		return true;
+	}
+	
+	/**
+	 * Commits a batch of changes.<br/>
+	 * The outermost commit releases the write lock, then refreshes the 
+	 * display once and has the file manager write all the changes at once.
+	 * @return True on success, false if this thread hasn't begun a batch.
+	 */
+	public boolean commitBatch(){
+		if (!isInBatch())
+			return false;
+		m_batchDepth--;
+		boolean outermost = (m_batchDepth == 0);
+		boolean refresh = false;
+		if (outermost){
+			m_batchThread = null;
+			refresh = m_batchRefresh;
+			m_batchRefresh = false;
+		}
+		getEventList().getReadWriteLock().writeLock().unlock();
+		if (!outermost)
+			return true;
+		if (getDebugStatus())
+			System.out.println("EL: commitBatch(): Committing the batch.");
+		if (refresh){
+			checkSoftLimit();
+			update();
+		}
+		return DigitalOrganiser.getEventFileManager() == null
+				|| DigitalOrganiser.getEventFileManager().commitBatch();
+	}
+	
+	/**
+	 * Checks if the current thread is in the middle of a batch.
+	 * @return True if it has begun a batch and not yet committed it.
+	 */
+	public boolean isInBatch(){
+		return m_batchThread == Thread.currentThread();
+	}
+
+	
 	/**
 	 * Adds an event based on a string array.
 	 * @param eArray The array with the event values.
 	 * @return True on success, false on failure.
 	 */
 	public boolean addEvent(String[] eArray){
-		if (getSize() >= SIZE_LIMIT){
-			if(getDebugStatus())
-				System.err.println("EventList.java:\n addEvent(String[]):\n"+
-						"  Sorry, the limit is " + SIZE_LIMIT +" events."+
-						"Cannot add event.");
-			return false;
-		}
 		Event e = new Event();
 		if (!e.setFromStringArray(eArray))
 			return false;
-		INNER_ADD_CALL = true;
-		if(!addEvent(e)){
-			INNER_ADD_CALL = false;
+		return addLoadedEvent(e);
+	}
+	
+	/**
+	 * Adds an event that was loaded from the file, without writing it
+	 * back to the file.<br/>
+	 * Loads should be done in a batch, so the display is refreshed once.
+	 * @param e The event to be stored.
+	 * @return True on success, false on failure.
+	 */
+	public boolean addLoadedEvent(Event e){
+		if (!insertEvent(e))
 			return false;
-		}
-		INNER_ADD_CALL = false;
+		if(getDebugStatus())
+			System.out.println("EL: addLoadedEvent(): Added an event " +
+					"without writing to file: ["+e.getTitle()+"]");
+		update();
 		return true;
 	}
 	
@@ -358,17 +627,30 @@ public class EventList{
 			if (getDebugStatus())
 				System.out.println("EL: editEvent(): " +
 						"Editing the event at index: "+i);
+			Event old;
 			getEventList().getReadWriteLock().writeLock().lock();
-			getEventList().add(i, event);
-			removeEvent(i+1);
-			getEventList().getReadWriteLock().writeLock().unlock();
+			try{
+				m_textIndex.replaced(getEventList().get(i), event);
+				old = getEventList().set(i, event);
+				m_positions.remove(old);
+				m_positions.put(event, i);
+				if (getEventIndex().get(old.getID()) == old)
+					getEventIndex().remove(old.getID());
+				getEventIndex().put(event.getID(), event);
+				m_intervalIndex.replaced(old, event);
+				m_fieldIndex.replaced(old, event);
+				m_occurrences.replaced(old, event);
+			} finally {
+				getEventList().getReadWriteLock().writeLock().unlock();
+			}
 			if (getDebugStatus())
 				System.out.println("EL: editEvent(): Replaced the event.");
 			if(getFileWritingMode()){
 				if(getDebugStatus())
 					System.out.println("EL: editEvent(): " +
 							"ReWriting the file...");
-				DigitalOrganiser.getEventFileManager().write();
+				DigitalOrganiser.getEventFileManager()
+					.writeEdit(old.getID(), event);
 		        if (getDebugStatus())
 		        	System.out.println("EL: editEvent(): " +
 		        			"Finished rewrite call.");
@@ -403,29 +685,46 @@ public class EventList{
     }
 	
 	/**
-	 * Finds the list index of an event based on the ID.
+	 * Finds the list index of an event based on the ID.<br/>
+	 * Unknown IDs are rejected straight from the ID index; known ones 
+	 * have their position looked up, so an edit or removal by ID doesn't
+	 * search the list.
 	 * @param id The ID of the event.
 	 * @return The index or -1 if it wasn't found.
 	 */
 	public int findEventIndex(String id){
-		for (int i = 0; i < getSize() ; i++){
-			Event e = getEvent(i);
-			
-			if (getDebugStatus())
+		int i = -1;
+		getEventList().getReadWriteLock().readLock().lock();
+		try{
+			Event e = getEventIndex().get(id);
+			if (e != null)
+				i = positionOf(e);
+		} finally {
+			getEventList().getReadWriteLock().readLock().unlock();
+		}
+		if (getDebugStatus()){
+			if (i != -1)
 				System.out.println("EL: findEvent(): "+
-						"Comparing: [" + e.getID() + "] vs [" + id + "]");
-
-			if (e.getID().equals(id)){
-				if (getDebugStatus())
-					System.out.println("EL: findEvent(): "+
-							"Found: [" + e.getID() + "] at index [" + i + "]");
-				return i;
-			}
+						"Found: [" + id + "] at index [" + i + "]");
+			else
+				System.out.println("EL: findEventIndex(): "+
+						"Could not find ID : [" + id + "]");
+		}
+		return i;
+	}
+	
+	/**
+	 * Checks if an event with the given ID is stored in the list.
+	 * @param id The ID of the event.
+	 * @return True if found, false otherwise.
+	 */
+	public boolean containsEvent(String id){
+		getEventList().getReadWriteLock().readLock().lock();
+		try{
+			return getEventIndex().containsKey(id);
+		} finally {
+			getEventList().getReadWriteLock().readLock().unlock();
 		}
-		if (getDebugStatus())
-			System.out.println("EL: findEventIndex(): "+
-								"Could not find ID : [" + id + "]");
-		return -1;
 	}
 	
     /**
@@ -452,10 +751,40 @@ public class EventList{
      * @see getEvent(int)
      */
     public Event getEvent(String id){
-    	if (getDebugStatus())
-			System.out.println("EL: getEvent(String): " +
-					"A call to getEvent(int) is to follow this.");
-    	return getEvent(findEventIndex(id));    	
+    	Event e;
+		getEventList().getReadWriteLock().readLock().lock();
+		try{
+			e = getEventIndex().get(id);
+		} finally {
+			getEventList().getReadWriteLock().readLock().unlock();
+		}
+    	if (e == null && getDebugStatus())
+			System.err.println("EL: getEvent(String): " +
+					"Could not find ID : [" + id + "]");
+    	return e;
+    }
+    
+    /**
+     * Gets a copy of the events, taken under the list's read lock.<br/>
+     * Safe to use from threads other than the one changing the list.
+     * @return The events, in list order.
+     */
+    public Event[] toArray(){
+		getEventList().getReadWriteLock().readLock().lock();
+		try{
+			return getEventList().toArray(new Event[getEventList().size()]);
+		} finally {
+			getEventList().getReadWriteLock().readLock().unlock();
+		}
+    }
+    
+    /**
+     * Gets a snapshot of the events, which stays the same when the list
+     * changes and holds no widgets.
+     * @return The events, in list order.
+     */
+    public EventResults getSnapshot(){
+    	return new EventResults(toArray());
     }
     
     /**
@@ -471,10 +800,23 @@ public class EventList{
     public boolean removeEvent(int index){
     	if (getDebugStatus())
     		System.out.println("EL: removeEvent(): Passed index: ["+index+"].");
-    	if (index < 0 || index > getSize())	return false;
+    	if (index < 0 || index >= getSize())	return false;
+		Event removed;
 		getEventList().getReadWriteLock().writeLock().lock();
-		getEventList().remove(index);
-		getEventList().getReadWriteLock().writeLock().unlock();
+		try{
+			removed = getEventList().remove(index);
+			m_positions.remove(removed);
+			//The events after it have moved up one.
+			m_positionsStaleFrom = Math.min(m_positionsStaleFrom, index);
+			if (getEventIndex().get(removed.getID()) == removed)
+				getEventIndex().remove(removed.getID());
+			m_intervalIndex.removed(removed);
+			m_fieldIndex.removed(removed);
+			m_occurrences.removed(removed);
+			m_textIndex.removed(removed);
+		} finally {
+			getEventList().getReadWriteLock().writeLock().unlock();
+		}
 
         this.update();
         if (getDebugStatus())
@@ -483,7 +825,7 @@ public class EventList{
 		if(getFileWritingMode()){
 			if(getDebugStatus())
 				System.out.println("EL: removeEvent(): ReWriting the file...");
-			DigitalOrganiser.getEventFileManager().write();
+			DigitalOrganiser.getEventFileManager().writeRemove(removed.getID());
 	        if (getDebugStatus())
 	        	System.out.println("EL: removeEvent(): Finished rewrite call.");
 		}
@@ -505,7 +847,19 @@ public class EventList{
      * @return True on success, false on failure.
      */
     public boolean clear(){
-    	getEventList().clear();
+		getEventList().getReadWriteLock().writeLock().lock();
+		try{
+			getEventList().clear();
+			getEventIndex().clear();
+			m_positions.clear();
+			m_positionsStaleFrom = Integer.MAX_VALUE;
+			m_intervalIndex.clear();
+			m_fieldIndex.clear();
+			m_occurrences.clear();
+			m_textIndex.clear();
+		} finally {
+			getEventList().getReadWriteLock().writeLock().unlock();
+		}
     	this.update();
     	
     	return true;
@@ -583,21 +937,45 @@ public class EventList{
 							" Property changed");				
 				if (dc.getDate() != null){
 					SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");		
-					searchField.setText(sdf.format(dc.getDate()));
+					//Searches the day's events, keeping the rest of the search.
+					searchField.setText(EventQuery.replaceClauses(
+							searchField.getText(), "start", 
+							"start:" + sdf.format(dc.getDate())));
 				}
 			}
 		});		
 		dc.getCalendarButton().setToolTipText("Date search helper");
         COL = "4"; ROW = "2";
 		jp.add(dc.getCalendarButton(), COL+", "+ROW+", fill, default");		
-		TextFilterator<Event> tf = new MyTextFilterator();		
-		TextComponentMatcherEditor<Event> matchEditor = 
-				new TextComponentMatcherEditor<Event>( searchField , tf );		
+		//Searches with clauses like category:Meeting go through the planner.
+		TextIndexMatcherEditor<Event> matchEditor = 
+				new TextIndexMatcherEditor<Event>( searchField , m_textIndex ){
+			//Event on its own would be the matcher editor's own Event class.
+			@Override
+			protected Matcher<events.Event> createMatcher(
+					TextIndex<events.Event>.Query query, String text){
+				EventQuery q = new EventQuery(text);
+				if (!q.isStructured())
+					return query;
+				if (!q.isValid())
+					return q;
+				return q.createMatcher(getFieldIndex(), m_textIndex);
+			}
+		};
 		FilterList<Event> filteredEvents = 
 				new FilterList<Event>( getEventList() , matchEditor ); 		
+		//Searches filter the list in the background, the table only sees 
+		//the changes on the Swing thread.
+		ca.odell.glazedlists.EventList<Event> shownEvents;
+		getEventList().getReadWriteLock().readLock().lock();
+		try{
+			shownEvents = GlazedListsSwing.swingThreadProxyList(filteredEvents);
+		} finally {
+			getEventList().getReadWriteLock().readLock().unlock();
+		}
 		EventTableFormat columns = new EventTableFormat();		
 	    DefaultEventTableModel<Event> tableModel = 
-	    		new DefaultEventTableModel<Event>( filteredEvents , columns );
+	    		new DefaultEventTableModel<Event>( shownEvents , columns );
         
 	    setSearchTable(new JTable(tableModel));
         formatTable();  
@@ -778,75 +1156,57 @@ public class EventList{
 	}
 	
 	/**
-	 * Gets an event list containing only the events occurring on the specified day.
+	 * Gets the events occurring on the specified day.
 	 * @param d The date. The day gets extracted from this.
-	 * @return The event list which is empty if the date was invalid.
+	 * @return The events in list order, none if the date was invalid.
 	 */
-	public EventList getEventsForDay(DateTime d){
+	public EventResults getEventsForDay(DateTime d){
 		d = SystemTime.setTimeZero(d);
-		EventList el = new EventList();
 		if (d == null)
-			return el;
+			return EventResults.EMPTY;
 		if (!d.hasYearMonthDay())
-			return el;
-		for(int i = 0; i < getSize(); i++){
-			Event e = getEvent(i);
-			if(e.getStart().isEmpty())
-				continue;
-			DateTime s = e.getStartingDateTime();
-			s = SystemTime.setTimeZero(s);
-			if (getDebugStatus())
-				System.out.println(s.toString() + " | "+d.toString());
-			if (d.lt(s)) {
-				if (getDebugStatus())
-				   System.out.println(s.toString()+" less than "+ d.toString());
-				continue;
-			}
-			if (e.getRepetition().equalsIgnoreCase("no")){
-				if (d.gt(s)) continue;
-				if (SystemDate.YMDEqual(s, d)){
-					el.addEvent(e);
-					continue;
-				}
-				else
-					continue;
-			}
-			else if (e.getRepetition().equalsIgnoreCase("daily")){
-				el.addEvent(e);
-				continue;
-			}
-			else if (e.getRepetition().equalsIgnoreCase("weekly")){
-				if (s.getWeekDay() == d.getWeekDay()){
-					el.addEvent(e);
-					continue;
-				}
-			}
-			else if (e.getRepetition().equalsIgnoreCase("monthly")){
-				if (s.getDay() == d.getDay()){
-					el.addEvent(e);
-					continue;
-				}
-			}
-			else if (e.getRepetition().equalsIgnoreCase("yearly")){
-				if (s.getMonth() == d.getMonth() && s.getDay() == d.getDay()){
-					el.addEvent(e);
-					continue;
-				}
-			}
-		}
-		return el;
+			return EventResults.EMPTY;
+		return new EventResults(getOccurrences(d));
 	}
 	
 	/** The list of events. */
     private BasicEventList<Event> m_eventList = new BasicEventList<Event>();
+    /** Maps each stored event's ID to the event, kept in step with the list. */
+    private Map<String, Event> m_eventIndex = new HashMap<String, Event>();
+    /** 
+     * The position of each stored event in the list; those from 
+     * m_positionsStaleFrom on may be out of date. 
+     */
+    private final Map<Event, Integer> m_positions = 
+    		new IdentityHashMap<Event, Integer>();
+    /** The first position moved by a removal since they were renumbered. */
+    private int m_positionsStaleFrom = Integer.MAX_VALUE;
+    /** The interval index, kept up to date as the list changes. */
+    private final EventIntervalIndex m_intervalIndex = 
+    		new EventIntervalIndex();
+    /** The field index, kept up to date as the list changes. */
+    private final EventFieldIndex m_fieldIndex = new EventFieldIndex();
+    /** The events of each day, as they were last asked for. */
+    private OccurrenceCache m_occurrences = new OccurrenceCache();
+    /** The words of the searched fields of the events. */
+    private TextIndex<Event> m_textIndex = 
+    		new TextIndex<Event>(new MyTextFilterator());
     /** The debug switch. */
     private boolean m_debug = false;
     /** The JList widget */
 	private JList m_eventJList;
-	/** Tracks if the addEvent(Event) was called by the add(String[]). */
-	private static boolean INNER_ADD_CALL = false;
-	/** The limit of the event list size. */
-	public static final int SIZE_LIMIT = 1000;
+	/** The default soft limit of the event list size. */
+	public static final int DEFAULT_SOFT_LIMIT = 100000;
+	/** The thread that has begun a batch, null when there is no batch. */
+	private volatile Thread m_batchThread = null;
+	/** The number of batches begun and not yet committed by the thread. */
+	private int m_batchDepth = 0;
+	/** Tracks if a refresh was put off until the batch is committed. */
+	private boolean m_batchRefresh = false;
+	/** The list size after which a warning is given. Events are still accepted. */
+	private int m_softLimit = DEFAULT_SOFT_LIMIT;
+	/** Tracks if the soft limit warning was already given. */
+	private boolean m_softLimitWarned = false;
 	
 	/** 
 	 * Declares if the EL is to be used in junction with the file package.<br/>
@@ -0,0 +1,635 @@
+/**
+ * @file EventQuery.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the EventQuery class.
+ */
+
+/**
+ * @package events
+ * @brief Everything about calendar events, except icon resources.
+ */
+package events;
+
+import hirondelle.date4j.DateTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import common.TextIndex;
+import ca.odell.glazedlists.matchers.Matcher;
+
+/**
+ * @brief A search of the events by their fields, as typed by the user.
+ *
+ * A search is made of clauses and words, separated by spaces, e.g.
+ * <tt>category:Meeting start>=2026-01-01 location:"Faraday" repeats:weekly
+ * budget</tt>. An event must match all of them.<br/>
+ * A clause is a field, an operator and a value, which is quoted when it
+ * has spaces. The fields are:
+ * <ul>
+ * <li>category and repeats: with <tt>:</tt> the name starts with the
+ * value, with <tt>=</tt> it is the value, ignoring case and spaces;</li>
+ * <li>start and end: a year, month, day, or a date & time written
+ * <tt>2026-01-01T10:30</tt>, compared with <tt>: = &lt; &lt;= &gt;
+ * &gt;=</tt>. <tt>start:2026-01</tt> is any time in January 2026;</li>
+ * <li>title, location, description and persons: with <tt>:</tt> the
+ * field holds the value, with <tt>=</tt> it is the value, ignoring
+ * case.</li>
+ * </ul>
+ * Anything else is a word, searched for in the same fields as the search
+ * table searches.<br/>
+ * Run against an EventFieldIndex, the category, repetition and start
+ * clauses are read from the index, and only the events they leave are
+ * checked against the other clauses and the words. The start of a
+ * repeating event is its first start.
+ * @author agent
+ */
+public class EventQuery implements Matcher<Event> {
+
+	/** The fields a clause can be about. */
+	public static final String[] FIELDS = {"category", "repeats", "start",
+			"end", "title", "location", "description", "persons"};
+
+	/**
+	 * Parses a search.
+	 * @param text The search.
+	 */
+	public EventQuery(String text){
+		StringBuilder words = new StringBuilder();
+		for (Clause c : parse(text == null ? "" : text)){
+			if (c.m_field == null){
+				words.append(c.m_value).append(' ');
+				continue;
+			}
+			String error = c.prepare();
+			if (error != null && m_error == null)
+				m_error = error;
+			m_clauses.add(c);
+		}
+		m_words = words.toString().trim();
+	}
+
+	/**
+	 * Tells if the search could be parsed.
+	 * @return True if it is valid, false if a clause is wrong.
+	 */
+	public boolean isValid(){
+		return m_error == null;
+	}
+
+	/**
+	 * Gets what is wrong with the search.
+	 * @return The problem with the first wrong clause, or null if the
+	 * search is valid.
+	 */
+	public String getError(){
+		return m_error;
+	}
+
+	/**
+	 * Tells if the search has any clause, so is more than words.
+	 * @return True if it has a clause.
+	 */
+	public boolean isStructured(){
+		return !m_clauses.isEmpty();
+	}
+
+	/**
+	 * Gets the words of the search which are not part of a clause.
+	 * @return The words, separated by spaces.
+	 */
+	public String getWords(){
+		return m_words;
+	}
+
+	/**
+	 * Checks an event against every clause and word, without an index.
+	 * @param e The event.
+	 * @return True if the event matches the search.
+	 */
+	public boolean matches(Event e){
+		if (!matchesClauses(e))
+			return false;
+		if (m_words.isEmpty())
+			return true;
+		String[] fields = {e.getTitle(), e.getStart(), e.getEnd(),
+				e.getLocation(), e.getDescription(), e.getPersonsInvolved()};
+		for (String word : m_words.toLowerCase().split("\\s+")){
+			boolean found = false;
+			for (int i = 0; i < fields.length && !found; i++)
+				found = fields[i] != null
+						&& fields[i].toLowerCase().contains(word);
+			if (!found)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks an event against every clause, leaving out the words.
+	 * @param e The event.
+	 * @return True if the event matches the clauses of a valid search.
+	 */
+	private boolean matchesClauses(Event e){
+		if (!isValid())
+			return false;
+		for (Clause c : m_clauses)
+			if (!c.matches(e))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Finds the events matching the search, using the indexes.
+	 * @param index The field index of the events.
+	 * @param words The word index of the same events, searched for the
+	 * words of the search.
+	 * @return The events, in list order; empty if the search is invalid.
+	 */
+	public List<Event> run(EventFieldIndex index, TextIndex<Event> words){
+		List<Event> events = new ArrayList<Event>();
+		if (!isValid())
+			return events;
+		//The index can't change while the query runs.
+		synchronized (index){
+			BitSet found = plan(index, words);
+			for (int i = found.nextSetBit(0); i >= 0;
+					i = found.nextSetBit(i + 1))
+				events.add(index.getEvent(i));
+		}
+		return events;
+	}
+
+	/**
+	 * Creates a matcher for the search table, matching the events found by
+	 * run(). Events added or replaced after the search ran are checked one
+	 * by one, their words through the word index's query as run() does, so
+	 * both find the same events.
+	 * @param index The field index of the events.
+	 * @param words The word index of the same events.
+	 * @return The matcher.
+	 */
+	public Matcher<Event> createMatcher(final EventFieldIndex index,
+			TextIndex<Event> words){
+		final TextIndex<Event>.Query query = m_words.isEmpty() ? null
+				: words.getQuery(m_words);
+		final Set<Event> found = Collections.newSetFromMap(
+				new IdentityHashMap<Event, Boolean>());
+		final long version;
+		synchronized (index){
+			version = index.getVersion();
+			found.addAll(run(index, words));
+		}
+		return new Matcher<Event>(){
+			public boolean matches(Event e){
+				if (index.isChangedSince(e, version))
+					return matchesClauses(e)
+							&& (query == null || query.matches(e));
+				return found.contains(e);
+			}
+		};
+	}
+
+	/**
+	 * Works out the numbers of the matching events.<br/>
+	 * The category and repetition bitmaps are cheap to combine, so all of
+	 * them are. The start clauses are joined into one range, which is only
+	 * read from the index when it leaves fewer events than are left
+	 * already; otherwise, like the other clauses and the words, it is
+	 * checked on the events left. The words are only looked up in the word
+	 * index when there is nothing else to start from.
+	 * @param index The field index.
+	 * @param words The word index.
+	 * @return The numbers, in the field index.
+	 */
+	private BitSet plan(EventFieldIndex index, TextIndex<Event> words){
+		BitSet found = null;
+		//The start clauses together leave a single range.
+		long from = Long.MIN_VALUE, to = Long.MAX_VALUE;
+		boolean ranged = false;
+		List<Clause> others = new ArrayList<Clause>();
+		for (Clause c : m_clauses){
+			BitSet bits = null;
+			if (c.m_field.equals("category"))
+				bits = index.getCategories(c.m_value, !c.m_exact);
+			else if (c.m_field.equals("repeats"))
+				bits = index.getRepetitions(c.m_value, !c.m_exact);
+			else if (c.m_field.equals("start")){
+				from = Math.max(from, c.m_from);
+				to = Math.min(to, c.m_to);
+				ranged = true;
+			} else
+				others.add(c);
+			if (bits != null && found == null)
+				found = bits;
+			else if (bits != null)
+				found.and(bits);
+		}
+		if (ranged && found == null){
+			found = index.getStarting(from, to);
+		} else if (ranged && index.countStarting(from, to)
+				< found.cardinality()){
+			found.and(index.getStarting(from, to));
+		} else if (ranged){
+			for (int i = found.nextSetBit(0); i >= 0;
+					i = found.nextSetBit(i + 1))
+				if (!index.startsWithin(i, from, to))
+					found.clear(i);
+		}
+		TextIndex<Event>.Query query = null;
+		if (!m_words.isEmpty())
+			query = words.getQuery(m_words);
+		if (found == null){
+			if (query != null){
+				//The words are all there is to start from.
+				found = new BitSet();
+				for (Event e : query.getFound()){
+					int i = index.getNumber(e);
+					if (i >= 0)
+						found.set(i);
+				}
+				query = null;
+			} else {
+				found = index.getAll();
+			}
+		}
+		for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)){
+			Event e = index.getEvent(i);
+			boolean match = query == null || query.matches(e);
+			for (int c = 0; c < others.size() && match; c++)
+				match = others.get(c).matches(e);
+			if (!match)
+				found.clear(i);
+		}
+		return found;
+	}
+
+	/**
+	 * Replaces the clauses about a field in a search.
+	 * @param text The search.
+	 * @param field The field, one of FIELDS.
+	 * @param clause The new clause, e.g. "start:2026-01-01", or null to
+	 * only remove the old ones.
+	 * @return The search with the new clause at its end.
+	 */
+	public static String replaceClauses(String text, String field,
+			String clause){
+		StringBuilder replaced = new StringBuilder(text == null ? "" : text);
+		List<Clause> clauses = parse(replaced.toString());
+		for (int i = clauses.size() - 1; i >= 0; i--){
+			Clause c = clauses.get(i);
+			if (field.equals(c.m_field))
+				replaced.delete(c.m_begin, c.m_end);
+		}
+		String result = replaced.toString().trim().replaceAll("\\s+", " ");
+		if (clause == null)
+			return result;
+		return result.isEmpty() ? clause : result + " " + clause;
+	}
+
+	/**
+	 * Splits a search into its clauses and words.
+	 * @param text The search.
+	 * @return The clauses, and the words as clauses without a field.
+	 */
+	private static List<Clause> parse(String text){
+		List<Clause> clauses = new ArrayList<Clause>();
+		int i = 0;
+		while (i < text.length()){
+			if (Character.isWhitespace(text.charAt(i))){
+				i++;
+				continue;
+			}
+			Clause c = new Clause();
+			c.m_begin = i;
+			int nameEnd = i;
+			while (nameEnd < text.length()
+					&& Character.isLetter(text.charAt(nameEnd)))
+				nameEnd++;
+			String name = text.substring(i, nameEnd).toLowerCase();
+			String op = readOperator(text, nameEnd);
+			if (op != null && isField(name)){
+				c.m_field = name;
+				c.m_op = op;
+				i = nameEnd + op.length();
+			}
+			if (i < text.length() && text.charAt(i) == '"'){
+				int close = text.indexOf('"', i + 1);
+				int end = close < 0 ? text.length() : close;
+				c.m_value = text.substring(i + 1, end);
+				i = close < 0 ? end : close + 1;
+			} else {
+				int start = i;
+				while (i < text.length()
+						&& !Character.isWhitespace(text.charAt(i)))
+					i++;
+				c.m_value = text.substring(start, i);
+			}
+			c.m_end = i;
+			clauses.add(c);
+		}
+		return clauses;
+	}
+
+	/**
+	 * Reads the operator of a clause.
+	 * @param text The search.
+	 * @param i Where the operator should be.
+	 * @return The operator, or null if there is none.
+	 */
+	private static String readOperator(String text, int i){
+		for (String op : OPERATORS)
+			if (text.startsWith(op, i))
+				return op;
+		return null;
+	}
+
+	/**
+	 * Tells if a name is one of FIELDS.
+	 * @param name The name, in lower case.
+	 * @return True if it is a field.
+	 */
+	private static boolean isField(String name){
+		for (String f : FIELDS)
+			if (f.equals(name))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @brief A clause of a search, or a word when it has no field.
+	 */
+	private static class Clause {
+
+		/**
+		 * Works out what the clause matches.
+		 * @return What is wrong with the clause, or null if it is valid.
+		 */
+		String prepare(){
+			boolean isDate = m_field.equals("start") || m_field.equals("end");
+			m_exact = m_op.equals("=");
+			if (!isDate){
+				if (!m_op.equals(":") && !m_op.equals("="))
+					return m_field + " can only be matched with : or =";
+				m_value = m_value.toLowerCase();
+				return null;
+			}
+			long[] range = parseDate(m_value);
+			if (range == null)
+				return "Invalid " + m_field + " date: " + m_value;
+			m_from = Long.MIN_VALUE;
+			m_to = Long.MAX_VALUE;
+			if (m_op.equals(":") || m_op.equals("=")){
+				m_from = range[0];
+				m_to = range[1];
+			} else if (m_op.equals(">=")){
+				m_from = range[0];
+			} else if (m_op.equals(">")){
+				m_from = range[1];
+			} else if (m_op.equals("<")){
+				m_to = range[0];
+			} else {
+				m_to = range[1];
+			}
+			return null;
+		}
+
+		/**
+		 * Checks an event against the clause.
+		 * @param e The event.
+		 * @return True if the event matches.
+		 */
+		boolean matches(Event e){
+			if (m_field.equals("category") || m_field.equals("repeats")){
+				String name = m_field.equals("category") ? e.getCategory()
+						: e.getRepetitionKind() == null ? null
+						: e.getRepetitionKind().getName();
+				if (name == null)
+					return false;
+				String key = EventFieldIndex.toKey(name);
+				String value = EventFieldIndex.toKey(m_value);
+				return m_exact ? key.equals(value) : key.startsWith(value);
+			}
+			if (m_field.equals("start") || m_field.equals("end")){
+				DateTime d = m_field.equals("start") ? e.getStartingDateTime()
+						: e.getEndingDateTime();
+				if (d == null)
+					return false;
+				long key = EventIntervalIndex.toKey(d);
+				return key >= m_from && key < m_to;
+			}
+			String field;
+			if (m_field.equals("title"))
+				field = e.getTitle();
+			else if (m_field.equals("location"))
+				field = e.getLocation();
+			else if (m_field.equals("description"))
+				field = e.getDescription();
+			else
+				field = e.getPersonsInvolved();
+			if (field == null)
+				return false;
+			field = field.toLowerCase();
+			return m_exact ? field.equals(m_value) : field.contains(m_value);
+		}
+
+		/** The field, or null for a word. */
+		private String m_field = null;
+		/** The operator. */
+		private String m_op;
+		/** The value, or the word. */
+		private String m_value;
+		/** True if the value must be matched whole. */
+		private boolean m_exact;
+		/** The key of the earliest date & time matched, included. */
+		private long m_from;
+		/** The key of the latest date & time matched, excluded. */
+		private long m_to;
+		/** Where the clause starts in the search. */
+		private int m_begin;
+		/** Where the clause ends in the search. */
+		private int m_end;
+	}
+
+	/**
+	 * Parses a year, month, day or date & time into the range of times it
+	 * stands for.
+	 * @param value The value, e.g. "2026", "2026-01-05" or
+	 * "2026-01-05T10:30".
+	 * @return The keys of the start of the range, included, and its end,
+	 * excluded; null if the value is not a date.
+	 * @see EventIntervalIndex.toKey()
+	 */
+	static long[] parseDate(String value){
+		DateTime d;
+		try{
+			d = new DateTime(value.replace('T', ' '));
+			if (d.getYear() == null)
+				return null;
+		} catch (RuntimeException re){
+			return null;
+		}
+		int year = d.getYear();
+		if (d.getMonth() == null)
+			return new long[]{dayKey(year, 1, 1), dayKey(year + 1, 1, 1)};
+		int month = d.getMonth();
+		if (d.getDay() == null)
+			return new long[]{dayKey(year, month, 1), month == 12
+					? dayKey(year + 1, 1, 1) : dayKey(year, month + 1, 1)};
+		long from = dayKey(year, month, d.getDay());
+		long unit = DAY;
+		if (d.getHour() != null){
+			from += d.getHour() * HOUR;
+			unit = HOUR;
+		}
+		if (d.getMinute() != null){
+			from += d.getMinute() * MINUTE;
+			unit = MINUTE;
+		}
+		if (d.getSecond() != null){
+			from += d.getSecond() * SECOND;
+			unit = SECOND;
+		}
+		return new long[]{from, from + unit};
+	}
+
+	/**
+	 * Gets the key of the start of a day.
+	 * @param year The year.
+	 * @param month The month, 1 to 12.
+	 * @param day The day of the month.
+	 * @return The key.
+	 */
+	private static long dayKey(int year, int month, int day){
+		return EventIntervalIndex.toKey(DateTime.forDateOnly(year, month, day)
+				.getStartOfDay());
+	}
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
+	public static void main(String[] args){
+		Event meeting = new Event("1", "Budget", "Meeting",
+				new DateTime("2026-01-05 10:00:00"),
+				new DateTime("2026-01-05 11:00:00"), "Faraday Building", "No",
+				"Yearly budget", "Anne");
+		Event gym = new Event("2", "Gym", "Gym",
+				new DateTime("2025-12-29 18:00:00"),
+				new DateTime("2025-12-29 19:00:00"), "Sports centre", "Weekly",
+				"", "");
+		Event review = new Event("3", "Review", "Meeting",
+				new DateTime("2025-11-10 09:00:00"),
+				new DateTime("2025-11-10 09:30:00"), "Faraday", "Weekly",
+				"Budget review", "Bob");
+		Event[] events = {meeting, gym, review};
+		EventFieldIndex index = new EventFieldIndex(events);
+		TextIndex<Event> words = new TextIndex<Event>(
+				new EventList().new MyTextFilterator());
+		for (Event e : events)
+			words.added(e);
+
+		/** @test parseDate() Years, months, days and times. */
+		System.out.print("test1----------------------");
+		long[] day = parseDate("2026-01-05"), month = parseDate("2026-01");
+		long[] minute = parseDate("2026-01-05T10:30");
+		System.out.println(day[1] - day[0] == DAY
+				&& month[0] == parseDate("2026")[0]
+				&& month[1] == parseDate("2026-02-01")[0]
+				&& minute[0] == day[0] + 10 * HOUR + 30 * MINUTE
+				&& minute[1] - minute[0] == MINUTE
+				&& parseDate("soon") == null
+				? "Passed" : "Failed");
+
+		/** @test run() Clauses of every kind, quoted values and words. */
+		System.out.print("test2----------------------");
+		EventQuery q = new EventQuery("category:Meeting start>=2026-01-01 " +
+				"location:\"Faraday Building\"");
+		EventQuery q2 = new EventQuery("repeats:weekly budget");
+		EventQuery q3 = new EventQuery("start<2026 end=2025-12-29T19:00");
+		System.out.println(q.run(index, words).equals(Arrays.asList(meeting))
+				&& q2.run(index, words).equals(Arrays.asList(review))
+				&& q3.run(index, words).equals(Arrays.asList(gym))
+				&& new EventQuery("category=meet").run(index, words).isEmpty()
+				&& new EventQuery("").run(index, words).size() == 3
+				? "Passed" : "Failed");
+
+		/** @test matches() Gives the same answers as run(). */
+		System.out.print("test3----------------------");
+		String[] searches = {"category:m repeats=no", "start:2025 faraday",
+				"start>2025-11-10 start<=2026-01-05", "persons:bob",
+				"title=gym start>=2025-12", "description:budget end<2026"};
+		boolean same = true;
+		for (String s : searches){
+			EventQuery query = new EventQuery(s);
+			List<Event> found = new ArrayList<Event>();
+			for (Event e : events)
+				if (query.matches(e))
+					found.add(e);
+			same = same && query.isValid() && query.isStructured()
+					&& found.equals(query.run(index, words));
+		}
+		System.out.println(same ? "Passed" : "Failed");
+
+		/** @test isValid() Wrong clauses are reported. */
+		System.out.print("test4----------------------");
+		System.out.println(!new EventQuery("start>=tomorrow").isValid()
+				&& !new EventQuery("category>Meeting").isValid()
+				&& new EventQuery("10:30 meeting").isValid()
+				&& !new EventQuery("10:30 meeting").isStructured()
+				? "Passed" : "Failed");
+
+		/** @test run(), createMatcher() The index follows the list. */
+		System.out.print("test5----------------------");
+		Event moved = new Event("4", "Budget", "Meeting",
+				new DateTime("2025-11-03 09:00:00"), null, "Faraday", "No",
+				"", "");
+		Matcher<Event> before = new EventQuery("start:2025-11").createMatcher(
+				index, words);
+		Matcher<Event> budget = new EventQuery("category:meeting budget")
+				.createMatcher(index, words);
+		index.replaced(review, moved);
+		words.replaced(review, moved);
+		index.removed(gym);
+		index.added(gym);
+		q = new EventQuery("category:meeting start:2025-11");
+		System.out.println(q.run(index, words).equals(Arrays.asList(moved))
+				&& new EventQuery("").run(index, words).equals(
+						Arrays.asList(meeting, moved, gym))
+				&& before.matches(moved) && !before.matches(meeting)
+				&& budget.matches(moved) && !budget.matches(gym)
+				? "Passed" : "Failed");
+
+		/** @test replaceClauses() The date chooser's clause. */
+		System.out.print("test6----------------------");
+		System.out.println(replaceClauses("gym start:2025-01-01 x", "start",
+				"start:2026-01-01").equals("gym x start:2026-01-01")
+				&& replaceClauses("", "start", "start:2026-01-01")
+				.equals("start:2026-01-01")
+				? "Passed" : "Failed");
+	}
+
+	/** The operators, longest first so ">=" is not read as ">". */
+	private static final String[] OPERATORS = {">=", "<=", ":", "=", ">",
+			"<"};
+	/** Milliseconds in a second. */
+	private static final long SECOND = 1000;
+	/** Milliseconds in a minute. */
+	private static final long MINUTE = 60 * SECOND;
+	/** Milliseconds in an hour. */
+	private static final long HOUR = 60 * MINUTE;
+	/** Milliseconds in a day. */
+	private static final long DAY = 24 * HOUR;
+	/** The clauses, in the order they were typed. */
+	private List<Clause> m_clauses = new ArrayList<Clause>();
+	/** The words, separated by spaces. */
+	private String m_words;
+	/** What is wrong with the search, or null. */
+	private String m_error = null;
+}
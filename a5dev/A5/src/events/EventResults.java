@@ -0,0 +1,142 @@
+/**
+ * @file EventResults.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the EventResults class.
+ */
+
+/**
+ * @package events
+ * @brief Everything about calendar events, except icon resources.
+ */
+package events;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @brief A fixed collection of events, such as the result of a query.
+ *
+ * An EventList is also the model behind the event JList, search panel and
+ * table, so making one schedules work on the Event Dispatch Thread and
+ * builds widgets. The results of queries, like the events of a day, are
+ * only read, so they are handed out as a snapshot instead: a plain array
+ * of the events which can't be changed and can be made and read on any
+ * thread, with or without a display.<br/>
+ * The events themselves are shared with the list they came from.
+ * @author agent
+ */
+public class EventResults implements Iterable<Event> {
+
+	/** A snapshot without events. */
+	public static final EventResults EMPTY = new EventResults(new Event[0]);
+
+	/**
+	 * Creates a snapshot of some events.
+	 * @param events The events, in the order they are to be kept in.
+	 */
+	public EventResults(List<Event> events){
+		m_events = events.toArray(new Event[events.size()]);
+	}
+
+	/**
+	 * Creates a snapshot of some events.
+	 * @param events The events, in the order they are to be kept in.
+	 */
+	public EventResults(Event[] events){
+		m_events = events.clone();
+	}
+
+	/**
+	 * Gets the number of events.
+	 * @return Number of events stored.
+	 */
+	public int getSize(){
+		return m_events.length;
+	}
+
+	/**
+	 * Gets an event based on its position.
+	 * @param index The index of the desired event.
+	 * @return The event or null if there is no event at the index.
+	 */
+	public Event getEvent(int index){
+		if (index < 0 || index >= m_events.length)
+			return null;
+		return m_events[index];
+	}
+
+	/**
+	 * Gets an event based on a given id.
+	 * @param id The id of the event to be returned.
+	 * @return The event or null if no matching event was found.
+	 */
+	public Event getEvent(String id){
+		for (Event e : m_events)
+			if (e.getID().equals(id))
+				return e;
+		return null;
+	}
+
+	/**
+	 * Gets a copy of the events.
+	 * @return The events, in order.
+	 */
+	public Event[] toArray(){
+		return m_events.clone();
+	}
+
+	/**
+	 * Goes through the events in order. They can't be removed.
+	 * @return The iterator.
+	 */
+	public Iterator<Event> iterator(){
+		return Arrays.asList(m_events).iterator();
+	}
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
+	public static void main(String[] args){
+		Event a = new Event("2012-04-12 10:00:00.000001", "A", "Other",
+				null, null, "", "No", "", "");
+		Event b = new Event("2012-04-12 10:00:00.000002", "B", "Other",
+				null, null, "", "No", "", "");
+		Event[] events = {a, b};
+		EventResults s = new EventResults(events);
+
+		/** @test getEvent() Events are kept in order. */
+		System.out.print("test1----------------------");
+		System.out.println(s.getSize() == 2 && s.getEvent(0) == a
+				&& s.getEvent(1) == b && s.getEvent(2) == null
+				? "Passed" : "Failed");
+
+		/** @test getEvent(String) Events are found by id. */
+		System.out.print("test2----------------------");
+		System.out.println(s.getEvent(b.getID()) == b
+				&& s.getEvent("none") == null ? "Passed" : "Failed");
+
+		/** @test EventResults() Changing the source does not change it. */
+		System.out.print("test3----------------------");
+		events[0] = b;
+		System.out.println(s.getEvent(0) == a ? "Passed" : "Failed");
+
+		/** @test iterator() Events can't be removed. */
+		System.out.print("test4----------------------");
+		boolean removed = true;
+		try{
+			Iterator<Event> it = s.iterator();
+			it.next();
+			it.remove();
+		} catch (UnsupportedOperationException e){
+			removed = false;
+		}
+		System.out.println(!removed && s.getSize() == 2
+				? "Passed" : "Failed");
+	}
+
+	/** The events. */
+	private final Event[] m_events;
+}
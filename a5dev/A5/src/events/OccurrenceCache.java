@@ -0,0 +1,162 @@
+/**
+ * @file OccurrenceCache.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the OccurrenceCache class.
+ */
+
+/**
+ * @package events
+ * @brief Everything about calendar events, except icon resources.
+ */
+package events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @brief Remembers which events of an event list occur on each day.
+ *
+ * Every view asks the event list for the events of the days it shows,
+ * every time it is updated. The answer for a day is kept here, so going
+ * back to a day or switching to another view showing it does not look
+ * through the list again.<br/>
+ * The event list tells the cache about every change, and only the days
+ * the changed event occurs on are updated. A day whose answer would need
+ * the events put back in list order is forgotten instead, and worked out
+ * again when it is next asked for.<br/>
+ * Days are numbered as in Recurrence. Only the days asked for most
+ * recently are kept. The lists handed out never change; a changed day
+ * gets a new list.<br/>
+ * The event list calls every method while holding its lock, the cache
+ * only guards its own map.
+ * @author agent
+ */
+class OccurrenceCache {
+
+	/**
+	 * Gets the events occurring on a day, if they are known.
+	 * @param day The number of the day.
+	 * @return The events in list order, or null if the day is not cached.
+	 */
+	synchronized List<Event> get(int day){
+		return m_days.get(day);
+	}
+
+	/**
+	 * Remembers the events occurring on a day.
+	 * @param day The number of the day.
+	 * @param events The events, in list order.
+	 * @return The list that was cached, which can't be changed.
+	 */
+	synchronized List<Event> put(int day, List<Event> events){
+		List<Event> cached = Collections.unmodifiableList(
+				new ArrayList<Event>(events));
+		m_days.put(day, cached);
+		return cached;
+	}
+
+	/**
+	 * Adds an event which was added at the end of the list to the days it
+	 * occurs on.
+	 * @param e The event.
+	 */
+	synchronized void added(Event e){
+		for (int day : days(e)){
+			List<Event> events = new ArrayList<Event>(m_days.get(day));
+			events.add(e);
+			m_days.put(day, Collections.unmodifiableList(events));
+		}
+	}
+
+	/**
+	 * Removes an event which was removed from the list from the days it
+	 * occurred on.
+	 * @param e The event.
+	 */
+	synchronized void removed(Event e){
+		for (int day : days(e)){
+			List<Event> events = new ArrayList<Event>(m_days.get(day));
+			events.remove(e);
+			m_days.put(day, Collections.unmodifiableList(events));
+		}
+	}
+
+	/**
+	 * Updates the days of an event which was replaced in the list by
+	 * another.<br/>
+	 * The days both occur on keep their order. The days only the new
+	 * event occurs on are forgotten, as finding where it goes in them
+	 * would mean looking through the list.
+	 * @param old The event which was replaced.
+	 * @param e The event which took its place.
+	 */
+	synchronized void replaced(Event old, Event e){
+		List<Integer> oldDays = days(old);
+		for (int day : oldDays){
+			List<Event> events = new ArrayList<Event>(m_days.get(day));
+			int i = events.indexOf(old);
+			if (occursOn(e, day))
+				events.set(i, e);
+			else
+				events.remove(i);
+			m_days.put(day, Collections.unmodifiableList(events));
+		}
+		for (int day : days(e))
+			if (!oldDays.contains(day))
+				m_days.remove(day);
+	}
+
+	/**
+	 * Forgets every day.
+	 */
+	synchronized void clear(){
+		m_days.clear();
+	}
+
+	/**
+	 * Finds the cached days an event occurs on.
+	 * @param e The event.
+	 * @return The numbers of the days.
+	 */
+	private List<Integer> days(Event e){
+		List<Integer> found = new ArrayList<Integer>();
+		if (e.getRepetitionKind() == Repetition.NO){
+			//A one-off event can only be on its starting day.
+			if (e.getStartingDateTime() != null){
+				int start = Recurrence.toEpochDay(e.getStartingDateTime());
+				if (m_days.containsKey(start))
+					found.add(start);
+			}
+			return found;
+		}
+		for (int day : m_days.keySet())
+			if (occursOn(e, day))
+				found.add(day);
+		return found;
+	}
+
+	/**
+	 * Checks if an event occurs on a numbered day.
+	 * @param e The event.
+	 * @param day The number of the day.
+	 * @return True if it does.
+	 */
+	private static boolean occursOn(Event e, int day){
+		return Recurrence.occurrences(e, day, day + 1).hasNext();
+	}
+
+	/** The greatest number of days kept, a little over four years. */
+	private static final int MAX_DAYS = 1500;
+	/** The events of each day, the least recently asked for day first. */
+	private Map<Integer, List<Event>> m_days =
+			new LinkedHashMap<Integer, List<Event>>(16, 0.75f, true){
+		protected boolean removeEldestEntry(
+				Map.Entry<Integer, List<Event>> eldest){
+			return size() > MAX_DAYS;
+		}
+	};
+}
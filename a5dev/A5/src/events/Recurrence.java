@@ -0,0 +1,442 @@
+/**
+ * @file Recurrence.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the Recurrence class.
+ */
+
+/**
+ * @package events
+ * @brief Everything about calendar events, except icon resources.
+ */
+package events;
+
+import hirondelle.date4j.DateTime;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @brief Works out the days a repeating event occurs on.
+ *
+ * An event occurs on its starting day and, if it repeats, on every later
+ * day matching its repetition: every day, the same week day, the same day
+ * of the month, or the same day and month. An event repeating on a day
+ * which a month or a year does not have, such as the 31st or the 29th of
+ * February, is skipped in that month or year.<br/>
+ * Days are counted as a number from the 1st of January 1970, so the next
+ * occurrence is found with a few sums instead of stepping through the
+ * calendar a day at a time. Only the times of day are ignored; an event
+ * occurs on a day whatever time it starts.
+ * @author agent
+ */
+public final class Recurrence {
+
+	/** No instances, only static methods. */
+	private Recurrence(){}
+
+	/**
+	 * Checks if an event occurs on a day.
+	 * @param e The event.
+	 * @param day The day; the time of day is ignored.
+	 * @return True if the event occurs on the day, false if it does not or
+	 * if either has no date.
+	 */
+	public static boolean occursOn(Event e, DateTime day){
+		if (e == null || day == null || !day.hasYearMonthDay())
+			return false;
+		int d = toEpochDay(day);
+		return firstFrom(e, d, d + 1) == d;
+	}
+
+	/**
+	 * Gets the days an event occurs on within a range of days. The days
+	 * are worked out one at a time, as they are asked for.
+	 * @param e The event.
+	 * @param from The first day of the range.
+	 * @param to The day after the last day of the range.
+	 * @return The occurrences, in date order.
+	 */
+	public static Occurrences occurrences(Event e, DateTime from, DateTime to){
+		return new Occurrences(e, toEpochDay(from), toEpochDay(to));
+	}
+
+	/**
+	 * Gets the days an event occurs on within a range of days.
+	 * @param e The event.
+	 * @param from The number of the first day of the range.
+	 * @param to The number of the day after the last day of the range.
+	 * @return The occurrences, in date order.
+	 */
+	public static Occurrences occurrences(Event e, int from, int to){
+		return new Occurrences(e, from, to);
+	}
+
+	/**
+	 * Finds the first day in a range an event occurs on.
+	 * @param e The event.
+	 * @param from The number of the first day of the range.
+	 * @param to The number of the day after the last day of the range.
+	 * @return The number of the day, or NONE if the event does not occur
+	 * in the range.
+	 */
+	private static int firstFrom(Event e, int from, int to){
+		Repetition kind = e.getRepetitionKind();
+		DateTime s = e.getStartingDateTime();
+		if (kind == null || s == null || !s.hasYearMonthDay())
+			return NONE;
+		return firstFrom(kind, toEpochDay(s), s.getMonth(), s.getDay(),
+				from, to);
+	}
+
+	/**
+	 * Finds the first day in a range a repetition occurs on.
+	 * @param kind The repetition.
+	 * @param start The number of the starting day.
+	 * @param month The month of the starting day.
+	 * @param day The day of the month of the starting day.
+	 * @param from The number of the first day of the range.
+	 * @param to The number of the day after the last day of the range.
+	 * @return The number of the day, or NONE if there is no occurrence in
+	 * the range.
+	 */
+	private static int firstFrom(Repetition kind, int start, int month,
+			int day, int from, int to){
+		if (from < start)
+			from = start;
+		if (from >= to)
+			return NONE;
+		int found = NONE;
+		switch (kind){
+		case NO:
+			found = from == start ? start : NONE;
+			break;
+		case DAILY:
+			found = from;
+			break;
+		case WEEKLY:
+			found = start + (from - start + DAYS_IN_WEEK - 1)
+					/ DAYS_IN_WEEK * DAYS_IN_WEEK;
+			break;
+		case MONTHLY:
+			found = firstMonthly(day, from, to);
+			break;
+		case YEARLY:
+			found = firstYearly(month, day, from, to);
+			break;
+		}
+		return found < to ? found : NONE;
+	}
+
+	/**
+	 * Finds the first day on or after another which is a given day of a
+	 * month.
+	 * @param day The day of the month.
+	 * @param from The number of the day to search from.
+	 * @param to The number of the day to stop searching at.
+	 * @return The number of the day found, or NONE.
+	 */
+	private static int firstMonthly(int day, int from, int to){
+		int date = toDate(from);
+		int y = yearOf(date), m = monthOf(date);
+		while (toEpochDay(y, m, 1) < to){
+			if (day <= getNumDaysInMonth(y, m)){
+				int found = toEpochDay(y, m, day);
+				if (found >= from)
+					return found;
+			}
+			if (++m > MONTHS_IN_YEAR){
+				m = 1;
+				y++;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Finds the first day on or after another which is a given day of the
+	 * year.
+	 * @param month The month.
+	 * @param day The day of the month.
+	 * @param from The number of the day to search from.
+	 * @param to The number of the day to stop searching at.
+	 * @return The number of the day found, or NONE.
+	 */
+	private static int firstYearly(int month, int day, int from, int to){
+		int y = yearOf(toDate(from));
+		while (toEpochDay(y, 1, 1) < to){
+			if (day <= getNumDaysInMonth(y, month)){
+				int found = toEpochDay(y, month, day);
+				if (found >= from)
+					return found;
+			}
+			y++;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Counts the days from the 1st of January 1970 to a date.
+	 * @param d The date; the time of day is ignored.
+	 * @return The number of the day, negative before 1970.
+	 */
+	public static int toEpochDay(DateTime d){
+		return toEpochDay(d.getYear(), d.getMonth(), d.getDay());
+	}
+
+	/**
+	 * Counts the days from the 1st of January 1970 to a date.
+	 * @param year The year.
+	 * @param month The month, from 1.
+	 * @param day The day of the month, from 1.
+	 * @return The number of the day, negative before 1970.
+	 */
+	public static int toEpochDay(int year, int month, int day){
+		//Counted in 400 year cycles of 146097 days, with years starting in
+		//March so the leap day is the last day of a year.
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5
+				+ day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+				+ dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Gets the date of a day counted from the 1st of January 1970.
+	 * @param epochDay The number of the day.
+	 * @return The date, without a time.
+	 */
+	public static DateTime toDateTime(int epochDay){
+		int date = toDate(epochDay);
+		return DateTime.forDateOnly(yearOf(date), monthOf(date),
+				dayOf(date));
+	}
+
+	/**
+	 * Gets the year of a day counted from the 1st of January 1970.
+	 * @param epochDay The number of the day.
+	 * @return The year.
+	 */
+	public static int getYear(int epochDay){
+		return yearOf(toDate(epochDay));
+	}
+
+	/**
+	 * Gets the month of a day counted from the 1st of January 1970.
+	 * @param epochDay The number of the day.
+	 * @return The month, from 1.
+	 */
+	public static int getMonth(int epochDay){
+		return monthOf(toDate(epochDay));
+	}
+
+	/**
+	 * Gets the day of the month of a day counted from the 1st of January
+	 * 1970.
+	 * @param epochDay The number of the day.
+	 * @return The day of the month, from 1.
+	 */
+	public static int getDay(int epochDay){
+		return dayOf(toDate(epochDay));
+	}
+
+	/**
+	 * Gets the number of days in a month.
+	 * @param year The year.
+	 * @param month The month, from 1.
+	 * @return The number of days.
+	 */
+	public static int getNumDaysInMonth(int year, int month){
+		if (month == 2){
+			boolean leap = (year % 4 == 0 && year % 100 != 0)
+					|| year % 400 == 0;
+			return leap ? 29 : 28;
+		}
+		return DAYS_IN_MONTH[month - 1];
+	}
+
+	/**
+	 * Works out the date of a day counted from the 1st of January 1970.
+	 * @param epochDay The number of the day.
+	 * @return The year, month and day packed into an int, to be read with
+	 * yearOf(), monthOf() and dayOf().
+	 */
+	private static int toDate(int epochDay){
+		int z = epochDay + 719468;
+		int era = (z >= 0 ? z : z - 146096) / 146097;
+		int dayOfEra = z - era * 146097;
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524
+				- dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4
+				- yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return (year << 9) | (month << 5) | day;
+	}
+
+	/**
+	 * Reads the year of a packed date.
+	 * @param date The date from toDate().
+	 * @return The year.
+	 */
+	private static int yearOf(int date){ return date >> 9;}
+
+	/**
+	 * Reads the month of a packed date.
+	 * @param date The date from toDate().
+	 * @return The month.
+	 */
+	private static int monthOf(int date){ return (date >> 5) & 0xF;}
+
+	/**
+	 * Reads the day of a packed date.
+	 * @param date The date from toDate().
+	 * @return The day of the month.
+	 */
+	private static int dayOf(int date){ return date & 0x1F;}
+
+	/**
+	 * @brief The days an event occurs on within a range, worked out one at
+	 * a time.
+	 *
+	 * The days can be read either as dates or, without creating any
+	 * objects, as numbers counted from the 1st of January 1970.
+	 */
+	public static class Occurrences implements Iterator<DateTime> {
+		/**
+		 * Creates the iterator.
+		 * @param e The event.
+		 * @param from The number of the first day of the range.
+		 * @param to The number of the day after the last day of the range.
+		 */
+		private Occurrences(Event e, int from, int to){
+			m_to = to;
+			m_next = NONE;
+			m_kind = e.getRepetitionKind();
+			DateTime s = e.getStartingDateTime();
+			if (m_kind == null || s == null || !s.hasYearMonthDay())
+				return;
+			//Read once, so the next occurrences are found with sums alone.
+			m_start = toEpochDay(s);
+			m_month = s.getMonth();
+			m_day = s.getDay();
+			m_next = firstFrom(m_kind, m_start, m_month, m_day, from, to);
+		}
+
+		/**
+		 * Checks if there is another occurrence.
+		 * @return True if there is.
+		 */
+		public boolean hasNext(){
+			return m_next != NONE;
+		}
+
+		/**
+		 * Gets the next occurrence as a number of days.
+		 * @return The number of the day, counted from the 1st of January 1970.
+		 */
+		public int nextEpochDay(){
+			if (m_next == NONE)
+				throw new NoSuchElementException();
+			int day = m_next;
+			m_next = day + 1 < m_to
+					? firstFrom(m_kind, m_start, m_month, m_day, day + 1, m_to)
+					: NONE;
+			return day;
+		}
+
+		/**
+		 * Gets the next occurrence.
+		 * @return The day, without a time.
+		 */
+		public DateTime next(){
+			return toDateTime(nextEpochDay());
+		}
+
+		/**
+		 * Occurrences can't be removed.
+		 */
+		public void remove(){
+			throw new UnsupportedOperationException();
+		}
+
+		/** The repetition of the event. */
+		private Repetition m_kind;
+		/** The number of the starting day of the event. */
+		private int m_start;
+		/** The month of the starting day. */
+		private int m_month;
+		/** The day of the month of the starting day. */
+		private int m_day;
+		/** The number of the day after the last day of the range. */
+		private int m_to;
+		/** The number of the next day the event occurs on, or NONE. */
+		private int m_next;
+	}
+
+	/**
+	 * The main method, used for testing.
+	 * @param args Arguments will be ignored.
+	 */
+	public static void main(String[] args){
+		/** @test toEpochDay() and toDateTime() agree with each other. */
+		System.out.print("test1----------------------");
+		DateTime d = new DateTime("1970-01-01");
+		boolean pass = toEpochDay(d) == 0;
+		for (int i = -800; i < 800 && pass; i++){
+			DateTime day = d.plusDays(i * 97);
+			pass = toEpochDay(day) == i * 97
+					&& toDateTime(i * 97).isSameDayAs(day);
+		}
+		System.out.println(pass ? "Passed" : "Failed");
+
+		/** @test A monthly event on the 31st skips the shorter months. */
+		System.out.print("test2----------------------");
+		Event e = new Event("2012-04-09 10:00:00.000001", "A", "Other",
+				new DateTime("2012-01-31 10:00:00"), null, "", "Monthly",
+				"", "");
+		Occurrences it = occurrences(e, new DateTime("2012-01-01"),
+				new DateTime("2013-01-01"));
+		int count = 0;
+		while (it.hasNext()){
+			it.next();
+			count++;
+		}
+		System.out.println(count == 7 ? "Passed" : "Failed");
+
+		/** @test A yearly event on the 29th of February. */
+		System.out.print("test3----------------------");
+		e = new Event("2012-04-09 10:00:00.000002", "B", "Other",
+				new DateTime("2012-02-29 10:00:00"), null, "", "Yearly",
+				"", "");
+		System.out.println(occursOn(e, new DateTime("2016-02-29"))
+				&& !occursOn(e, new DateTime("2013-02-28"))
+				&& !occursOn(e, new DateTime("2011-02-28"))
+				? "Passed" : "Failed");
+
+		/** @test A weekly event occurs on its week day from its start on. */
+		System.out.print("test4----------------------");
+		e = new Event("2012-04-09 10:00:00.000003", "C", "Other",
+				new DateTime("2012-04-09 10:00:00"), null, "", "weekly",
+				"", "");
+		System.out.println(occursOn(e, new DateTime("2012-04-16"))
+				&& !occursOn(e, new DateTime("2012-04-02"))
+				&& !occursOn(e, new DateTime("2012-04-17"))
+				? "Passed" : "Failed");
+	}
+
+	/** Marks that an event does not occur. */
+	private static final int NONE = Integer.MIN_VALUE;
+	/** The number of days in a week. */
+	private static final int DAYS_IN_WEEK = 7;
+	/** The number of months in a year. */
+	private static final int MONTHS_IN_YEAR = 12;
+	/** The number of days in each month of a year which is not a leap year. */
+	private static final int[] DAYS_IN_MONTH =
+			{31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+}
@@ -0,0 +1,54 @@
+/**
+ * @file Repetition.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Contains the Repetition enum.
+ */
+
+/**
+ * @package events
+ * @brief Everything about calendar events, except icon resources.
+ */
+package events;
+
+/**
+ * @brief The periods an event can repeat with, as in Event.REPEATS.
+ *
+ * The repetition of an event is stored as a string, which is parsed once
+ * when it is set instead of being compared every time a view is drawn.
+ * @author agent
+ */
+public enum Repetition {
+	/** The event happens once. */
+	NO,
+	/** The event happens every day. */
+	DAILY,
+	/** The event happens on the same week day every week. */
+	WEEKLY,
+	/** The event happens on the same day every month. */
+	MONTHLY,
+	/** The event happens on the same day and month every year. */
+	YEARLY;
+
+	/**
+	 * Gets the string this repetition is stored as.
+	 * @return The matching entry of Event.REPEATS.
+	 */
+	public String getName(){
+		return Event.REPEATS[ordinal()];
+	}
+
+	/**
+	 * Parses a repetition, ignoring the case.
+	 * @param r The repetition, as stored in an event.
+	 * @return The repetition, or null if r is not one of Event.REPEATS.
+	 */
+	public static Repetition parse(String r){
+		if (r == null)
+			return null;
+		for (Repetition rep : values())
+			if (rep.getName().equalsIgnoreCase(r))
+				return rep;
+		return null;
+	}
+}
@@ -0,0 +1,284 @@
+/**
+ * \file BulkImporter.java
+ * \author agent
+ * \date 18/10/26
+ * \see http://opencsv.sourceforge.net
+ * \brief Imports very large CSV files using every core.
+ *
+ * Loading a record at a time through one CSVReader, and building each
+ * event or contact as it is read, leaves all but one core idle. Exports
+ * from other calendar systems can be hundreds of megabytes, so large files
+ * are instead cut into chunks at record boundaries and the chunks read,
+ * parsed and built in parallel.
+ */
+
+package file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+/**
+ * @brief Parses a CSV file in parallel chunks and merges them in file order.
+ * @author agent
+ *
+ * The file is scanned once for the new lines which are outside of quotes,
+ * those are the only places a record can end. The file is cut at the first
+ * such new line after every CHUNK_SIZE bytes. Every chunk is then read by
+ * a worker at its own position in the file and parsed by its own
+ * CSVReader, so the records are read exactly as load() reads them, and
+ * each record is built into an object on the same worker.<br/>
+ * The file is not memory mapped: a mapping outlives the closed file until
+ * it is garbage collected, and on Windows the file manager could not
+ * replace the file while it lasts.<br/>
+ * The header line is skipped, it has already been checked by the file
+ * manager. Records with the wrong number of fields are returned as null so
+ * the caller can report them.
+ * @param <T> The type of object built from each record.
+ */
+public class BulkImporter<T> {
+
+	/**
+	 * @brief Builds an object from the fields of a record.
+	 * Called from several threads at once.
+	 * @param <T> The type of object built.
+	 */
+	public interface RecordBuilder<T> {
+		/**
+		 * This method builds the object for a record.
+		 * @param record The fields of the record, of the expected size.
+		 * @return The object, or null if the record is erroneous.
+		 */
+		T build(String[] record);
+	}
+
+	/**
+	 * This is the constructor for the importer.
+	 * @param recordSize The number of fields in a record.
+	 * @param builder Builds the objects from the records.
+	 */
+	public BulkImporter(int recordSize, RecordBuilder<T> builder){
+		m_RecordSize = recordSize;
+		m_Builder = builder;
+	}
+
+	/**
+	 * This method checks if the last file imported ended with a new line.
+	 * @return True if it did, or if it was empty.
+	 */
+	public boolean endsWithNewLine(){
+		return m_EndsWithNewLine;
+	}
+
+	/**
+	 * This method imports every record after the header of a file.
+	 * @param file The file to be imported.
+	 * @return The objects in file order, null for a record with the wrong
+	 * number of fields.
+	 * @throws IOException If the file can't be read or is too big.
+	 */
+	public List<T> importFile(File file) throws IOException{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try{
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE){
+				throw new IOException(file + " is too large to be imported");
+			}
+			m_EndsWithNewLine = true;
+			if (size == 0){
+				return new ArrayList<T>();
+			}
+			ByteBuffer last = ByteBuffer.allocate(1);
+			readFully(channel, last, size - 1);
+			m_EndsWithNewLine = (last.get(0) == '\n' || last.get(0) == '\r');
+
+			int[] bounds = findChunks(channel, (int) size);
+			//Every chunk has been read by the time the pool returns.
+			return ForkJoinPool.commonPool().invoke(
+					new ChunkTask(channel, bounds, 0, bounds.length - 1));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * This method finds where the chunks start and end.
+	 * A chunk always ends just after a new line which is not inside quotes.
+	 * @param channel The file.
+	 * @param size The size of the file.
+	 * @return The offsets of the chunk boundaries, the first being the end
+	 * of the header and the last the end of the file.
+	 * @throws IOException If the file can't be read.
+	 */
+	private int[] findChunks(FileChannel channel, int size)
+			throws IOException{
+		List<Integer> bounds = new ArrayList<Integer>();
+		ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+		boolean quoted = false;
+		//The header is skipped, so the first boundary is the end of it.
+		int next = 0;
+		for (int offset = 0; offset < size; offset += block.limit()){
+			block.clear();
+			block.limit(Math.min(SCAN_BLOCK_SIZE, size - offset));
+			readFully(channel, block, offset);
+			for (int j = 0; j < block.limit(); j++){
+				byte b = block.get(j);
+				int i = offset + j;
+				if (b == QUOTE){
+					//Quotes inside a field are doubled, so they cancel out.
+					quoted = !quoted;
+				} else if (b == '\n' && !quoted && i >= next){
+					bounds.add(i + 1);
+					next = i + 1 + CHUNK_SIZE;
+				}
+			}
+		}
+		if (bounds.isEmpty()){
+			//Only a header, with no new line after it.
+			bounds.add(size);
+		}
+		if (bounds.get(bounds.size() - 1) != size){
+			bounds.add(size);
+		}
+
+		int[] result = new int[bounds.size()];
+		for (int i = 0; i < result.length; i++){
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * This method fills a buffer from a position in a file, without moving
+	 * the file's own position, so several threads can read at once.
+	 * @param channel The file.
+	 * @param buffer The buffer, filled up to its limit.
+	 * @param position The offset in the file to read from.
+	 * @throws IOException If the file can't be read or ends too soon.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException{
+		while (buffer.hasRemaining()){
+			int read = channel.read(buffer, position);
+			if (read < 0){
+				throw new IOException("The file ended while being read");
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * This method reads one chunk of the file, parses it and builds its
+	 * records.
+	 * @param channel The file.
+	 * @param start The offset of the first byte of the chunk.
+	 * @param end The offset just after the last byte of the chunk.
+	 * @return The objects of the chunk, in file order.
+	 * @throws IOException If the chunk can't be read or parsed.
+	 */
+	private List<T> parseChunk(FileChannel channel, int start, int end)
+			throws IOException{
+		byte[] bytes = new byte[end - start];
+		readFully(channel, ByteBuffer.wrap(bytes), start);
+
+		List<T> objects = new ArrayList<T>();
+		CSVReader reader = new CSVReader(new StringReader(
+				new String(bytes, Charset.defaultCharset())));
+		String[] record;
+		while ((record = reader.readNext()) != null){
+			if (record.length == m_RecordSize){
+				objects.add(m_Builder.build(record));
+			} else if (!(record.length == 1 && record[0].isEmpty())){
+				objects.add(null);
+			}
+		}
+		reader.close();
+		return objects;
+	}
+
+	/**
+	 * @brief Parses a range of chunks, splitting it between workers.
+	 */
+	@SuppressWarnings("serial")
+	private class ChunkTask extends RecursiveTask<List<T>> {
+
+		/**
+		 * This is the constructor for the task.
+		 * @param channel The file.
+		 * @param bounds The chunk boundaries.
+		 * @param first The index of the first chunk.
+		 * @param last The index just after the last chunk.
+		 */
+		ChunkTask(FileChannel channel, int[] bounds, int first, int last){
+			m_Channel = channel;
+			m_Bounds = bounds;
+			m_First = first;
+			m_Last = last;
+		}
+
+		/**
+		 * This method parses the chunks, splitting the range in half
+		 * until there is one chunk left.
+		 * @return The objects of the chunks, in file order.
+		 */
+		protected List<T> compute(){
+			if (m_Last - m_First <= 1){
+				if (m_Last == m_First){
+					return new ArrayList<T>();
+				}
+				try{
+					return parseChunk(m_Channel, m_Bounds[m_First],
+							m_Bounds[m_Last]);
+				} catch (IOException ioe){
+					throw new RuntimeException(ioe);
+				}
+			}
+			int middle = (m_First + m_Last) / 2;
+			ChunkTask left =
+					new ChunkTask(m_Channel, m_Bounds, m_First, middle);
+			ChunkTask right =
+					new ChunkTask(m_Channel, m_Bounds, middle, m_Last);
+			left.fork();
+			List<T> objects = right.compute();
+			List<T> merged = left.join();
+			//The left half comes first in the file.
+			merged.addAll(objects);
+			return merged;
+		}
+
+		/** The file. */
+		private FileChannel m_Channel;
+		/** The chunk boundaries. */
+		private int[] m_Bounds;
+		/** The index of the first chunk. */
+		private int m_First;
+		/** The index just after the last chunk. */
+		private int m_Last;
+	}
+
+	/**
+	 * The minimum number of bytes in a chunk.
+	 */
+	public static final int CHUNK_SIZE = 1 << 20;
+	/** The number of bytes read at a time while looking for chunks. */
+	private static final int SCAN_BLOCK_SIZE = 1 << 16;
+	/** The quote character used by CSVWriter. */
+	private static final byte QUOTE = '"';
+	/** The number of fields in a record. */
+	private int m_RecordSize;
+	/** Builds the objects from the records. */
+	private RecordBuilder<T> m_Builder;
+	/** True if the last file imported ended with a new line. */
+	private boolean m_EndsWithNewLine = true;
+}
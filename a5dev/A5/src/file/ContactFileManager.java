@@ -70,14 +70,13 @@ public class ContactFileManager extends FileManager{
 	 */
 	public ContactFileManager(String name){
 		super(name);
+		this.setJournal(new Journal(name, Contact.ARRAY_SIZE));
 		try{
 			//If file dosent exist create it and writ the header to it.
 			if(!this.getFile().exists()){
 				System.out.println("Creating the file");
 				this.getFile().createNewFile();
 				this.writeHeader();
-			} else {
-				this.isEOFBlank();
 			}
 		} catch (IOException ioe){
 			System.out.println("Exception caught, the exception was: " + ioe);
@@ -85,50 +84,11 @@ public class ContactFileManager extends FileManager{
 	}
 	
 	/**
-	 * This method loads the contacts details from the csv file, 
-	 * then creates an contact object and sets the objects fields
-	 * to the fields loaded.
-	 * Finally it adds the event to the contact list.
-	 * @return True if loaded successfully.
+	 * This method gets the header the contact file must start with.
+	 * @return The contact header.
 	 */
-	public boolean load(){
-		//This shows whether the file was loaded succesfully.
-		boolean success = true;
-		//Try catching IO exceptions.
-		try{
-			//Initialise the filereader,CSVReader objects.
-			FileReader fileReader = new FileReader(getFile());
-			CSVReader reader = new CSVReader(fileReader);
-			StringArrayComparer csa = new StringArrayComparer();
-			
-			String[] headerArray = reader.readNext();
-			
-			//If the loaded header does not equal the expected header.
-			if(!(csa.equalArrays(headerArray, 
-					Contact.getHeaderStringArray()))){
-				//Showing the error and copying the file.
-				this.showFileError();
-				this.copyFile();
-			
-			} else {
-				addToAddressBook(reader);
-				
-				//Close the reader and writer.
-				reader.close();
-				fileReader.close();
-			}
-			
-		} catch (IOException ioe){
-			System.out.println("IOException caught, the exception was: "
-											+ ioe);
-			success = false;
-		} catch (SecurityException se){
-			System.out.println("SecurityException caught, the exception was: "
-					+ se);
-			success = false;
-		}
-			
-		return success;
+	protected String[] getHeader(){
+		return Contact.getHeaderStringArray();
 	}
 	
 	/**
@@ -140,8 +100,10 @@ public class ContactFileManager extends FileManager{
 		boolean success = true;
 		try{
 			//Creating a file writer,CSVwriter and CVSParser object.
-			//File writer will overwrite the file and not append to it.
-			FileWriter fileWriter = new FileWriter(getFile(),false);
+			//The new contents go to a temporary file, the file itself is 
+			//only replaced once they are completely written.
+			File temp = getTempFile();
+			FileWriter fileWriter = new FileWriter(temp,false);
 			CSVWriter writer = new CSVWriter(fileWriter);
 			
 			//This array stores the details of the contact to be written to the file.
@@ -151,17 +113,22 @@ public class ContactFileManager extends FileManager{
 			String[] headerArray = Contact.getHeaderStringArray();
 			writer.writeNext(headerArray);
 			
+			//Copy the list first, this may be running on the writer thread.
+			Contact[] contacts = DigitalOrganiser.getAddressBook().toArray();
+			
 			//For every contact in the address book.
-			for(int i=0; i<DigitalOrganiser.getAddressBook().getSize(); i++){
+			for(int i=0; i<contacts.length; i++){
 				//Get the array of the contact details.
-				toWriteArray = DigitalOrganiser.getAddressBook().
-								getContact(i).getAsStingArray();
+				toWriteArray = contacts[i].getAsStingArray();
 				//Write the contact fields to file.								
 				writer.writeNext(toWriteArray);
 			}	
 			//Close the writers.
 			writer.close();
 			fileWriter.close();	
+			
+			//Swap the new file in.
+			success = this.commitTempFile(temp);
 				
 		} catch (IOException ioe){
 			System.out.println("Caught IOException, the exception was: " + ioe);
@@ -173,43 +140,62 @@ public class ContactFileManager extends FileManager{
 	
 	/**
 	 * This method will write a single contact to the file.
+	 * In journal mode it is appended to the journal instead.
 	 * @param c This is the contact object to be written.
 	 * @return True if written correctly.
 	 */
 	public boolean write(Contact c){
-		boolean success = true;
-		
-		try{
-		//Creating a file writer,CSVwriter and CVSParser object.
-		//File writer will overwrite the file and not append to it.
-		FileWriter fileWriter = new FileWriter(getFile(),true);
-		CSVWriter writer = new CSVWriter(fileWriter);
-		//This array stores the details of the contact to be written to the file.
-		String[] toWriteArray = c.getAsStingArray();
-
-		//Write the contact fields to file.								
-		writer.writeNext(toWriteArray);
-		
-		//Close the writers.
-		writer.close();
-		fileWriter.close();	
-			
-		}catch(IOException ioe){
-			System.out.println("IOException caught, the exception was: " + ioe);
-			success = false;
+		if(getJournalMode()){
+			return journal(getJournal().addLine(c.getAsStingArray()));
 		}
-		
-		return success;
+		if(getWriteBehindMode()){
+			return this.rewrite();
+		}
+		return this.append(c.getAsStingArray());
+	}
+	
+	/**
+	 * This method saves an edited contact.
+	 * In journal mode the edit is appended to the journal, otherwise
+	 * the whole file is rewritten.
+	 * @param id The ID of the contact that was replaced.
+	 * @param c The new contact.
+	 * @return True if written correctly.
+	 */
+	public boolean writeEdit(String id, Contact c){
+		if(getJournalMode()){
+			return journal(getJournal().editLine(id, c.getAsStingArray()));
+		}
+		return this.rewrite();
+	}
+	
+	/**
+	 * This method saves the removal of a contact.
+	 * In journal mode the removal is appended to the journal, otherwise
+	 * the whole file is rewritten.
+	 * @param id The ID of the removed contact.
+	 * @return True if written correctly.
+	 */
+	public boolean writeRemove(String id){
+		if(getJournalMode()){
+			return journal(getJournal().removeLine(id));
+		}
+		return this.rewrite();
 	}
 	
 	/**
 	 * This method tests if the contact array loaded is of the correct size
-	 * and if so passes it to the address book.
-	 * It also lets you load a max of 1000 contacts.
+	 * and has valid fields, and if so passes it to the address book. Every
+	 * error found is printed with the line it came from.
+	 * All the contacts are loaded, but a warning is given if there are more
+	 * than the address book's soft limit.
 	 * @param reader This read object created in load.
+	 * @param replayed The records with the journal applied, or null to read
+	 * them straight from the reader.
 	 * @return True if executed correctly.
 	 */
-	private boolean addToAddressBook(CSVReader reader){
+	protected boolean addRecords(CSVReader reader,
+			Iterator<String[]> replayed){
 		boolean success = true; 
 		int loadedContacts = 0;
 		int totalContacts =0;
@@ -219,40 +205,40 @@ public class ContactFileManager extends FileManager{
 			String[] nextLineArray;
 	
 			//Loading the contact array one by one.
-			while (((nextLineArray = reader.readNext()) != null)
-					& loadedContacts <AddressBook.SIZE_LIMIT) {	
-				try{
-					//If the loaded array is of the expected size.
-					if(correctArraySize(nextLineArray)){
-						if(DigitalOrganiser.getAddressBook().
-								addContact(nextLineArray)){
-							loadedContacts++;
+			//Loaded as one batch, so the display is refreshed once.
+			DigitalOrganiser.getAddressBook().beginBatch();
+			try{
+				int line = FIRST_RECORD_LINE - 1;
+				while ((nextLineArray = nextRecord(reader, replayed)) != null) {	
+					line++;
+					try{
+						//If the loaded array is of the expected size.
+						if(correctArraySize(nextLineArray)){
+							//Add it only if every field of it is valid.
+							if(this.reportRecordErrors(line, 
+									Contact.validateStringArray(nextLineArray)) &&
+									DigitalOrganiser.getAddressBook().
+									addContact(nextLineArray)){
+								loadedContacts++;
+							}
+							totalContacts++;
+						} else {
+							System.err.println("Line " + line + ": Loaded " +
+									"contact has not got the correct number " +
+									"of fields");
 						}
-						totalContacts++;
-					} else {
-						System.err.println("Loaded contact has not got the " +
-								"correct number of fields");
-					}
 					
-				} catch (NullPointerException npe){
-					System.out.println("NullPointerException caught, " +
-							"the exception was: " + npe);
-					success = false;
-				}
+					} catch (NullPointerException npe){
+						System.out.println("NullPointerException caught, " +
+								"the exception was: " + npe);
+						success = false;
+					}
 	
+				}
+			} finally {
+				DigitalOrganiser.getAddressBook().commitBatch();
 			}
-			//If too many contacts have tried to be loaded.
-			if (loadedContacts == AddressBook.SIZE_LIMIT){
-				System.out.println("1000 contacts loaded, Cannot load " +
-						"anymore contacts");
-				this.setMaxLoaded(true);
-			}
-			if(getMaxLoaded()){
-				this.showMaxError();
-			}
-			if(loadedContacts != totalContacts){
-				showContactError(loadedContacts, totalContacts);
-			}
+			this.reportLoaded(loadedContacts, totalContacts);
 		} catch(IOException ioe){
 			System.out.println("IOException caught, the exception was: " + ioe);
 		}
@@ -261,6 +247,89 @@ public class ContactFileManager extends FileManager{
 		
 	}
 	
+	/**
+	 * This method loads a large contact file using the bulk importer, which
+	 * parses, checks and builds the contacts in parallel. They are then added to
+	 * the address book in file order.
+	 * @return True if executed correctly.
+	 * @throws IOException If the file can't be read.
+	 */
+	protected boolean bulkLoad() throws IOException{
+		List<CheckedRecord<Contact>> records = this.bulkImport(
+				Contact.ARRAY_SIZE, 
+				new BulkImporter.RecordBuilder<CheckedRecord<Contact>>(){
+			public CheckedRecord<Contact> build(String[] record){
+				List<String> errors = Contact.validateStringArray(record);
+				if(!errors.isEmpty()){
+					return new CheckedRecord<Contact>(null, errors);
+				}
+				Contact c = new Contact();
+				c.setFromStringArray(record);
+				return new CheckedRecord<Contact>(c, errors);
+			}
+		});
+		
+		int loadedContacts = 0;
+		int totalContacts = 0;
+		int line = FIRST_RECORD_LINE - 1;
+		//Loaded as one batch, so the display is refreshed once.
+		DigitalOrganiser.getAddressBook().beginBatch();
+		try{
+			for(CheckedRecord<Contact> record : records){
+				line++;
+				if(record == null){
+					System.err.println("Line " + line + ": Loaded contact " +
+							"has not got the correct number of fields");
+					continue;
+				}
+				totalContacts++;
+				if(!this.reportRecordErrors(line, record.getErrors())){
+					continue;
+				}
+				if(DigitalOrganiser.getAddressBook().addLoadedContact(
+						record.getObject())){
+					loadedContacts++;
+				}
+			}
+		} finally {
+			DigitalOrganiser.getAddressBook().commitBatch();
+		}
+		return this.reportLoaded(loadedContacts, totalContacts);
+	}
+	
+	/**
+	 * This method tells the user if more contacts than the address book's soft
+	 * limit were loaded, or if some of them were erroneous.
+	 * @param loaded Number of contacts loaded.
+	 * @param total Total numbers of contacts.
+	 * @return True if executed correctly.
+	 */
+	private boolean reportLoaded(int loaded, int total){
+		//If more contacts than the soft limit have been loaded.
+		int softLimit = DigitalOrganiser.getAddressBook().getSoftLimit();
+		if (loaded > softLimit){
+			System.out.println(loaded + " contacts loaded, " +
+					"over the soft limit of " + softLimit);
+			this.setMaxLoaded(true);
+		}
+		if(this.getMaxLoaded()){
+			this.showSizeWarning(loaded);
+		}
+		if(loaded != total){
+			showContactError(loaded, total);
+		}
+		return true;
+	}
+	
+	/**
+	 * This method shows the error and copies the erroneous file.
+	 * @return True if successful.
+	 */
+	protected boolean recoverFile(){
+		this.showFileError();
+		return this.copyFile();
+	}
+	
 	/**
 	 * This method tells the user its copying the file, sets the
 	 * corruptInputFile variable to true, then copies the old
@@ -293,6 +362,9 @@ public class ContactFileManager extends FileManager{
 			src.createNewFile();
 			this.writeHeader();
 			
+			//The journal belonged to the erroneous file.
+			getJournal().clear();
+			
 		} catch (IOException ioe){
 			System.out.println("IOException caught, the exception was: " 
 					+ ioe);
@@ -381,18 +453,19 @@ public class ContactFileManager extends FileManager{
 	}
 	
 	/**
-	 * This method produces a error pane telling the user
-	 * that the contact file is too large and only the first 1000
-	 * contacts have been loaded.
+	 * This method produces a warning pane telling the user
+	 * that the contact file is very large, all the contacts have
+	 * been loaded but the program may be slower.
+	 * @param loaded Number of contacts loaded.
 	 * @return True if executed correctly.
 	 */
-	private boolean showMaxError(){
+	private boolean showSizeWarning(int loaded){
 		JOptionPane.showMessageDialog(null, 
-				"The file is too large, only the" + "\n" +
-				"first 1000 contacts have been," + "\n" +
-				"loaded.",
-				"Contact File Too Large"
-				, JOptionPane.ERROR_MESSAGE);
+				"The file is very large." + "\n" +
+				"All " + loaded + " contacts have been" + "\n" +
+				"loaded, but searching may be slower.",
+				"Large Contact File"
+				, JOptionPane.WARNING_MESSAGE);
 		return true;
 	}
 	
@@ -413,7 +486,8 @@ public class ContactFileManager extends FileManager{
 		 * 4. Testing loading a file with an incorrect header.
 		 * 5. Testing loading a file with extra collumns in it.
 		 * 6. Testing loading a completely empty file.
-		 * 7. Testing loading an extremely large file with over 1000 contacts.
+		 * 7. Testing loading an extremely large file with over 1000 contacts
+		 *    while the soft limit is set to 1000.
 		 * 8. Testing loading a erroneous file in the form of a JPG file which
 		 *    is renamed to the csv format.
 		 * 9. Testing loading a file which dosent exist. (Choosing a filename
@@ -645,16 +719,15 @@ public class ContactFileManager extends FileManager{
 		
 		System.out.println("Clearing the address book");
 		DigitalOrganiser.getAddressBook().clear();
+		DigitalOrganiser.getAddressBook().setSoftLimit(1000);
 		
 		cfm7.load();
 		
 		System.out.println("Due to this file having more than 1000 contacts " +
-				"only the first 1000 should be loaded and an error message " +
-				"should appear");
+				"a warning message should appear");
 		
-		System.out.println("The address book should be size 1000, only " +
-				"1000 contacts should have been allowed into " +
-				"the system.");
+		System.out.println("The address book should hold every contact " +
+				"from the file, the soft limit does not stop loading.");
 		System.out.println("The address book size is: " + 
 				DigitalOrganiser.getAddressBook().getSize());	
 		System.out.println();
@@ -28,6 +28,7 @@ import java.util.*;
 
 import javax.swing.JOptionPane;
 
+import events.DurationValidator;
 import events.Event;
 import events.EventList;
 import dateAndTime.SystemDate;
@@ -66,13 +67,13 @@ public class EventFileManager extends FileManager{
 	 */
 	public EventFileManager(String name){
 		super(name);
+		this.setJournal(new Journal(name, Event.ARRAY_SIZE));
+		m_Snapshot = new EventSnapshot(this.getFile());
 		try{
 			if(!this.getFile().exists()){
 				System.out.println("Creating the file");
 				this.getFile().createNewFile();
 				this.writeHeader();
-			} else{
-				this.isEOFBlank();
 			}
 		} catch (IOException ioe){
 			System.out.println("Exception caught, the exception was: " + ioe);
@@ -89,52 +90,56 @@ public class EventFileManager extends FileManager{
 	}
 	
 	/**
-	 * This method loads the events details from the csv file, 
-	 * then creates an event object and sets the objects fields
-	 * to the fields loaded.
-	 * Finally it adds the event to the event list.
-	 * Accepts a max of 1,000 events.
+	 * This method gets the header the event file must start with.
+	 * @return The event header.
+	 */
+	protected String[] getHeader(){
+		return Event.getHeaderStringArray();
+	}
+	
+	/**
+	 * This method loads the events, from the snapshot if it is up to date
+	 * and there is nothing in the journal, otherwise from the csv file.
+	 * After a csv file with no erroneous events is loaded a new snapshot 
+	 * is taken, so the next load is fast.
 	 * @return True if loaded successfully.
 	 */
 	public boolean load(){
-		//This shows whether the file was loaded succesfully.
-		boolean success = true;
-		//Try catching IO exceptions.
+		if(!getJournal().hasEntries() && this.loadSnapshot()){
+			return true;
+		}
+		m_LoadedCleanly = false;
+		boolean success = super.load();
+		if(success && m_LoadedCleanly && !getCorruptInputFile() && 
+				!m_Snapshot.isCurrent()){
+			m_Snapshot.write(DigitalOrganiser.getEventList().toArray());
+		}
+		return success;
+	}
+	
+	/**
+	 * This method adds the events in the snapshot to the event list.
+	 * @return True if the snapshot was up to date and loaded.
+	 */
+	private boolean loadSnapshot(){
+		List<Event> events = m_Snapshot.read();
+		if(events == null){
+			return false;
+		}
+		int loadedEvents = 0;
+		//Loaded as one batch, so the display is refreshed once.
+		DigitalOrganiser.getEventList().beginBatch();
 		try{
-			//Initialise the filereader,CSVReader objects.
-			FileReader fileReader = new FileReader(this.getFile());
-			CSVReader reader = new CSVReader(fileReader);
-			StringArrayComparer csa = new StringArrayComparer();
-			
-			String[] headerArray = reader.readNext();
-			
-			//If the loaded header does not equal the expected header.
-			if(!(csa.equalArrays(headerArray, 
-					Event.getHeaderStringArray()))){
-				//Show the error and copy the file.
-				this.showFileError();
-				this.copyFile();
-			} else {
-				//add the event to the event list if it has the correct numbers
-				//of fields.
-				addToEventList(reader);
-			
-				//Close the reader and writer.
-				reader.close();
-				fileReader.close();
-				
+			for(Event e : events){
+				if(DigitalOrganiser.getEventList().addLoadedEvent(e)){
+					loadedEvents++;
+				}
 			}
-		} catch (IOException ioe){
-			System.out.println("IOException caught, the exception was: " + ioe);
-			success = false; 
-		} catch (SecurityException se){
-			System.out.println("SecurityException caught, the exception was: "
-				+ se);
-			success = false;
+		} finally {
+			DigitalOrganiser.getEventList().commitBatch();
 		}
-		
-		return success;
-		
+		this.reportLoaded(loadedEvents, events.size());
+		return true;
 	}
 	
 	/**
@@ -146,8 +151,10 @@ public class EventFileManager extends FileManager{
 		boolean success = true;
 		try{
 			//Creating a file writer,CSVwriter and CVSParser object.
-			//File writer will overwrite the file and not append to it.
-			FileWriter fileWriter = new FileWriter(getFile(),false);
+			//The new contents go to a temporary file, the file itself is 
+			//only replaced once they are completely written.
+			File temp = getTempFile();
+			FileWriter fileWriter = new FileWriter(temp,false);
 			CSVWriter writer = new CSVWriter(fileWriter);
 			
 			//Rewriting the header to the file.
@@ -157,17 +164,27 @@ public class EventFileManager extends FileManager{
 			//This array stores the details of the event to be written to the file.
 			String[] toWriteArray; 
 			
+			//Copy the list first, this may be running on the writer thread.
+			Event[] events = DigitalOrganiser.getEventList().toArray();
+			
 			//For every event in the event list.
-			for(int i=0; i<DigitalOrganiser.getEventList().getSize(); i++){
+			for(int i=0; i<events.length; i++){
 				//Get the array of the events details.
-				toWriteArray = DigitalOrganiser.getEventList().
-								getEvent(i).getAsStingArray();
+				toWriteArray = events[i].getAsStingArray();
 				//Write the events fields to file.								
 				writer.writeNext(toWriteArray);
 			}	
 			//Close the writers.
 			writer.close();
 			fileWriter.close();	
+			
+			//Swap the new file in.
+			success = this.commitTempFile(temp);
+			
+			//The file now holds exactly these events, so snapshot them.
+			if(success){
+				m_Snapshot.write(events);
+			}
 				
 		} catch (IOException ioe){
 			System.out.println("Caught IOException, the exception was: " + ioe);
@@ -179,43 +196,62 @@ public class EventFileManager extends FileManager{
 	
 	/**
 	 * This method will write a single event to the file.
+	 * In journal mode it is appended to the journal instead.
 	 * @param e This is the event object to be written.
 	 * @return True if written correctly.
 	 */
 	public boolean write(Event e){
-		boolean success = true;
-		
-		try{
-		//Creating a file writer,CSVwriter and CVSParser object.
-		//File writer will not overwrite the file and append to it.
-		FileWriter fileWriter = new FileWriter(getFile(),true);
-		CSVWriter writer = new CSVWriter(fileWriter);
-		//This array stores the details of the event to be written to the file.
-		String[] toWriteArray = e.getAsStingArray();
-
-		//Write the events fields to file.								
-		writer.writeNext(toWriteArray);
-		
-		//Close the writers.
-		writer.close();
-		fileWriter.close();	
-			
-		}catch(IOException ioe){
-			System.out.println("IOException caught, the exception was: " + ioe);
-			success = false;
+		if(getJournalMode()){
+			return journal(getJournal().addLine(e.getAsStingArray()));
 		}
-		
-		return success;
+		if(getWriteBehindMode()){
+			return this.rewrite();
+		}
+		return this.append(e.getAsStingArray());
+	}
+	
+	/**
+	 * This method saves an edited event.
+	 * In journal mode the edit is appended to the journal, otherwise
+	 * the whole file is rewritten.
+	 * @param id The ID of the event that was replaced.
+	 * @param e The new event.
+	 * @return True if written correctly.
+	 */
+	public boolean writeEdit(String id, Event e){
+		if(getJournalMode()){
+			return journal(getJournal().editLine(id, e.getAsStingArray()));
+		}
+		return this.rewrite();
+	}
+	
+	/**
+	 * This method saves the removal of an event.
+	 * In journal mode the removal is appended to the journal, otherwise
+	 * the whole file is rewritten.
+	 * @param id The ID of the removed event.
+	 * @return True if written correctly.
+	 */
+	public boolean writeRemove(String id){
+		if(getJournalMode()){
+			return journal(getJournal().removeLine(id));
+		}
+		return this.rewrite();
 	}
 	
 	/**
 	 * This method tests if the event array loaded is of the correct size
-	 * and if so passes it to the event list.
-	 * It also lets you load a max of 1000 events.
+	 * and has valid fields, and if so passes it to the event list. Every
+	 * error found is printed with the line it came from.
+	 * All the events are loaded, but a warning is given if there are more
+	 * than the event list's soft limit.
 	 * @param reader This read object created in load.
+	 * @param replayed The records with the journal applied, or null to read
+	 * them straight from the reader.
 	 * @return True if executed correctly.
 	 */
-	private boolean addToEventList(CSVReader reader){
+	protected boolean addRecords(CSVReader reader, 
+			Iterator<String[]> replayed){
 		boolean success = true;
 		int loadedEvents = 0;
 		int totalEvents = 0;
@@ -224,40 +260,40 @@ public class EventFileManager extends FileManager{
 			//This is an array containing all the fields loaded from the file.
 			String[] nextLineArray;
 			//Reading the events from the file line by line.
-			while (((nextLineArray = reader.readNext()) != null)
-					& (loadedEvents < EventList.SIZE_LIMIT)){
-				try{
-					//If the array loaded is of the correct size.
-					if(correctArraySize(nextLineArray)){
-						//Add the event to the event list.
-						if(DigitalOrganiser.getEventList().
-								addEvent(nextLineArray)){
-							loadedEvents ++;
+			//Loaded as one batch, so the display is refreshed once.
+			DigitalOrganiser.getEventList().beginBatch();
+			try{
+				int line = FIRST_RECORD_LINE - 1;
+				while ((nextLineArray = nextRecord(reader, replayed)) != null){
+					line++;
+					try{
+						//If the array loaded is of the correct size.
+						if(correctArraySize(nextLineArray)){
+							//Add the event to the event list, if every 
+							//field of it is valid.
+							if(this.reportRecordErrors(line, 
+									Event.validateStringArray(nextLineArray)) &&
+									DigitalOrganiser.getEventList().
+									addEvent(nextLineArray)){
+								loadedEvents ++;
+							}
+							totalEvents ++;
+						} else {
+							System.err.println("Line " + line + ": Loaded " +
+									"event has not got the correct number " +
+									"of fields");
 						}
-						totalEvents ++;
-					} else {
-						System.err.println("Loaded event has " +
-								"not got the correct number of fields");
+					} catch(NullPointerException npe){
+						System.out.println("NullPointerException caught, " +
+								"the exception was: " + npe);
+						success = false;
 					}
-				} catch(NullPointerException npe){
-					System.out.println("NullPointerException caught, " +
-							"the exception was: " + npe);
-					success = false;
-				}
 				
-		    }
-			if (loadedEvents == EventList.SIZE_LIMIT){
-				System.out.println(EventList.SIZE_LIMIT + " events loaded, " +
-						"Cannot load anymore events");
-				this.setMaxLoaded(true);
-			}
-			//If 1000 events have been loaded so some have been left off.
-			if(this.getMaxLoaded()){
-				this.showMaxError();
-			}
-			if(loadedEvents != totalEvents){
-				showEventError(loadedEvents, totalEvents);
+			    }
+			} finally {
+				DigitalOrganiser.getEventList().commitBatch();
 			}
+			this.reportLoaded(loadedEvents, totalEvents);
 		} catch(IOException ioe){
 			System.out.println("IOException caught, the exception was " + ioe);
 		}
@@ -266,6 +302,108 @@ public class EventFileManager extends FileManager{
 
 	}
 	
+	/**
+	 * This method loads a large event file using the bulk importer, which
+	 * parses, checks and builds the events in parallel. They are then added to
+	 * the event list in file order.
+	 * @return True if executed correctly.
+	 * @throws IOException If the file can't be read.
+	 */
+	protected boolean bulkLoad() throws IOException{
+		List<CheckedRecord<Event>> records = this.bulkImport(Event.ARRAY_SIZE, 
+				new BulkImporter.RecordBuilder<CheckedRecord<Event>>(){
+			public CheckedRecord<Event> build(String[] record){
+				List<String> errors = Event.validateStringArray(record);
+				if(!errors.isEmpty()){
+					return new CheckedRecord<Event>(null, errors);
+				}
+				Event e = new Event();
+				e.setFromStringArray(record);
+				return new CheckedRecord<Event>(e, errors);
+			}
+		});
+		
+		int loadedEvents = 0;
+		int totalEvents = 0;
+		int line = FIRST_RECORD_LINE - 1;
+		//Loaded as one batch, so the display is refreshed once.
+		DigitalOrganiser.getEventList().beginBatch();
+		try{
+			for(CheckedRecord<Event> record : records){
+				line++;
+				if(record == null){
+					System.err.println("Line " + line + ": Loaded event " +
+							"has not got the correct number of fields");
+					continue;
+				}
+				totalEvents++;
+				if(!this.reportRecordErrors(line, record.getErrors())){
+					continue;
+				}
+				if(DigitalOrganiser.getEventList().addLoadedEvent(
+						record.getObject())){
+					loadedEvents++;
+				}
+			}
+		} finally {
+			DigitalOrganiser.getEventList().commitBatch();
+		}
+		return this.reportLoaded(loadedEvents, totalEvents);
+	}
+	
+	/**
+	 * This method checks the durations of loaded events in parallel. An
+	 * event with an odd duration is still loaded, like when it is entered
+	 * by hand, but a warning is printed for it.
+	 * @param events The loaded events.
+	 * @return True if every duration is valid.
+	 */
+	private boolean reportDurations(Event[] events){
+		List<String> problems = 
+				DurationValidator.getDefault().validateAll(events);
+		for(String problem : problems){
+			System.err.println("Warning, loaded event " + problem);
+		}
+		return problems.isEmpty();
+	}
+	
+	/**
+	 * This method tells the user if more events than the event list's soft
+	 * limit were loaded, or if some of them were erroneous. Every way of
+	 * loading ends here, so the durations of the loaded events are also
+	 * checked here.
+	 * @param loaded Number of events loaded.
+	 * @param total Total numbers of events.
+	 * @return True if executed correctly.
+	 */
+	private boolean reportLoaded(int loaded, int total){
+		m_LoadedCleanly = (loaded == total);
+		this.reportDurations(DigitalOrganiser.getEventList().toArray());
+		//If more events than the soft limit have been loaded.
+		int softLimit = DigitalOrganiser.getEventList().getSoftLimit();
+		if (loaded > softLimit){
+			System.out.println(loaded + " events loaded, " +
+					"over the soft limit of " + softLimit);
+			this.setMaxLoaded(true);
+		}
+		if(this.getMaxLoaded()){
+			this.showSizeWarning(loaded);
+		}
+		if(loaded != total){
+			showEventError(loaded, total);
+		}
+		return true;
+	}
+	
+	/**
+	 * This method shows the error and copies the erroneous file.
+	 * @return True if successful.
+	 */
+	protected boolean recoverFile(){
+		this.showFileError();
+		return this.copyFile();
+	}
+	
 	/**
 	 * This method tells the user its copying the file, sets the
 	 * corruptInputFile variable to true, then copies the old
@@ -302,6 +440,9 @@ public class EventFileManager extends FileManager{
 			//Writing the header to the new file.
 			this.writeHeader();
 			
+			//The journal belonged to the erroneous file.
+			getJournal().clear();
+			
 		} catch (IOException ioe){
 			System.out.println("IOException caught, the exception was: " 
 							  + ioe);
@@ -360,19 +501,20 @@ public class EventFileManager extends FileManager{
 	}
 	
 	/**
-	 * This method produces a error pane telling the user
-	 * that the event file is too large and that only the first
-	 * 1000 events have been loaded.
+	 * This method produces a warning pane telling the user
+	 * that the event file is very large, all the events have
+	 * been loaded but the program may be slower.
+	 * @param loaded Number of events loaded.
 	 * @return True if executed correctly.
 	 */
-	private boolean showMaxError(){
+	private boolean showSizeWarning(int loaded){
 		JOptionPane.showMessageDialog(null, 
-				"The file is too large.\n" +
-				"Only the first "+
-				EventList.SIZE_LIMIT+
-				" events have been loaded.",
-				"Event File Too Large"
-				, JOptionPane.ERROR_MESSAGE);
+				"The file is very large.\n" +
+				"All "+ loaded +
+				" events have been loaded,\n" +
+				"but the calendar may be slower.",
+				"Large Event File"
+				, JOptionPane.WARNING_MESSAGE);
 		return true;
 	}
 	
@@ -422,7 +564,8 @@ public class EventFileManager extends FileManager{
 		 * 4. Testing loading a file with an incorrect header.
 		 * 5. Testing loading a file with extra collumns in it.
 		 * 6. Testing loading a completely empty file.
-		 * 7. Testing loading an extremely large file with over 1000 events.
+		 * 7. Testing loading an extremely large file with over 1000 events
+		 *    while the soft limit is set to 1000.
 		 * 8. Testing loading a erroneous file in the form of a JPG file which
 		 *    is renamed to the csv format.
 		 * 9. Testing loading a file which dosent exist. (Choosing a filename
@@ -630,16 +773,15 @@ public class EventFileManager extends FileManager{
 		
 		System.out.println("Clearing the event list");
 		DigitalOrganiser.getEventList().clear();
+		DigitalOrganiser.getEventList().setSoftLimit(1000);
 		
 		efm7.load();
 		
 		System.out.println("Due to this file having more than 1000 events " +
-				"only the first 1000 should be loaded and an error message " +
-				"should appear");
+				"a warning message should appear");
 		
-		System.out.println("The event list should be size 1000, only " +
-				"1000 events should have been allowed into " +
-				"the system.");
+		System.out.println("The event list should hold every event " +
+				"from the file, the soft limit does not stop loading.");
 		System.out.println("The event list size is: " + 
 				DigitalOrganiser.getEventList().getSize());	
 		System.out.println();
@@ -699,6 +841,16 @@ public class EventFileManager extends FileManager{
 		
 	}
 	
+	/**
+	 * The binary snapshot of the file.
+	 */
+	private EventSnapshot m_Snapshot;
+	
+	/**
+	 * True if every event in the file was loaded by the last load.
+	 */
+	private boolean m_LoadedCleanly = false;
+	
 	/**
 	 * This is the file name all event files will be set to.
 	 */
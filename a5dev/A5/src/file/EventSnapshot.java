@@ -0,0 +1,407 @@
+/**
+ * \file EventSnapshot.java
+ * \author agent
+ * \date 18/10/26
+ * \brief A binary copy of the event file which loads without any parsing.
+ *
+ * Loading the CSV file parses every date and checks every field and ID
+ * again, every time the program starts. The snapshot keeps the events in a
+ * binary form, dates as seconds since the epoch, which is read straight
+ * back into events. The CSV file is still the file that is saved, copied
+ * and imported; the snapshot is only ever a faster way of loading it.
+ */
+
+package file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import events.Event;
+import hirondelle.date4j.DateTime;
+
+/**
+ * @brief Writes and reads the versioned binary snapshot of the events.
+ * @author agent
+ *
+ * The file starts with a magic number, the format version and the length
+ * and modification time of the CSV file it was taken from. It is only used
+ * if the CSV file still has that length and time, any save or append to
+ * the CSV file makes it out of date.<br/>
+ * The categories are written once in a table and every event refers to
+ * its category by number. The repetition is its position in Event.REPEATS.
+ * Strings are written as their length followed by their UTF-8 bytes.
+ * Dates are written as seconds since the epoch in UTC and the precision
+ * they were given to, so they come back exactly as they were.
+ */
+public class EventSnapshot {
+
+	/**
+	 * This is the accessor method for the snapshot file object.
+	 * @return The snapshot file.
+	 */
+	public File getFile(){
+		return m_File;
+	}
+
+	/**
+	 * This is the constructor for the snapshot.
+	 * @param csvFile The event file the snapshot is taken from.
+	 */
+	public EventSnapshot(File csvFile){
+		m_CsvFile = csvFile;
+		m_File = new File(csvFile.getPath() + EXTENSION);
+	}
+
+	/**
+	 * This method writes the events to the snapshot. It must be called
+	 * after the CSV file has been written with the same events.
+	 * The snapshot is written to a temporary file and renamed into place.
+	 * @param events The events to be written.
+	 * @return True if written correctly.
+	 */
+	public boolean write(Event[] events){
+		boolean success = true;
+		File temp = new File(getFile().getPath() + FileManager.TEMP_EXTENSION);
+		try{
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp)));
+
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeLong(m_CsvFile.length());
+			out.writeLong(m_CsvFile.lastModified());
+
+			//The table of categories.
+			Map<String, Integer> categories = new HashMap<String, Integer>();
+			List<String> table = new ArrayList<String>();
+			for (Event e : events){
+				if (!categories.containsKey(e.getCategory())){
+					categories.put(e.getCategory(), table.size());
+					table.add(e.getCategory());
+				}
+			}
+			out.writeInt(table.size());
+			for (String category : table){
+				writeString(out, category);
+			}
+
+			out.writeInt(events.length);
+			for (Event e : events){
+				writeString(out, e.getID());
+				writeString(out, e.getTitle());
+				out.writeInt(categories.get(e.getCategory()));
+				writeDate(out, e.getStartingDateTime());
+				writeDate(out, e.getEndingDateTime());
+				writeString(out, e.getLocation());
+				writeRepetition(out, e.getRepetition());
+				writeString(out, e.getDescription());
+				writeString(out, e.getPersonsInvolved());
+			}
+			out.close();
+
+			try{
+				Files.move(temp.toPath(), getFile().toPath(),
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException amnse){
+				Files.move(temp.toPath(), getFile().toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException ioe){
+			System.out.println("IOException caught, the exception was: " + ioe);
+			success = false;
+		}
+		return success;
+	}
+
+	/**
+	 * This method checks if the snapshot can be loaded instead of the
+	 * CSV file, that is if it was taken from the CSV file as it is now.
+	 * @return True if the snapshot is up to date.
+	 */
+	public boolean isCurrent(){
+		if (!getFile().exists() || !m_CsvFile.exists()){
+			return false;
+		}
+		try{
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(getFile())));
+			try{
+				return readHeader(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException ioe){
+			return false;
+		}
+	}
+
+	/**
+	 * This method reads the events from the snapshot.
+	 * @return The events in file order, or null if the snapshot is out of
+	 * date, from another version or damaged.
+	 */
+	public List<Event> read(){
+		if (!getFile().exists()){
+			return null;
+		}
+		try{
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(getFile())));
+			try{
+				if (!readHeader(in)){
+					return null;
+				}
+
+				String[] categories = new String[in.readInt()];
+				for (int i = 0; i < categories.length; i++){
+					//Every event shares the one string for its category.
+					categories[i] = readString(in);
+				}
+
+				int count = in.readInt();
+				List<Event> events = new ArrayList<Event>(count);
+				for (int i = 0; i < count; i++){
+					String id = readString(in);
+					String title = readString(in);
+					String category = categories[in.readInt()];
+					DateTime start = readDate(in);
+					DateTime end = readDate(in);
+					String location = readString(in);
+					String repetition = readRepetition(in);
+					String description = readString(in);
+					String persons = readString(in);
+					events.add(new Event(id, title, category, start, end,
+							location, repetition, description, persons));
+				}
+				return events;
+			} finally {
+				in.close();
+			}
+		} catch (EOFException eofe){
+			System.out.println("Snapshot: " + getFile() + " is incomplete.");
+		} catch (IOException ioe){
+			System.out.println("IOException caught, the exception was: " + ioe);
+		} catch (RuntimeException re){
+			//A damaged snapshot can hold any values, the CSV file is used.
+			System.out.println("Snapshot: " + getFile() + " is damaged, " + re);
+		}
+		return null;
+	}
+
+	/**
+	 * This method deletes the snapshot.
+	 * @return True if there is no snapshot left.
+	 */
+	public boolean delete(){
+		return !getFile().exists() || getFile().delete();
+	}
+
+	/**
+	 * This method reads the header and checks it against the CSV file.
+	 * @param in The stream of the snapshot.
+	 * @return True if the snapshot is of this version and up to date.
+	 * @throws IOException If the snapshot can't be read.
+	 */
+	private boolean readHeader(DataInputStream in) throws IOException{
+		if (in.readInt() != MAGIC || in.readShort() != VERSION){
+			return false;
+		}
+		long length = in.readLong();
+		long modified = in.readLong();
+		return length == m_CsvFile.length()
+				&& modified == m_CsvFile.lastModified();
+	}
+
+	/**
+	 * This method writes a string as its length and its UTF-8 bytes.
+	 * @param out The stream of the snapshot.
+	 * @param s The string, can be null.
+	 * @throws IOException If the string can't be written.
+	 */
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException{
+		if (s == null){
+			out.writeInt(NULL_LENGTH);
+			return;
+		}
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * This method reads a string written by writeString().
+	 * @param in The stream of the snapshot.
+	 * @return The string, can be null.
+	 * @throws IOException If the string can't be read.
+	 */
+	private static String readString(DataInputStream in) throws IOException{
+		int length = in.readInt();
+		if (length == NULL_LENGTH){
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * This method writes a date as seconds since the epoch and its
+	 * precision. Dates which can't be turned into seconds are written as
+	 * strings.
+	 * @param out The stream of the snapshot.
+	 * @param d The date, can be null.
+	 * @throws IOException If the date can't be written.
+	 */
+	private static void writeDate(DataOutputStream out, DateTime d)
+			throws IOException{
+		if (d == null){
+			out.writeByte(DATE_NONE);
+		} else if (d.unitsAllPresent(DateTime.Unit.YEAR, DateTime.Unit.MONTH,
+				DateTime.Unit.DAY) && d.getPrecision().ordinal()
+				<= DateTime.Unit.SECOND.ordinal()){
+			out.writeByte(DATE_EPOCH);
+			out.writeLong(d.getMilliseconds(UTC) / MILLIS_PER_SECOND);
+			out.writeByte(d.getPrecision().ordinal());
+		} else {
+			out.writeByte(DATE_STRING);
+			writeString(out, d.toString());
+		}
+	}
+
+	/**
+	 * This method reads a date written by writeDate().
+	 * @param in The stream of the snapshot.
+	 * @return The date, can be null.
+	 * @throws IOException If the date can't be read.
+	 */
+	private static DateTime readDate(DataInputStream in) throws IOException{
+		byte kind = in.readByte();
+		if (kind == DATE_NONE){
+			return null;
+		} else if (kind == DATE_EPOCH){
+			long seconds = in.readLong();
+			DateTime.Unit precision = DateTime.Unit.values()[in.readByte()];
+			return DateTime.forInstant(seconds * MILLIS_PER_SECOND, UTC)
+					.truncate(precision);
+		}
+		return new DateTime(readString(in));
+	}
+
+	/**
+	 * This method writes a repetition as its position in Event.REPEATS.
+	 * Any other repetition is written as a string.
+	 * @param out The stream of the snapshot.
+	 * @param r The repetition.
+	 * @throws IOException If the repetition can't be written.
+	 */
+	private static void writeRepetition(DataOutputStream out, String r)
+			throws IOException{
+		for (int i = 0; i < Event.REPEATS.length; i++){
+			if (Event.REPEATS[i].equals(r)){
+				out.writeByte(i);
+				return;
+			}
+		}
+		out.writeByte(OTHER_REPETITION);
+		writeString(out, r);
+	}
+
+	/**
+	 * This method reads a repetition written by writeRepetition().
+	 * @param in The stream of the snapshot.
+	 * @return The repetition.
+	 * @throws IOException If the repetition can't be read.
+	 */
+	private static String readRepetition(DataInputStream in)
+			throws IOException{
+		byte r = in.readByte();
+		if (r == OTHER_REPETITION){
+			return readString(in);
+		}
+		return Event.REPEATS[r];
+	}
+
+	/**
+	 * This is the main method used for testing the class.
+	 * @param args will not be used.
+	 */
+	public static void main(String[] args){
+		File csv = new File("SnapshotTest.csv");
+		EventSnapshot snapshot = new EventSnapshot(csv);
+
+		/** @test write() and read() Writing events and reading them back. */
+		Event[] events = {
+			new Event("2012-04-06 10:00:00.000123", "Meeting", "Meeting",
+					new DateTime("2012-04-06 10:00:00"),
+					new DateTime("2012-04-06 11:30"), "Office", "Weekly",
+					"Weekly catch up", "Everyone"),
+			new Event("2012-04-06 10:00:00.000456", "", "Other", null, null,
+					"", "No", "", null)
+		};
+		try{
+			csv.createNewFile();
+		} catch (IOException ioe){
+			System.out.println("IOException caught, the exception was: " + ioe);
+		}
+		snapshot.write(events);
+		System.out.println("Snapshot is current: " + snapshot.isCurrent());
+		for (Event e : snapshot.read()){
+			//Expecting the same values as written.
+			System.out.println(e.getID() + " [" + e.getStart() + "] ["
+					+ e.getEnd() + "] " + e.getRepetition() + " "
+					+ e.getCategory());
+		}
+
+		/** @test isCurrent() The snapshot is out of date once the CSV
+		 * file changes. */
+		csv.setLastModified(csv.lastModified() + MILLIS_PER_SECOND);
+		System.out.println("Snapshot is current: " + snapshot.isCurrent());
+		System.out.println("Read: " + snapshot.read());
+		snapshot.delete();
+		csv.delete();
+	}
+
+	/** The extension added to the CSV file name. */
+	public static final String EXTENSION = ".snapshot";
+	/** The first four bytes of every snapshot, "A5ES". */
+	private static final int MAGIC = 0x41354553;
+	/** The version of the format, increased whenever it changes. */
+	private static final short VERSION = 1;
+	/** The length written for a null string. */
+	private static final int NULL_LENGTH = -1;
+	/** Marks a date that was not set. */
+	private static final byte DATE_NONE = 0;
+	/** Marks a date written as seconds since the epoch. */
+	private static final byte DATE_EPOCH = 1;
+	/** Marks a date written as a string. */
+	private static final byte DATE_STRING = 2;
+	/** Marks a repetition which is not in Event.REPEATS. */
+	private static final byte OTHER_REPETITION = -1;
+	/** The number of milliseconds in a second. */
+	private static final long MILLIS_PER_SECOND = 1000;
+	/** The time zone the epoch seconds are counted in. */
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+	/** The character set of the strings. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	/** The CSV file the snapshot is taken from. */
+	private File m_CsvFile;
+	/** The snapshot file. */
+	private File m_File;
+}
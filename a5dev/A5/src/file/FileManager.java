@@ -37,13 +37,25 @@
 package file;
 
 
-import java.io.BufferedInputStream;
+import java.awt.GraphicsEnvironment;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.swing.JOptionPane;
+
+import au.com.bytecode.opencsv.CSVReader;
+import au.com.bytecode.opencsv.CSVWriter;
 
 /**
  * @brief Main class for file managers, its abstract and its constructors and accessors will be used by other classes.
@@ -149,6 +161,269 @@ public abstract class FileManager {
 		return true;
 	}
 	
+	/**
+	 * This is an accessor method for the journal mode.
+	 * @return True if changes are appended to the journal instead of
+	 * rewriting the file.
+	 */
+	public boolean getJournalMode(){
+		return m_JournalMode;
+	}
+	
+	/**
+	 * This is an accessor mutator method for the journal mode.
+	 * @param journal True to append changes to the journal, false to 
+	 * rewrite the file on every edit and delete.
+	 * @return True if set correctly.
+	 */
+	public boolean setJournalMode(boolean journal){
+		m_JournalMode = journal;
+		return true;
+	}
+	
+	/**
+	 * This is an accessor method for the journal.
+	 * @return The journal of the file.
+	 */
+	public Journal getJournal(){
+		return m_Journal;
+	}
+	
+	/**
+	 * This is an accessor mutator method for the journal.
+	 * @param journal The journal of the file.
+	 * @return True if set correctly.
+	 */
+	protected boolean setJournal(Journal journal){
+		m_Journal = journal;
+		return true;
+	}
+	
+	/**
+	 * This is an accessor method for the write-behind mode.
+	 * @return True if the writes are done on a background thread.
+	 */
+	public boolean getWriteBehindMode(){
+		return m_WriteBehind != null;
+	}
+	
+	/**
+	 * This is an accessor mutator method for the write-behind mode.
+	 * Turning it off flushes and stops the writer thread.
+	 * @param writeBehind True to do the writes on a background thread.
+	 * @return True if set correctly.
+	 */
+	public synchronized boolean setWriteBehindMode(boolean writeBehind){
+		if(writeBehind && m_WriteBehind == null){
+			m_WriteBehind = new WriteBehindQueue(this);
+		} else if(!writeBehind && m_WriteBehind != null){
+			boolean success = m_WriteBehind.close();
+			m_WriteBehind = null;
+			return success;
+		}
+		return true;
+	}
+	
+	/**
+	 * This method blocks until every queued write is on the disk.
+	 * Does nothing if the write-behind mode is off.
+	 * @return True if everything was written correctly.
+	 */
+	public boolean flush(){
+		WriteBehindQueue queue = m_WriteBehind;
+		if(queue == null){
+			return true;
+		}
+		return queue.flush();
+	}
+	
+	/**
+	 * This method flushes the queued writes and stops the writer thread.
+	 * To be called when the program shuts down.
+	 * @return True if everything was written correctly.
+	 */
+	public boolean close(){
+		return setWriteBehindMode(false);
+	}
+	
+	/**
+	 * This method writes the whole list to the file.
+	 * @return True if written correctly.
+	 */
+	public abstract boolean write();
+	
+	/**
+	 * This method rewrites the whole file, on the writer thread if the
+	 * write-behind mode is on.
+	 * @return True if written or queued correctly.
+	 */
+	protected boolean rewrite(){
+		if(this.isInBatch()){
+			m_BatchRewrite = true;
+			return true;
+		}
+		WriteBehindQueue queue = m_WriteBehind;
+		if(queue != null && queue.requestRewrite()){
+			return true;
+		}
+		return write();
+	}
+	
+	/**
+	 * This method folds the journal into the file by rewriting the 
+	 * file from the list, then clearing the journal.
+	 * @return True if executed correctly.
+	 */
+	public boolean compact(){
+		WriteBehindQueue queue = m_WriteBehind;
+		if(queue != null && queue.requestRewrite()){
+			return true;
+		}
+		if(!write()){
+			return false;
+		}
+		return getJournal().clear();
+	}
+	
+	/**
+	 * This method saves a change to the journal, through the writer 
+	 * thread if the write-behind mode is on.
+	 * @param line The journal line.
+	 * @return True if written or queued correctly.
+	 */
+	protected boolean journal(String[] line){
+		if(this.isInBatch()){
+			m_Batch.add(line);
+			return true;
+		}
+		boolean success;
+		WriteBehindQueue queue = m_WriteBehind;
+		if(queue != null && queue.submit(line)){
+			success = true;
+		} else {
+			List<String[]> lines = new ArrayList<String[]>(1);
+			lines.add(line);
+			success = getJournal().appendLines(lines);
+		}
+		return success && compactIfNeeded();
+	}
+	
+	/**
+	 * This method checks if the writes are being collected for a batch.
+	 * @return True if a batch has been begun and not yet committed.
+	 */
+	public boolean isInBatch(){
+		return m_Batch != null;
+	}
+	
+	/**
+	 * This method begins a batch. Until it is committed the journal lines,
+	 * appended records and rewrites are collected instead of written.
+	 * @return True if begun, false if a batch was already begun.
+	 */
+	public boolean beginBatch(){
+		if(this.isInBatch()){
+			return false;
+		}
+		m_Batch = new ArrayList<String[]>();
+		m_BatchRewrite = false;
+		return true;
+	}
+	
+	/**
+	 * This method commits the batch, writing everything collected in one
+	 * go. A rewrite covers every other change, so if one was requested it 
+	 * is the only write done. Otherwise the journal lines or records are 
+	 * all appended with a single open of the file.
+	 * @return True if written correctly, or if there was no batch.
+	 */
+	public boolean commitBatch(){
+		if(!this.isInBatch()){
+			return true;
+		}
+		List<String[]> lines = m_Batch;
+		boolean rewrite = m_BatchRewrite;
+		m_Batch = null;
+		m_BatchRewrite = false;
+		
+		if(rewrite){
+			return this.rewrite();
+		}
+		if(lines.isEmpty()){
+			return true;
+		}
+		if(!getJournalMode()){
+			return this.appendRecords(lines);
+		}
+		boolean success = true;
+		int queued = 0;
+		WriteBehindQueue queue = m_WriteBehind;
+		if(queue != null){
+			while(queued < lines.size() && queue.submit(lines.get(queued))){
+				queued++;
+			}
+		}
+		//Anything the writer thread didn't take is written here.
+		if(queued < lines.size()){
+			success = getJournal().appendLines(
+					lines.subList(queued, lines.size()));
+		}
+		return success && compactIfNeeded();
+	}
+	
+	/**
+	 * This method adds a record to the end of the file, or to the batch.
+	 * @param record The fields of the record.
+	 * @return True if written correctly.
+	 */
+	protected boolean append(String[] record){
+		if(this.isInBatch()){
+			m_Batch.add(record);
+			return true;
+		}
+		List<String[]> records = new ArrayList<String[]>(1);
+		records.add(record);
+		return this.appendRecords(records);
+	}
+	
+	/**
+	 * This method writes records to the end of the file.
+	 * @param records The records to be written.
+	 * @return True if written correctly.
+	 */
+	protected boolean appendRecords(List<String[]> records){
+		boolean success = true;
+		try{
+			//File writer will not overwrite the file and append to it.
+			FileWriter fileWriter = new FileWriter(getFile(),true);
+			CSVWriter writer = new CSVWriter(fileWriter);
+			
+			for(String[] record : records){
+				writer.writeNext(record);
+			}
+			
+			//Close the writers.
+			writer.close();
+			fileWriter.close();
+		} catch(IOException ioe){
+			System.out.println("IOException caught, the exception was: " + ioe);
+			success = false;
+		}
+		return success;
+	}
+	
+	/**
+	 * This method compacts the journal once it has grown past the
+	 * compaction threshold.
+	 * @return True if executed correctly.
+	 */
+	protected boolean compactIfNeeded(){
+		if(getJournal().getEntryCount() >= COMPACT_THRESHOLD){
+			return compact();
+		}
+		return true;
+	}
+	
 	/**
 	 * This is the constructor for the CsvFile object.
 	 * It will create a new file object using the classes default 
@@ -169,81 +444,320 @@ public abstract class FileManager {
 	}
 	
 	/**
-	 * This method counts the number of lines in the file.
-	 * @return int containing the number of lines.
+	 * This method gets the temporary file a full rewrite is written to,
+	 * before it replaces the file.
+	 * @return The temporary file, next to the file.
 	 */
-	protected int countNumberOfLines(){
-		try {
-			//Creating an buffered input stream object.
-			BufferedInputStream is = new BufferedInputStream(
-				new FileInputStream(getFileName()));
-			//Declaring the number of bytes and creating a byte
-			//array to store it.
-			int numberOfBytes = 1024;
-			byte[] c = new byte[numberOfBytes];
-			//Initialising the count and readChars.
-			int count = 0;
-			int readChars = 0;
+	protected File getTempFile(){
+		return new File(getFile().getPath() + TEMP_EXTENSION);
+	}
+	
+	/**
+	 * This method gets one of the backups of the file.
+	 * @param n The number of the backup, 1 being the most recent.
+	 * @return The backup file.
+	 */
+	public File getBackupFile(int n){
+		return new File(getFile().getPath() + BACKUP_EXTENSION + n);
+	}
+	
+	/**
+	 * This method replaces the file with the completely written temporary
+	 * file. The temporary file is synced to the disk first, the current 
+	 * file becomes the most recent backup and the temporary file is then
+	 * renamed over it in one step. A crash at any point leaves either the 
+	 * old or the new file in place, never a partial one.
+	 * @param temp The temporary file holding the new contents.
+	 * @return True if the file was replaced.
+	 */
+	protected boolean commitTempFile(File temp){
+		boolean success = true;
+		try{
+			//Make sure the new contents are on the disk before the rename.
+			FileOutputStream out = new FileOutputStream(temp, true);
+			out.getFD().sync();
+			out.close();
+			
+			rotateBackups();
+			
+			Path target = getFile().toPath();
+			try{
+				Files.move(temp.toPath(), target, 
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException amnse){
+				Files.move(temp.toPath(), target, 
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException ioe){
+			System.out.println("IOException caught, the exception was: " + ioe);
+			success = false;
+		}
+		return success;
+	}
+	
+	/**
+	 * This method shifts the backups along by one, dropping the oldest,
+	 * and makes the current file the most recent backup.
+	 * @throws IOException If the backups couldn't be moved.
+	 */
+	private void rotateBackups() throws IOException{
+		Path file = getFile().toPath();
+		if(!Files.exists(file)){
+			return;
+		}
+		Files.deleteIfExists(getBackupFile(MAX_BACKUPS).toPath());
+		for(int i = MAX_BACKUPS - 1; i >= 1; i--){
+			Path backup = getBackupFile(i).toPath();
+			if(Files.exists(backup)){
+				Files.move(backup, getBackupFile(i + 1).toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		//The file is about to be replaced, so a link to it costs nothing
+		//to create. Copy it if the file system can't link.
+		Path newest = getBackupFile(1).toPath();
+		try{
+			Files.createLink(newest, file);
+		} catch (IOException ioe){
+			Files.copy(file, newest, StandardCopyOption.REPLACE_EXISTING);
+		} catch (UnsupportedOperationException uoe){
+			Files.copy(file, newest, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * This method puts the most recent backup with the expected header
+	 * back in place of the file.
+	 * @param header The header the backup must have.
+	 * @return True if a backup was restored.
+	 */
+	protected boolean restoreBackup(String[] header){
+		StringArrayComparer csa = new StringArrayComparer();
+		for(int i = 1; i <= MAX_BACKUPS; i++){
+			File backup = getBackupFile(i);
+			if(!backup.exists()){
+				continue;
+			}
+			try{
+				CSVReader reader = new CSVReader(new FileReader(backup));
+				String[] backupHeader = reader.readNext();
+				reader.close();
+				if(!csa.equalArrays(backupHeader, header)){
+					continue;
+				}
+				//Restore through the temporary file so the backup is kept.
+				File temp = getTempFile();
+				Files.copy(backup.toPath(), temp.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+				Files.move(temp.toPath(), getFile().toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+				System.out.println("Restored " + getFileName() + 
+						" from the backup " + backup.getName());
+				return true;
+			} catch (IOException ioe){
+				System.out.println("IOException caught, the exception was: " 
+						+ ioe);
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * This method loads the file in a single pass.
+	 * The header is checked, then the records are streamed straight into
+	 * the list, after applying any changes left in the journal.
+	 * If the last line of the file is not finished a new line is added to
+	 * the end, so the next record appended does not join it.
+	 * Files of BULK_LOAD_SIZE or more are parsed in parallel instead.
+	 * If the header is wrong the most recent good backup is restored, or
+	 * failing that the file is recovered. The journal is not replayed onto
+	 * a restored backup, it is set aside and the user told.
+	 * @return True if loaded successfully.
+	 */
+	public boolean load(){
+		//This shows whether the file was loaded succesfully.
+		boolean success = true;
+		//Try catching IO exceptions.
+		try{
+			//The line end reader notes how the file ends as it is read.
+			LineEndReader fileReader = new LineEndReader(
+					new FileReader(getFile()));
+			CSVReader reader = new CSVReader(fileReader);
+			StringArrayComparer csa = new StringArrayComparer();
+			
+			String[] headerArray = reader.readNext();
 			
-			//while not every characters has been read.
-			while ((readChars = is.read(c)) != -1) {
-				for (int i = 0; i < readChars; ++i) {
-					//if you see the new line symbol, add to the count.
-					if (c[i] == '\n')
-						++count;
+			//If the loaded header does not equal the expected header.
+			if(!(csa.equalArrays(headerArray, getHeader()))){
+				reader.close();
+				//Try the backups before giving up on the file.
+				if(this.restoreBackup(getHeader())){
+					//The journal was recorded against the newer file.
+					File aside = getJournal().setAside();
+					if(aside != null){
+						this.showJournalSetAside(aside);
 					}
+					return this.load();
+				}
+				this.recoverFile();
+			} else if(!getJournal().hasEntries() && 
+					getFile().length() >= BULK_LOAD_SIZE){
+				//Large files are parsed in parallel instead.
+				reader.close();
+				this.bulkLoad();
+			} else {
+				//Apply the changes still in the journal, if any.
+				boolean replayed = getJournal().hasEntries();
+				Iterator<String[]> records = null;
+				if(replayed){
+					records = getJournal().replay(reader).iterator();
 				}
-				//close input stream.
-				is.close();
 				
-				return count;
+				//Add the records which have the correct number of fields.
+				this.addRecords(reader, records);
 				
-		} catch(IOException ioe) {
-			System.out.println("IOException caught," +
-					"the exception was: " + ioe);
+				//Both paths have read the file to the end by now.
+				boolean endsWithNewLine = fileReader.endsWithNewLine();
+				reader.close();
+				
+				//Fold the replayed journal into the file, this rewrites it.
+				if(replayed){
+					this.compact();
+				} else if(!endsWithNewLine){
+					this.appendNewLine();
+				}
+			}
+		} catch (IOException ioe){
+			System.out.println("IOException caught, the exception was: " + ioe);
+			success = false; 
+		} catch (SecurityException se){
+			System.out.println("SecurityException caught, the exception was: "
+				+ se);
+			success = false;
 		}
 		
-		return 0;
+		return success;
+	}
+	
+	/**
+	 * This method tells the user that the changes in the journal were not
+	 * applied, as the file was restored from a backup older than them.
+	 * @param aside The file the journal was moved to.
+	 * @return True if executed correctly.
+	 */
+	protected boolean showJournalSetAside(File aside){
+		System.out.println("The journal of " + getFileName() + 
+				" was not applied to the backup, it was moved to " + aside);
+		if(GraphicsEnvironment.isHeadless()){
+			return true;
+		}
+		JOptionPane.showMessageDialog(null, 
+				"The file was damaged and an older backup" + "\n" +
+				"has been restored. The latest changes were" + "\n" +
+				"not applied to it, they have been kept in" + "\n" +
+				aside.getName() + ".",
+				"Backup Restored"
+				, JOptionPane.WARNING_MESSAGE);
+		return true;
+	}
+	
+	/**
+	 * This method gets the header the file must start with.
+	 * @return The expected header.
+	 */
+	protected abstract String[] getHeader();
+	
+	/**
+	 * This method adds the loaded records to the list.
+	 * @param reader The reader of the file, positioned after the header.
+	 * @param replayed The records with the journal applied, or null to read
+	 * them straight from the reader.
+	 * @return True if executed correctly.
+	 */
+	protected abstract boolean addRecords(CSVReader reader, 
+			Iterator<String[]> replayed);
+	
+	/**
+	 * This method loads a large file using the bulk importer.
+	 * @return True if executed correctly.
+	 * @throws IOException If the file can't be read.
+	 */
+	protected abstract boolean bulkLoad() throws IOException;
+	
+	/**
+	 * This method imports the records of the file in parallel, finishing
+	 * the last line of the file if it is not.
+	 * @param recordSize The number of fields in a record.
+	 * @param builder Builds the objects from the records.
+	 * @param <T> The type of object built from each record.
+	 * @return The objects in file order, null for a record with the wrong
+	 * number of fields.
+	 * @throws IOException If the file can't be read.
+	 */
+	protected <T> List<T> bulkImport(int recordSize, 
+			BulkImporter.RecordBuilder<T> builder) throws IOException{
+		BulkImporter<T> importer = new BulkImporter<T>(recordSize, builder);
+		List<T> objects = importer.importFile(getFile());
+		if(!importer.endsWithNewLine()){
+			this.appendNewLine();
+		}
+		return objects;
 	}
 	
 	/**
-	 * This method decides whether the end of the file is a blank
-	 * line or not, if not it writes a blank line to the end of the file.
+	 * This method deals with a file that has the wrong header, telling the
+	 * user and replacing it with a new empty file.
 	 * @return True if executed correctly.
 	 */
-	protected boolean isEOFBlank(){
+	protected abstract boolean recoverFile();
+	
+	/**
+	 * This method gets the next record to be loaded.
+	 * @param reader The reader of the file.
+	 * @param replayed The records with the journal applied, or null.
+	 * @return The next record, or null if there are no more.
+	 * @throws IOException If the file can't be read.
+	 */
+	protected String[] nextRecord(CSVReader reader, 
+			Iterator<String[]> replayed) throws IOException{
+		if(replayed == null){
+			return reader.readNext();
+		}
+		return replayed.hasNext() ? replayed.next() : null;
+	}
+	
+	/**
+	 * This method prints the errors found in a record, each with the line
+	 * of the file the record came from.
+	 * @param line The line of the record, the header being line 1.
+	 * @param errors The errors found in the record.
+	 * @return True if there were no errors.
+	 */
+	protected boolean reportRecordErrors(int line, List<String> errors){
+		for(String error : errors){
+			System.err.println("Line " + line + ": " + error);
+		}
+		return errors.isEmpty();
+	}
+	
+	/**
+	 * This method finishes the last line of the file by writing a
+	 * new line to the end of it.
+	 * @return True if executed correctly.
+	 */
+	protected boolean appendNewLine(){
 		boolean success = true;
-		int lineCount =0;
-		
 		try{
-			//Creating the scanner object.
-			Scanner inStream = new Scanner(getFile());
-			String line = "";
-				//Count the number of lines in the file.
-				//This will ignore empty lines.
-		        while(inStream.hasNextLine()){
-		            line = inStream.nextLine();
-		        	lineCount++;
-		        }
-		        inStream.close();
-		   			
-		        //if the number of actual lines is not equal to the number
-		        //of loaded lines then it must be missing the space at the 
-		        //end. So write an empty line to the EOF.
-		        if(lineCount != countNumberOfLines()){
-		        	System.out.println("Error Empty Line at the end of the " +
-		        			"file.");
-		        	System.out.println("One will now be added");
-		        	//Create the writing objects.
-		        	FileWriter fileWriter = new FileWriter(getFile(),true);
-		        	BufferedWriter writer = new BufferedWriter(fileWriter);
-		        	//Write an empty line.
-		        	writer.newLine();
-		        	//Close the writers.
-		        	writer.close();
-		        	fileWriter.close();
-		        }
-		        
+			System.out.println("Error Empty Line at the end of the file.");
+			System.out.println("One will now be added");
+			//Create the writing objects.
+			FileWriter fileWriter = new FileWriter(getFile(),true);
+			BufferedWriter writer = new BufferedWriter(fileWriter);
+			//Write an empty line.
+			writer.newLine();
+			//Close the writers.
+			writer.close();
+			fileWriter.close();
 		} catch(IOException ioe){
 			System.out.println("IOException caught, " +
 					"the exception was: " + ioe);
@@ -253,6 +767,44 @@ public abstract class FileManager {
 		return success;
 	}
 	
+	/**
+	 * @brief A record checked by the bulk importer, and the object built
+	 * from it if it was valid.
+	 * @param <T> The type of object built from the record.
+	 */
+	protected static class CheckedRecord<T> {
+		/**
+		 * This is the constructor for a checked record.
+		 * @param object The object built, or null if the record is invalid.
+		 * @param errors The errors found in the record.
+		 */
+		public CheckedRecord(T object, List<String> errors){
+			m_Object = object;
+			m_Errors = errors;
+		}
+		
+		/**
+		 * This is the accessor method for the object built.
+		 * @return The object, or null if the record is invalid.
+		 */
+		public T getObject(){
+			return m_Object;
+		}
+		
+		/**
+		 * This is the accessor method for the errors found.
+		 * @return The errors, empty if the record is valid.
+		 */
+		public List<String> getErrors(){
+			return m_Errors;
+		}
+		
+		/** The object built from the record. */
+		private final T m_Object;
+		/** The errors found in the record. */
+		private final List<String> m_Errors;
+	}
+	
 	/**
 	 * This file name of the file to be used.
 	 */
@@ -273,9 +825,68 @@ public abstract class FileManager {
 	private boolean m_CorruptInputFile = false;;
 	
 	/**
-	 * This indicates whether over 1000 events/contacts have been loaded and that
-	 * no more can be loaded.
+	 * This indicates whether more events/contacts than the list's soft limit
+	 * have been loaded.
 	 */
 	private boolean m_maxLoaded = false;;
 	
+	/**
+	 * This indicates whether changes are appended to the journal,
+	 * True if they are.
+	 */
+	private boolean m_JournalMode = false;
+	
+	/**
+	 * The journal holding the changes not yet written to the file.
+	 */
+	private Journal m_Journal;
+	
+	/**
+	 * The queue doing the writes on a background thread, null if the
+	 * write-behind mode is off.
+	 */
+	private volatile WriteBehindQueue m_WriteBehind = null;
+	
+	/**
+	 * The journal lines or records collected for the batch, null if no
+	 * batch has been begun.
+	 */
+	private List<String[]> m_Batch = null;
+	
+	/**
+	 * True if a rewrite was requested during the batch.
+	 */
+	private boolean m_BatchRewrite = false;
+	
+	/**
+	 * The extension of the temporary file a rewrite is written to.
+	 */
+	public static final String TEMP_EXTENSION = ".tmp";
+	
+	/**
+	 * The extension of the backups, followed by the backup number.
+	 */
+	public static final String BACKUP_EXTENSION = ".bak";
+	
+	/**
+	 * The number of backups kept of the file.
+	 */
+	public static final int MAX_BACKUPS = 3;
+	
+	/**
+	 * The size in bytes from which a file is loaded by the bulk importer.
+	 */
+	public static final long BULK_LOAD_SIZE = 8 << 20;
+	
+	/**
+	 * The number of journal entries after which the journal is
+	 * folded into the file.
+	 */
+	public static final int COMPACT_THRESHOLD = 500;
+	
+	/**
+	 * The line of the first record, the header being line 1.
+	 */
+	public static final int FIRST_RECORD_LINE = 2;
+	
 }
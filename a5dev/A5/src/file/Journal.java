@@ -0,0 +1,365 @@
+/**
+ * \file Journal.java
+ * \author agent
+ * \date 18/10/26
+ * \see http://opencsv.sourceforge.net
+ * \brief An append-only log of the changes made to a CSV file.
+ *
+ * Rewriting the whole CSV file on every edit or delete costs as much as
+ * the file is long. The journal instead appends one short record per
+ * change, and the file managers fold it back into the CSV file (the
+ * snapshot) once it gets long, or on the next load.
+ */
+
+package file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import au.com.bytecode.opencsv.CSVReader;
+import au.com.bytecode.opencsv.CSVWriter;
+
+/**
+ * @brief Keeps an append-only record of add, edit and delete operations.
+ * @author agent
+ *
+ * Every record is a CSV line. The first field is the operation, the second
+ * is the ID the operation targets and the rest are the fields of the
+ * event/contact, exactly as they are stored in the snapshot file.<br/>
+ * Every append is flushed and synced, so a crash can only ever lose the
+ * record being written. A half written record has the wrong number of
+ * fields and is ignored when the journal is replayed.<br/>
+ * Replaying is idempotent so a crash between writing the snapshot and
+ * clearing the journal is harmless.
+ */
+public class Journal {
+
+	/**
+	 * This is the accessor method for the journal file object.
+	 * @return The journal file.
+	 */
+	public File getFile(){
+		return m_File;
+	}
+
+	/**
+	 * This is the accessor method for the number of entries appended
+	 * since the journal was last cleared.
+	 * @return The number of entries.
+	 */
+	public synchronized int getEntryCount(){
+		return m_EntryCount;
+	}
+
+	/**
+	 * This is the constructor for the journal.
+	 * @param fileName The name of the snapshot file the journal belongs to.
+	 * @param recordSize The number of fields in a snapshot record.
+	 */
+	public Journal(String fileName, int recordSize){
+		m_File = new File(fileName + EXTENSION);
+		m_RecordSize = recordSize;
+		m_EntryCount = 0;
+	}
+
+	/**
+	 * This method checks if the journal has records that have not yet
+	 * been folded into the snapshot.
+	 * @return True if there are records to replay.
+	 */
+	public boolean hasEntries(){
+		return getFile().exists() && getFile().length() > 0;
+	}
+
+	/**
+	 * This method appends an add operation to the journal.
+	 * @param record The fields of the added record.
+	 * @return True if written correctly.
+	 */
+	public boolean appendAdd(String[] record){
+		return appendLine(addLine(record));
+	}
+
+	/**
+	 * This method appends an edit operation to the journal.
+	 * @param id The ID of the record being replaced.
+	 * @param record The fields of the new record.
+	 * @return True if written correctly.
+	 */
+	public boolean appendEdit(String id, String[] record){
+		return appendLine(editLine(id, record));
+	}
+
+	/**
+	 * This method appends a delete operation to the journal.
+	 * @param id The ID of the deleted record.
+	 * @return True if written correctly.
+	 */
+	public boolean appendRemove(String id){
+		return appendLine(removeLine(id));
+	}
+
+	/**
+	 * This method builds the journal line for an add operation.
+	 * @param record The fields of the added record.
+	 * @return The journal line.
+	 */
+	public String[] addLine(String[] record){
+		return line(ADD, record[ID_INDEX], record);
+	}
+
+	/**
+	 * This method builds the journal line for an edit operation.
+	 * @param id The ID of the record being replaced.
+	 * @param record The fields of the new record.
+	 * @return The journal line.
+	 */
+	public String[] editLine(String id, String[] record){
+		return line(EDIT, id, record);
+	}
+
+	/**
+	 * This method builds the journal line for a delete operation.
+	 * @param id The ID of the deleted record.
+	 * @return The journal line.
+	 */
+	public String[] removeLine(String id){
+		return line(REMOVE, id, new String[m_RecordSize]);
+	}
+
+	/**
+	 * This method builds a journal line.
+	 * @param op The operation.
+	 * @param id The ID the operation targets.
+	 * @param record The fields of the record.
+	 * @return The journal line.
+	 */
+	private String[] line(String op, String id, String[] record){
+		String[] line = new String[record.length + HEADER_SIZE];
+		line[OP_INDEX] = op;
+		line[TARGET_INDEX] = id;
+		for(int i=0; i<record.length; i++){
+			line[i + HEADER_SIZE] = (record[i] == null) ? "" : record[i];
+		}
+		return line;
+	}
+
+	/**
+	 * This method writes a single line to the end of the journal.
+	 * @param line The journal line.
+	 * @return True if written correctly.
+	 */
+	private boolean appendLine(String[] line){
+		List<String[]> lines = new ArrayList<String[]>(1);
+		lines.add(line);
+		return appendLines(lines);
+	}
+
+	/**
+	 * This method writes lines to the end of the journal, then flushes
+	 * and syncs them to the disk once for the whole group.
+	 * @param lines The journal lines.
+	 * @return True if written correctly.
+	 */
+	public synchronized boolean appendLines(List<String[]> lines){
+		if (lines.isEmpty()){
+			return true;
+		}
+		boolean success = true;
+		try{
+			FileOutputStream out = new FileOutputStream(getFile(), true);
+			CSVWriter writer = new CSVWriter(new OutputStreamWriter(out));
+
+			for (String[] line : lines){
+				writer.writeNext(line);
+			}
+
+			//Make sure the records are on the disk before returning.
+			writer.flush();
+			out.getFD().sync();
+			writer.close();
+			m_EntryCount += lines.size();
+		} catch (IOException ioe){
+			System.out.println("IOException caught, the exception was: " + ioe);
+			success = false;
+		}
+		return success;
+	}
+
+	/**
+	 * This method applies the journal to the records of the snapshot.
+	 * Records keep their position in the file when they are edited.
+	 * @param reader The reader of the snapshot, positioned after the header.
+	 * @return The records with every journalled operation applied.
+	 * @throws IOException If the snapshot or journal can't be read.
+	 */
+	public List<String[]> replay(CSVReader reader) throws IOException{
+		//Records are kept under the ID they were first seen with so that
+		//an edit which changes the ID keeps the record in place.
+		LinkedHashMap<String, String[]> records =
+				new LinkedHashMap<String, String[]>();
+		Map<String, String> slots = new HashMap<String, String>();
+
+		String[] record;
+		while ((record = reader.readNext()) != null){
+			if (record.length == m_RecordSize){
+				records.put(record[ID_INDEX], record);
+				slots.put(record[ID_INDEX], record[ID_INDEX]);
+			} else {
+				//Wrongly sized records are left for the file manager to reject.
+				records.put(SKIPPED + records.size(), record);
+			}
+		}
+
+		if (getFile().exists()){
+			CSVReader journal = new CSVReader(new FileReader(getFile()));
+			String[] line;
+			int replayed = 0;
+			while ((line = journal.readNext()) != null){
+				if (line.length != m_RecordSize + HEADER_SIZE){
+					System.out.println("Journal: Ignoring an incomplete " +
+							"record after " + replayed + " operations.");
+					break;
+				}
+				String op = line[OP_INDEX];
+				String id = line[TARGET_INDEX];
+				record = new String[m_RecordSize];
+				System.arraycopy(line, HEADER_SIZE, record, 0, m_RecordSize);
+
+				if (op.equals(ADD) || op.equals(EDIT)){
+					String slot = slots.remove(id);
+					if (slot == null){
+						//Already applied before a crash, or a new record.
+						slot = slots.get(record[ID_INDEX]);
+					}
+					if (slot == null){
+						slot = record[ID_INDEX];
+					}
+					records.put(slot, record);
+					slots.put(record[ID_INDEX], slot);
+				} else if (op.equals(REMOVE)){
+					String slot = slots.remove(id);
+					if (slot != null){
+						records.remove(slot);
+					}
+				}
+				replayed++;
+			}
+			journal.close();
+		}
+
+		return new ArrayList<String[]>(records.values());
+	}
+
+	/**
+	 * This method empties the journal, to be called once the snapshot
+	 * has been rewritten.
+	 * @return True if cleared correctly.
+	 */
+	public synchronized boolean clear(){
+		m_EntryCount = 0;
+		if (!getFile().exists()){
+			return true;
+		}
+		if (!getFile().delete()){
+			System.out.println("Journal: Could not delete " + getFile());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * This method moves the journal out of the way, unreplayed, to be
+	 * called when the snapshot it was recorded against has been replaced
+	 * by an older backup. Replaying it onto the backup would apply edits
+	 * and deletes to records the backup may not have.
+	 * @return The file the journal was moved to, or null if there was no
+	 * journal or it could not be moved.
+	 */
+	public synchronized File setAside(){
+		m_EntryCount = 0;
+		if (!hasEntries()){
+			return null;
+		}
+		//Never overwrite a journal set aside before.
+		File aside = new File(getFile().getPath() + ASIDE_EXTENSION);
+		for (int i = 1; aside.exists(); i++){
+			aside = new File(getFile().getPath() + ASIDE_EXTENSION + i);
+		}
+		if (!getFile().renameTo(aside)){
+			System.out.println("Journal: Could not move " + getFile() + 
+					" to " + aside);
+			return null;
+		}
+		return aside;
+	}
+
+	/**
+	 * This is the main method used for testing the class.
+	 * @param args will not be used.
+	 * @throws IOException Throws it.
+	 */
+	public static void main(String[] args) throws IOException{
+		Journal j = new Journal("JournalTest.csv", 2);
+		j.clear();
+
+		/** @test Replaying adds, an edit which changes the ID and a delete. */
+		j.appendAdd(new String[]{"1","a"});
+		j.appendAdd(new String[]{"2","b"});
+		j.appendAdd(new String[]{"3","c"});
+		j.appendEdit("1", new String[]{"4","d"});
+		j.appendRemove("2");
+
+		CSVReader empty = new CSVReader(new java.io.StringReader(""));
+		List<String[]> records = j.replay(empty);
+		//Expecting 4,d then 3,c.
+		for (String[] r : records){
+			System.out.println(r[0] + "," + r[1]);
+		}
+		System.out.println("Entries: " + j.getEntryCount());
+
+		/** @test Setting the journal aside keeps it, under a new name. */
+		File aside = j.setAside();
+		System.out.println("Set aside: " + (aside != null && aside.exists()
+				&& !j.hasEntries() && j.setAside() == null));
+		if (aside != null){
+			aside.delete();
+		}
+		j.clear();
+	}
+
+	/** The extension added to the snapshot file name. */
+	public static final String EXTENSION = ".journal";
+	/** The extension added to a journal which was set aside. */
+	public static final String ASIDE_EXTENSION = ".unapplied";
+	/** The operation for an added record. */
+	private static final String ADD = "A";
+	/** The operation for an edited record. */
+	private static final String EDIT = "E";
+	/** The operation for a removed record. */
+	private static final String REMOVE = "D";
+	/** The prefix for the keys of records that aren't the expected size. */
+	private static final String SKIPPED = "\u0000";
+	/** The index of the operation in a journal line. */
+	private static final int OP_INDEX = 0;
+	/** The index of the target ID in a journal line. */
+	private static final int TARGET_INDEX = 1;
+	/** The number of fields before the record in a journal line. */
+	private static final int HEADER_SIZE = 2;
+	/** The index of the ID in a record. */
+	private static final int ID_INDEX = 0;
+	/** The journal file. */
+	private File m_File;
+	/** The number of fields in a snapshot record. */
+	private int m_RecordSize;
+	/** The number of entries appended since the journal was cleared. */
+	private int m_EntryCount;
+}
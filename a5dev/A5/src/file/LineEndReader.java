@@ -0,0 +1,84 @@
+/**
+ * \file LineEndReader.java
+ * \author agent
+ * \date 18/10/26
+ * \brief A reader which remembers the last character read from a file.
+ *
+ * Used by the file managers to find out if the file ends with a new line
+ * while it is loaded, rather than reading the whole file again to check.
+ */
+
+package file;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * @brief Passes characters through unchanged, keeping the last one read.
+ * @author agent
+ *
+ * Once the reader has been read to the end, endsWithNewLine() tells whether
+ * the last line of the file was finished.
+ */
+public class LineEndReader extends FilterReader {
+
+	/**
+	 * This is the constructor for the reader.
+	 * @param in The reader of the file.
+	 */
+	public LineEndReader(Reader in){
+		super(in);
+	}
+
+	/**
+	 * This method reads a single character.
+	 * @return The character read, or -1 at the end of the file.
+	 * @throws IOException If the file can't be read.
+	 */
+	public int read() throws IOException{
+		int c = super.read();
+		if (c != -1){
+			m_LastChar = c;
+		}
+		return c;
+	}
+
+	/**
+	 * This method reads characters into part of an array.
+	 * @param cbuf The array to read into.
+	 * @param off The index to start storing at.
+	 * @param len The maximum number of characters to read.
+	 * @return The number of characters read, or -1 at the end of the file.
+	 * @throws IOException If the file can't be read.
+	 */
+	public int read(char[] cbuf, int off, int len) throws IOException{
+		int n = super.read(cbuf, off, len);
+		if (n > 0){
+			m_LastChar = cbuf[off + n - 1];
+		}
+		return n;
+	}
+
+	/**
+	 * This method checks if anything has been read.
+	 * @return True if at least one character was read.
+	 */
+	public boolean isEmpty(){
+		return m_LastChar == NONE;
+	}
+
+	/**
+	 * This method checks if the last character read ends a line.
+	 * Only meaningful once the reader has been read to the end.
+	 * @return True if the last character was a new line, or nothing was read.
+	 */
+	public boolean endsWithNewLine(){
+		return isEmpty() || m_LastChar == '\n' || m_LastChar == '\r';
+	}
+
+	/** The value of the last character before anything is read. */
+	private static final int NONE = -1;
+	/** The last character read. */
+	private int m_LastChar = NONE;
+}
@@ -0,0 +1,213 @@
+/**
+ * \file WriteBehindQueue.java
+ * \author agent
+ * \date 18/10/26
+ * \brief Writes the changes of a file manager on a background thread.
+ *
+ * The lists call the file managers on the thread making the change, which
+ * is usually the Swing event thread, so every save used to freeze the UI.
+ * This queue takes the disk writes off that thread and commits bursts of
+ * changes together.
+ */
+
+package file;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @brief A write-behind queue with group commit for a file manager.
+ * @author agent
+ *
+ * Journal records and rewrite requests are queued by the calling thread and
+ * written by a single daemon writer thread.<br/>
+ * The writer waits up to COMMIT_DELAY milliseconds after the first queued
+ * change so that a burst of changes is written with a single open and sync.
+ * Any number of queued rewrite requests are done as a single rewrite.<br/>
+ * At most MAX_PENDING records can be waiting at any time; callers block
+ * once it is reached. A crash can therefore lose at most MAX_PENDING
+ * changes, or COMMIT_DELAY milliseconds of changes, whichever is fewer.
+ */
+public class WriteBehindQueue implements Runnable {
+
+	/**
+	 * This is the constructor for the queue, it starts the writer thread.
+	 * @param manager The file manager the writes are done for.
+	 */
+	public WriteBehindQueue(FileManager manager){
+		m_Manager = manager;
+		m_Thread = new Thread(this, "WriteBehind-" + manager.getFileName());
+		m_Thread.setDaemon(true);
+		m_Thread.start();
+	}
+
+	/**
+	 * This method queues a journal record.
+	 * Blocks while the queue is full.
+	 * @param line The journal line to be appended.
+	 * @return True if queued, false if the queue is closed.
+	 */
+	public synchronized boolean submit(String[] line){
+		while (m_Pending.size() >= MAX_PENDING && !m_Closed){
+			notifyAll();
+			try{
+				wait();
+			} catch (InterruptedException ie){
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		if (m_Closed){
+			return false;
+		}
+		m_Pending.add(line);
+		m_Submitted++;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * This method queues a rewrite of the whole file.
+	 * The rewrite supersedes all the journal records queued before it.
+	 * @return True if queued, false if the queue is closed.
+	 */
+	public synchronized boolean requestRewrite(){
+		if (m_Closed){
+			return false;
+		}
+		m_Rewrite = true;
+		m_Submitted++;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * This method blocks until everything queued so far is on the disk.
+	 * @return True if everything was written without an error.
+	 */
+	public synchronized boolean flush(){
+		long target = m_Submitted;
+		m_FlushRequested = true;
+		notifyAll();
+		while (m_Committed < target && m_Thread.isAlive()){
+			try{
+				wait();
+			} catch (InterruptedException ie){
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return m_LastCommitSucceeded;
+	}
+
+	/**
+	 * This method flushes the queue and stops the writer thread.
+	 * Nothing can be queued after this.
+	 * @return True if everything was written without an error.
+	 */
+	public boolean close(){
+		boolean success = flush();
+		synchronized (this){
+			m_Closed = true;
+			notifyAll();
+		}
+		try{
+			m_Thread.join();
+		} catch (InterruptedException ie){
+			Thread.currentThread().interrupt();
+		}
+		return success;
+	}
+
+	/**
+	 * The writer thread. Waits for changes, gives the burst time to
+	 * finish, then writes everything queued in one go.
+	 */
+	public void run(){
+		while (true){
+			List<String[]> lines;
+			boolean rewrite;
+			long batchEnd;
+			synchronized (this){
+				while (m_Pending.isEmpty() && !m_Rewrite && !m_Closed){
+					waitQuietly(0);
+				}
+				if (m_Closed && m_Pending.isEmpty() && !m_Rewrite){
+					notifyAll();
+					return;
+				}
+				//Group commit: let the rest of the burst arrive.
+				long deadline = System.currentTimeMillis() + COMMIT_DELAY;
+				long left = COMMIT_DELAY;
+				while (left > 0 && m_Pending.size() < MAX_PENDING
+						&& !m_FlushRequested && !m_Closed){
+					waitQuietly(left);
+					left = deadline - System.currentTimeMillis();
+				}
+				lines = m_Pending;
+				rewrite = m_Rewrite;
+				batchEnd = m_Submitted;
+				m_Pending = new ArrayList<String[]>();
+				m_Rewrite = false;
+				m_FlushRequested = false;
+				//Let any blocked callers queue again.
+				notifyAll();
+			}
+
+			boolean success;
+			if (rewrite){
+				//The rewrite saves the list as it is now, which already
+				//holds every change queued before it.
+				success = m_Manager.write() && m_Manager.getJournal().clear();
+			} else {
+				success = m_Manager.getJournal().appendLines(lines);
+			}
+
+			synchronized (this){
+				m_Committed = batchEnd;
+				m_LastCommitSucceeded = success;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * This method waits on the queue's monitor, ignoring interrupts.
+	 * Must be called while holding the monitor.
+	 * @param millis The time to wait for, 0 to wait until notified.
+	 */
+	private void waitQuietly(long millis){
+		try{
+			wait(millis);
+		} catch (InterruptedException ie){
+			//The writer only stops through close().
+		}
+	}
+
+	/**
+	 * The time in milliseconds the writer waits to group changes.
+	 */
+	public static final long COMMIT_DELAY = 200;
+	/**
+	 * The maximum number of journal records waiting to be written.
+	 */
+	public static final int MAX_PENDING = 256;
+	/** The file manager the writes are done for. */
+	private FileManager m_Manager;
+	/** The writer thread. */
+	private Thread m_Thread;
+	/** The journal records waiting to be written. */
+	private List<String[]> m_Pending = new ArrayList<String[]>();
+	/** True if a rewrite of the whole file is waiting. */
+	private boolean m_Rewrite = false;
+	/** True if a caller is waiting for the queue to be flushed. */
+	private boolean m_FlushRequested = false;
+	/** True once the queue has been closed. */
+	private boolean m_Closed = false;
+	/** The number of changes queued so far. */
+	private long m_Submitted = 0;
+	/** The number of changes written so far. */
+	private long m_Committed = 0;
+	/** True if the last batch was written without an error. */
+	private boolean m_LastCommitSucceeded = true;
+}
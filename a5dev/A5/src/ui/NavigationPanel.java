@@ -15,7 +15,6 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.WindowConstants;
 
-import addressBook.AddressBook;
 import addressBook.Contact;
 import addressBook.ContactController;
 
@@ -32,7 +31,7 @@ import com.jgoodies.forms.layout.RowSpec;
 import digitalOrganiser.DigitalOrganiser;
 import events.Event;
 import events.EventController;
-import events.EventList;
+import events.Repetition;
 
 /**
  * @brief The navigation panel and all its widgets.
@@ -674,16 +673,6 @@ public class NavigationPanel extends JPanel{
 	private void performAddEventClicked(){
 		if (getDebugStatus())
 			System.out.println("Add event clicked.");
-		if(	DigitalOrganiser.getEventList().getSize()
-				>=
-			EventList.SIZE_LIMIT)
-		{
-			if (getDebugStatus())
-				System.out.println("NP: Limit reached. "+
-					"Forcing EL to pop up the error message.");
-			DigitalOrganiser.getEventList().addEvent(new Event());
-			return;
-		}
 		EventController ec = new EventController();
 		Event e = new Event();
 		e.setToDefaultValues();
@@ -754,8 +743,8 @@ public class NavigationPanel extends JPanel{
 		}
 		
 		int result = 1;//option pane answer is NO by default
-		if (!DigitalOrganiser.getEventList().getEvent(ID).getRepetition()
-				.equalsIgnoreCase("no")){
+		if (DigitalOrganiser.getEventList().getEvent(ID).getRepetitionKind()
+				!= Repetition.NO){
 			result = JOptionPane.showConfirmDialog(	null,
 				"Beware, this will delete all occurences of the event.",
 				"Deleting a repeating event",
@@ -819,16 +808,6 @@ public class NavigationPanel extends JPanel{
 			System.out.println("Add contact clicked.");
 		resetSelection();
 		
-		if(	DigitalOrganiser.getAddressBook().getSize()
-				>=
-			AddressBook.SIZE_LIMIT)
-		{
-			if (getDebugStatus())
-				System.out.println("NP: Limit reached. "+
-					"Forcing AB to pop up the error message.");
-			DigitalOrganiser.getAddressBook().addContact(new Contact());
-			return;
-		}
 		ContactController cc = new ContactController();
 		Contact c = new Contact();
 		//c.setToDefaultValues();
@@ -18,6 +18,7 @@ import hirondelle.date4j.DateTime;
 
 import events.Event;
 import events.EventList;
+import events.Recurrence;
 
 /**
  * 
@@ -282,10 +283,12 @@ public class CalendarTableModel extends AbstractTableModel{
 
 	/**
 	 *	Collects the data from the EventList to be shown within the Table.
+	 *  Only reads the EventList, so the YearView can call it away from the
+	 *  Event Dispatch Thread.
 	 *  @param date the Date holding the year to collect the table data for.
 	 *	@return A 2 dimensional Object array of the events.
 	 */
-	private Object[][] collectDataForYear(DateTime date)
+	Object[][] collectDataForYear(DateTime date)
 	{
 		boolean test = false;
 		if(test){
@@ -295,135 +298,26 @@ public class CalendarTableModel extends AbstractTableModel{
 		if(date==null){
 			date = this.getDate();
 		}
-		int day, rowNum, colNum, location;
-		DateTime tempDate;
-		Event e;
 		int numRows = MAX_NUMBER_OF_DAYS_IN_A_MONTH;
 		int numCols = NUMBER_OF_MONTHS;
 		Object[][] result = new Object[numRows][numCols];
 		int[] counter = new int[numRows*numCols];
-		for(int i=0;i<getEventData().getSize();i++){
-			e = getEventData().getEvent(i);
-			if(e != null){
-				if(e.getStartingDateTime() instanceof DateTime)
-					tempDate = (DateTime) e.getStartingDateTime();
-				else{
-					if(e.getStart() instanceof String){
-					if(e.getStart()!=""){
-					try{
-					tempDate = new DateTime(e.getStart());
-					}catch(Exception error){
-					tempDate = null;
-					}
-					}
-					else
-					tempDate = null;
-					}else{
-					tempDate = null;
-					}
-				}
-				if(tempDate!=null){
-					day = tempDate.getDay().intValue();
-					colNum = tempDate.getMonth().intValue()-1;
-					rowNum = day-1;
-					if(tempDate.getYear().intValue()==date.getYear().intValue())
-					{
-					location = colNum+numCols*rowNum;
-					counter[location]++;
-					}
-					if(!e.getRepetition().equals(Event.REPEATS[NO_REPEATS]))
-					sortRepeats(counter, date, e, rowNum, colNum);
-				}
-			}
+		//One count per day of the year, worked out without creating dates.
+		int year = date.getYear().intValue();
+		int[] days = getEventData().countOccurrences(
+				Recurrence.toEpochDay(year, 1, 1),
+				Recurrence.toEpochDay(year+1, 1, 1));
+		int day = 0;
+		for(int month=0;month<NUMBER_OF_MONTHS;month++){
+			int numDays = Recurrence.getNumDaysInMonth(year, month+1);
+			for(int i=0;i<numDays;i++)
+				counter[month+numCols*i] = days[day++];
 		}
 		for(int i=0;i<NUMBER_OF_MONTHS;i++)
 			this.monthColumn(result, i, counter, date.getYear());
 		return result;
 	}
 	
-	/**
-	 * Sorts out the repeatable events in the YearView.
-	 * @param counter array to store the number of Events on a Day.
-	 * @param de the DateTime of the Year to be displayed.
-	 * @param e the repeatable Event.
-	 * @param rowNum the row number of where the Event goes.
-	 * @param colNum the Column Number of where the Event goes.
-	 * @return true on execution.
-	 */
-	private boolean sortRepeats(int[] counter, DateTime de, Event e, int rowNum,
-								int colNum)
-	{
-		boolean test = false;
-		if(test){
-			System.out.println("Called CalendarTableModel"+
-					   " :: sortRepeats(int[],DateTime,Event,int,int)");
-		}
-		DateTime d, tempDate;
-		if(e.getStart()!=null&&e.getStart()!="") 
-			d = new DateTime(e.getStart());
-		else
-			d = e.getStartingDateTime();
-		int week = NUMBER_OF_DAYS_IN_A_WEEK, days;
-		int position, a_month=NUMBER_OF_WEEKS_IN_A_MONTH*week;
-		if(e.getRepetition().equals(Event.REPEATS[DAILY_REPEAT])){
-			if(d.getYear().intValue()!=de.getYear().intValue()){
-				tempDate = new DateTime((de.getYear()-1)+"-12-31");
-			}else
-				tempDate = new DateTime(d.getRawDateString());
-			do
-			{
-				tempDate = tempDate.plusDays(1);
-				position = (tempDate.getMonth()-1)+
-						    NUMBER_OF_MONTHS*(tempDate.getDay()-1);
-				counter[position]++;
-			}while(tempDate.getYear().intValue()==de.getYear().intValue()&&
-		tempDate.plusDays(1).getYear().intValue()==de.getYear().intValue());
-		}
-		else if(e.getRepetition().equals(Event.REPEATS[WEEKLY_REPEAT])){
-			if(d.getYear().intValue()!=de.getYear().intValue()){
-				tempDate = new DateTime((de.getYear()-1)+"-12-31");
-				while(tempDate.getWeekDay().intValue()!=
-					  d.getWeekDay().intValue()){
-					tempDate=tempDate.plusDays(new Integer(-1));
-				}
-			}else
-				tempDate = new DateTime(d.getRawDateString());
-			do
-			{
-				tempDate=tempDate.plusDays(week);
-				position = (tempDate.getMonth()-1)+
-						    NUMBER_OF_MONTHS*(tempDate.getDay()-1);
-				counter[position]++;
-			}while(tempDate.getYear().intValue()==de.getYear().intValue()&&
-		   tempDate.plusDays(week).getYear().intValue()==de.getYear().intValue());
-		}
-		else if(e.getRepetition().equals(Event.REPEATS[MONTHLY_REPEAT])){
-			if(d.getYear().intValue()!=de.getYear().intValue()){
-				tempDate = new DateTime((de.getYear()-1)+"-12"+
-						     d.getRawDateString().substring(7));
-			}else
-				tempDate = new DateTime(d.getRawDateString());
-			do{
-				days = tempDate.getNumDaysInMonth();
-				tempDate=tempDate.plusDays(days);
-				position = (tempDate.getMonth()-1)+
-						    NUMBER_OF_MONTHS*(tempDate.getDay()-1);
-				counter[position]++;
-			}while(tempDate.getYear().intValue()==de.getYear().intValue()&&
-		 tempDate.plusDays(days).getYear().intValue()==de.getYear().intValue());
-		}
-		else if(e.getRepetition().equals(Event.REPEATS[YEARLY_REPEAT])){
-			position = colNum+rowNum*NUMBER_OF_MONTHS;
-			if(rowNum==a_month&&colNum==1&&d.isLeapYear()){
-				System.err.println("Cannot show a repeatable event on the 29th"
-								  +" February, as it is not a Leap Year");
-				return true;
-			}
-				counter[position]++;
-		}
-		return true;
-	}
-	
 	/**
 	 * Fills the rows for a particular Month with the date and the number of Events
 	 * a particular day has in that month.
@@ -441,32 +335,10 @@ public class CalendarTableModel extends AbstractTableModel{
 			System.out.println("Called CalendarTableModel"+
 							   " :: monthColumn(Object[][], int, int, int[], int)");
 		}
-		String d, s;
-		int UNITS_MAX = 9;
-		if(month < UNITS_MAX){
-			d = year+"-0"+(month+1)+"-01";
-		}
-		else{
-			d = year+"-"+(month+1)+"-01";
-		}
-		DateTime date = new DateTime(d);
 		int numRows = table.length, numCols = NUMBER_OF_MONTHS;
-		int numDays = date.getNumDaysInMonth();
+		int numDays = Recurrence.getNumDaysInMonth(year, month+1);
 		for(int i=0,dayCount=1;i<numRows&&dayCount<numDays+1;i++){
-			if(dayCount>UNITS_MAX+1){
-				s="";
-			}else{
-				s="  ";
-			}
-			if(counter[month+numCols*i]>1){
-				table[i][month] = ""+dayCount+appendth(dayCount)+"\n "+
-								  s+counter[month+numCols*i]+" Events";
-			}else if(counter[month+numCols*i]>0){
-				table[i][month] = ""+dayCount+appendth(dayCount)+"\n "+
-						 		  s+counter[month+numCols*i]+" Event";
-			}else{
-				table[i][month] = ""+dayCount+appendth(dayCount);
-			}
+			table[i][month] = getLabel(dayCount, counter[month+numCols*i]);
 			dayCount++;
 		}
 		return true;
@@ -507,12 +379,53 @@ public class CalendarTableModel extends AbstractTableModel{
 		return true;
 	}
 	
+	/**
+	 * Gets the text of a cell, the day and the number of Events on it.
+	 * The texts are built once and then reused for every year.
+	 * @param dayCount the day of the month.
+	 * @param events the number of Events on the day.
+	 * @return the text of the cell.
+	 */
+	private static String getLabel(int dayCount, int events){
+		if(events>=LABEL_CACHE_SIZE)
+			return buildLabel(dayCount, events);
+		String label = LABELS[dayCount-1][events];
+		if(label==null){
+			label = buildLabel(dayCount, events);
+			LABELS[dayCount-1][events] = label;
+		}
+		return label;
+	}
+	
+	/**
+	 * Builds the text of a cell, the day and the number of Events on it.
+	 * @param dayCount the day of the month.
+	 * @param events the number of Events on the day.
+	 * @return the text of the cell.
+	 */
+	private static String buildLabel(int dayCount, int events){
+		int UNITS_MAX = 9;
+		String s;
+		if(dayCount>UNITS_MAX+1){
+			s="";
+		}else{
+			s="  ";
+		}
+		if(events>1){
+			return ""+dayCount+appendth(dayCount)+"\n "+s+events+" Events";
+		}else if(events>0){
+			return ""+dayCount+appendth(dayCount)+"\n "+s+events+" Event";
+		}else{
+			return ""+dayCount+appendth(dayCount);
+		}
+	}
+	
 	/**
 	 * Appends the appropriate suffix to a number to denote whether it is the nth, 1st, 2nd etc.
 	 * @param r the number to have its suffix appended.
 	 * @return A string of the appropriate suffix for a number.
 	 */
-	private String appendth(int r) {
+	private static String appendth(int r) {
 		boolean test = false;
 		if(test){
 			System.out.println("Called CalendarTableModel"+
@@ -632,6 +545,13 @@ public class CalendarTableModel extends AbstractTableModel{
 	/** The maximum number of days a month could have  */
 	private static final int MAX_NUMBER_OF_DAYS_IN_A_MONTH = 31;
 	
+	/** The number of Events up to which the cell texts are kept */
+	private static final int LABEL_CACHE_SIZE = 64;
+	
+	/** The cell texts already built, by day and then number of Events */
+	private static final String[][] LABELS =
+			new String[MAX_NUMBER_OF_DAYS_IN_A_MONTH][LABEL_CACHE_SIZE];
+	
 	/** The EventList that the TableModel uses to map events to days on the Calendar */
 	private EventList m_EventData;
 	
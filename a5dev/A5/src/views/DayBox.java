@@ -20,6 +20,8 @@ import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JPanel;
 
@@ -36,6 +38,8 @@ import digitalOrganiser.DigitalOrganiser;
 import events.Event;
 import events.EventController;
 import events.EventList;
+import events.EventResults;
+import events.Recurrence;
 
 import javax.swing.DefaultListModel;
 import javax.swing.JFrame;
@@ -44,6 +48,7 @@ import javax.swing.JList;
 import javax.swing.JScrollPane;
 import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.UIManager;
 import javax.swing.WindowConstants;
 
 import ui.NavigationPanel;
@@ -126,14 +131,22 @@ public class DayBox extends JPanel{
 	public void setEventList(EventList el){
 		//System.out.println("DayBox: "+getClass().getName()+
 			//": I was set to a EL of size: "+el.getSize());
-		this.m_EventList = el;
+		setEventList(el.getSnapshot());
+	}
+	
+	/**
+	 * sets the values of the events 
+	 * @param es The events 
+	 */
+	public void setEventList(EventResults es){
+		this.m_EventList = es;
 	}
 	
 	/**
 	 * gets the values of the events
 	 * @return m_EventList
 	 */
-	public EventList getEventList(){
+	public EventResults getEventList(){
 		//System.out.println("DayBox: "+getClass().getName()+
 		 //": I was told to return an EL, which now is of size: "+
 			//m_EventList.getSize());
@@ -191,11 +204,32 @@ public class DayBox extends JPanel{
 		
 	}
 	
+	/**
+	 * Sets the date along with the events already known to occur within
+	 * the box, which are shown without being checked again. Used by the 
+	 * views which sort out the events of all their boxes in one go.
+	 * @param dt The date of which to set.
+	 * @param el The events occurring within the box.
+	 */
+	public void setDate(DateTime dt, EventResults el){
+		if (dt == null) return;
+		m_Date = dt;
+		setEventList(el);
+		showEventList();
+	}
+	
 	/**
 	 * populateDayBox() fills the DayBox with the Event titles. 
 	 */
 	private void populateDayBox(){
 		trimEventList();
+		showEventList();
+	}
+	
+	/**
+	 * Shows the titles of the events of the box in its JList.
+	 */
+	private void showEventList(){
 		//System.out.println("Someone called me: "+getClass().getName());
 		Runnable runnable = new Runnable() {
 			@Override
@@ -212,7 +246,11 @@ public class DayBox extends JPanel{
 				getEventJList().updateUI();  
 			}
 		};
-		EventQueue.invokeLater(runnable);               
+		//A view reusing the box sets it from the Event Dispatch Thread.
+		if (EventQueue.isDispatchThread())
+			runnable.run();
+		else
+			EventQueue.invokeLater(runnable);               
 	}
 	
 	/**
@@ -283,11 +321,27 @@ public class DayBox extends JPanel{
   	 * Fills non-days with a grey fill. 
   	 */
     public void empty(){
+    	m_Date = null;
+    	setEventList(EventResults.EMPTY);
+    	getEventJList().setModel(new DefaultListModel());
     	getEventJList().setBackground(Color.LIGHT_GRAY);
     	setBackground(Color.LIGHT_GRAY);
     	setTopLabelText(" ");
     	getTopLabel().setOpaque(false);
     }
+    
+    /**
+     * Shows a day in the box, undoing empty(), so that a view can keep its
+     * boxes and give them a new day when it changes date.
+     * @param dt The date of the day.
+     * @param el The events occurring on the day.
+     */
+    public void fill(DateTime dt, EventResults el){
+    	getEventJList().setBackground(UIManager.getColor("List.background"));
+    	setBackground(UIManager.getColor("Panel.background"));
+    	getTopLabel().setOpaque(true);
+    	setDate(dt, el);
+    }
 	
 	/**
 	 * Creates the panel.
@@ -358,13 +412,12 @@ public class DayBox extends JPanel{
 	 * Cuts the event list down to display efficiently in the view. 
 	 */
 	private void trimEventList(){
-		EventList trimmedEL = new EventList();
-		for (int i=0; i< getEventList().getSize(); i++){
-			Event e = getEventList().getEvent(i);
+		List<Event> trimmed = new ArrayList<Event>();
+		for (Event e : getEventList()){
 			if(this.checkEventDateTime(e))
-				trimmedEL.addEvent(e);
+				trimmed.add(e);
 		}
-		setEventList(trimmedEL);
+		setEventList(new EventResults(trimmed));
 	}
 	
 	/**
@@ -379,35 +432,10 @@ public class DayBox extends JPanel{
 		DateTime d = getDate();
 		if (s == null || d == null)
 			return false;
-		final int ONE_DAY = 1;
-		if (d.lt(s.minusDays(ONE_DAY)))
-			return false;
 		if (getDebugStatus())
 			System.out.println("DB: checkEventDateTime(): S:["+ s.toString()
 							+ "] | D:["+d.toString()+"]");
-		if (e.getRepetition().equalsIgnoreCase("no")){
-			if (s.numDaysFrom(d) > ONE_DAY || s.numDaysFrom(d) < -ONE_DAY)
-				return false;
-			if(SystemDate.YMDEqual(s, d))
-				return true;
-			else
-				return false;
-		}
-		else if (e.getRepetition().equalsIgnoreCase("daily"))
-			return true;
-		else if (e.getRepetition().equalsIgnoreCase("weekly")){
-			if (s.getWeekDay() == d.getWeekDay())
-				return true;
-		}
-		else if (e.getRepetition().equalsIgnoreCase("monthly")){
-			if (s.getDay() == d.getDay())
-				return true;
-		}
-		else if (e.getRepetition().equalsIgnoreCase("yearly")){
-			if (s.getMonth() == d.getMonth() && s.getDay() == d.getDay())
-				return true;
-		}
-		return false;
+		return Recurrence.occursOn(e, d);
 	}
 	
 	/**	The method name for the TopLabel*/
@@ -419,7 +447,7 @@ public class DayBox extends JPanel{
 	/**	The method name for the Date*/
 	private DateTime m_Date;
 	/**	The method name for the EventList*/
-	private EventList m_EventList = new EventList();
+	private EventResults m_EventList = EventResults.EMPTY;
     /** The debug switch. */
     private boolean m_debug = false;
 	
@@ -35,6 +35,7 @@ import digitalOrganiser.DigitalOrganiser;
 
 import events.Event;
 import events.EventList;
+import events.EventResults;
 
 /**
  * 
@@ -100,15 +101,7 @@ public class DayView extends JPanel{//Begin DayView class
      * @return true on success, false on failure
      */
     public boolean updateDisplay(){//Begin updateDisplay()
-    	EventQueue.invokeLater(new Runnable() {
-			@Override
-			public void run() {
-				removeAll();
-				setUpMain();
-				updateUI();
-			}
-    	});
-   		
+		setUpMain();
     	return true;
     }//End updateDisplay()
 
@@ -152,100 +145,117 @@ public class DayView extends JPanel{//Begin DayView class
 		 //add(new JLabel("?????"));
 	 }//End setUpMain()
 	 /**
-	  * Creates and Initialises the main display, Also adds buttons and JLabels
+	  * Creates and Initialises the main display, Also adds buttons and JLabels.
+	  * The day's events are found in the background, the components are then
+	  * laid out on the Event Dispatch Thread.
 	  */
 	public void createHoursPanel(){//Begin createHoursPanel()
 		if (getDebugStatus())
 			System.out.println("DV: getHoursPanel(): called by "+
 					getClass().getName());
-		final FormLayout layout = new FormLayout(new ColumnSpec[]{
+		final DateTime date = getDate();
+		final EventList el = getToDisplay();
+		m_Updater.submit(new ViewUpdater.Update<EventResults>(){
+			protected EventResults compute(){
+				//The day's events, which every HourBox picks its own from.
+				return el.getEventsForDay(date);
+			}
+			protected void show(EventResults dayEvents){
+				layoutDay(date, dayEvents);
+			}
+		});
+	}//End createHoursPanel()
+	
+	/**
+	 * Lays out the components for a day, replacing the previous ones.
+	 * @param date the day shown.
+	 * @param dayEvents the events of the day.
+	 */
+	private void layoutDay(DateTime date, EventResults dayEvents){
+		removeAll();
+		FormLayout layout = new FormLayout(new ColumnSpec[]{
 				ColumnSpec.decode("default:grow"),},
 				new RowSpec[]{}
 		);
-		final DefaultFormBuilder fbuilder = new DefaultFormBuilder(layout);
-		EventQueue.invokeLater(new Runnable() {
-			@Override
-			public void run() {
-				DateTime resetDT =  SystemTime.setTimeZero(getDate());
+		DefaultFormBuilder fbuilder = new DefaultFormBuilder(layout);
+		DateTime resetDT =  SystemTime.setTimeZero(date);
 		
-				int hourTen = 10;
-				int borderSize = 5;
-				
-				for(int i= 0; i<HOURS_IN_DAY; i++){
-					String hour = "" + i;
-					if(i<hourTen)
-						hour = "0" + i;
-					fbuilder.appendSeparator(hour+":00" );
-					fbuilder.nextLine();
-					fbuilder.setBorder(BorderFactory.createEmptyBorder(
-							borderSize,
-							borderSize,
-							borderSize,
-							borderSize
-					));
-					HourBox hb = new HourBox();
-					hb.setEventList((EventList)getToDisplay());
-					hb.setDate(resetDT);
-					fbuilder.append(hb);
-					//System.out.println("get Day View " + getDate().toString());
-					final int 	YEARS = 0 , MONTHS = 0 , DAYS = 0 ,
-								HOURS = 1 , MINUTES = 0 , SECONDS = 0;
-					resetDT = resetDT.plus(	YEARS,MONTHS,DAYS,
-											HOURS,MINUTES,SECONDS,
-											DateTime.DayOverflow.Abort);
-					//System.out.println("get Day View 2 " + getDate().toString());
-					//System.out.println(i);
-				}
-				JScrollPane jsp = new JScrollPane();
-				jsp.setViewportView(fbuilder.getPanel());
-				
-				FormLayout formLayout = new FormLayout(new ColumnSpec[] {
-						FormFactory.RELATED_GAP_COLSPEC,
-						ColumnSpec.decode("default:grow"),
-						FormFactory.RELATED_GAP_COLSPEC,
-						ColumnSpec.decode("default:grow"),
-						FormFactory.RELATED_GAP_COLSPEC,
-						ColumnSpec.decode("default:grow"),
-						FormFactory.RELATED_GAP_COLSPEC,},
-					new RowSpec[] {
-						FormFactory.RELATED_GAP_ROWSPEC,
-						FormFactory.DEFAULT_ROWSPEC,
-						FormFactory.RELATED_GAP_ROWSPEC,
-						RowSpec.decode("default:grow"),
-						FormFactory.RELATED_GAP_ROWSPEC,});
-				
-				int COL6 = 6;
-				int COL4 = 4;
-				int COL2 = 2;
-				
-				formLayout.setColumnGroups(new int[][]{new int[]{
-											COL6, COL4, COL2
-										  }
-				});
-				setLayout(formLayout);
+		int hourTen = 10;
+		int borderSize = 5;
+		
+		for(int i= 0; i<HOURS_IN_DAY; i++){
+			String hour = "" + i;
+			if(i<hourTen)
+				hour = "0" + i;
+			fbuilder.appendSeparator(hour+":00" );
+			fbuilder.nextLine();
+			fbuilder.setBorder(BorderFactory.createEmptyBorder(
+					borderSize,
+					borderSize,
+					borderSize,
+					borderSize
+			));
+			HourBox hb = new HourBox();
+			hb.setEventList(dayEvents);
+			hb.setDate(resetDT);
+			fbuilder.append(hb);
+			//System.out.println("get Day View " + getDate().toString());
+			final int 	YEARS = 0 , MONTHS = 0 , DAYS = 0 ,
+						HOURS = 1 , MINUTES = 0 , SECONDS = 0;
+			resetDT = resetDT.plus(	YEARS,MONTHS,DAYS,
+									HOURS,MINUTES,SECONDS,
+									DateTime.DayOverflow.Abort);
+			//System.out.println("get Day View 2 " + getDate().toString());
+			//System.out.println(i);
+		}
+		JScrollPane jsp = new JScrollPane();
+		jsp.setViewportView(fbuilder.getPanel());
+		
+		FormLayout formLayout = new FormLayout(new ColumnSpec[] {
+				FormFactory.RELATED_GAP_COLSPEC,
+				ColumnSpec.decode("default:grow"),
+				FormFactory.RELATED_GAP_COLSPEC,
+				ColumnSpec.decode("default:grow"),
+				FormFactory.RELATED_GAP_COLSPEC,
+				ColumnSpec.decode("default:grow"),
+				FormFactory.RELATED_GAP_COLSPEC,},
+			new RowSpec[] {
+				FormFactory.RELATED_GAP_ROWSPEC,
+				FormFactory.DEFAULT_ROWSPEC,
+				FormFactory.RELATED_GAP_ROWSPEC,
+				RowSpec.decode("default:grow"),
+				FormFactory.RELATED_GAP_ROWSPEC,});
+		
+		int COL6 = 6;
+		int COL4 = 4;
+		int COL2 = 2;
+		
+		formLayout.setColumnGroups(new int[][]{new int[]{
+									COL6, COL4, COL2
+								  }
+		});
+		setLayout(formLayout);
 
-				String COL = "2",ROW = "2",COLSPAN ="5",ROWSPAN ="1";
-				JButton btnPreviousDay = new JButton("Previous day");
-				btnPreviousDay.addActionListener
-					(new PREVButtonActionPerformed());
-				add(btnPreviousDay,COL + "," + ROW);
-				
-				JLabel lblDate = new JLabel(getDate().format("DD-MM-YYYY"));
-				lblDate.setHorizontalAlignment(SwingConstants.CENTER);
-				COL = "4";
-				add(lblDate, COL + "," + ROW);
-				
-				JButton btnNextDay = new JButton("Next day");
-				btnNextDay.addActionListener(new NEXTButtonActionPerformed());
-				COL = "6";
-				add(btnNextDay,COL + "," + ROW);
-				COL = "2"; ROW = "4"; 
-				add(jsp, COL + "," + ROW + "," + COLSPAN + "," + ROWSPAN +
-						", fill, fill");
-				updateUI();
-				}
-			});
-	}//End createHoursPanel()
+		String COL = "2",ROW = "2",COLSPAN ="5",ROWSPAN ="1";
+		JButton btnPreviousDay = new JButton("Previous day");
+		btnPreviousDay.addActionListener
+			(new PREVButtonActionPerformed());
+		add(btnPreviousDay,COL + "," + ROW);
+		
+		JLabel lblDate = new JLabel(date.format("DD-MM-YYYY"));
+		lblDate.setHorizontalAlignment(SwingConstants.CENTER);
+		COL = "4";
+		add(lblDate, COL + "," + ROW);
+		
+		JButton btnNextDay = new JButton("Next day");
+		btnNextDay.addActionListener(new NEXTButtonActionPerformed());
+		COL = "6";
+		add(btnNextDay,COL + "," + ROW);
+		COL = "2"; ROW = "4"; 
+		add(jsp, COL + "," + ROW + "," + COLSPAN + "," + ROWSPAN +
+				", fill, fill");
+		updateUI();
+	}
 	
 	 /**
 	   * Creates an action listener that will be assigned to the previous month button.
@@ -298,6 +308,8 @@ public class DayView extends JPanel{//Begin DayView class
 		private DateTime m_Date;
 	    /** The debug switch. */
 	    private boolean m_debug = false;
+	    /** Works out the events of the day in the background. */
+	    private ViewUpdater m_Updater = new ViewUpdater();
 		
 		
 		/**The number of hours in a day*/
@@ -9,7 +9,6 @@ package views;
 import hirondelle.date4j.DateTime;
 import hirondelle.date4j.DateTime.DayOverflow;
 
-import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.JButton;
@@ -26,6 +25,7 @@ import com.jgoodies.forms.layout.RowSpec;
 import dateAndTime.SystemDate;
 import events.Event;
 import events.EventList;
+import events.EventResults;
 
 /**
  * The class monthView works to create and display a month wide view for a set date.<br/>
@@ -125,23 +125,100 @@ public class MonthView extends View{
         
         
 	 /**
-	  * Sets up widgets for displaying a month and the events in it.
+	  * Sets up widgets for displaying a month and the events in it.<br/>
+	  * The events of each day are found in the background, the widgets are
+	  * then laid out on the Event Dispatch Thread.
 	  * @param oShow eventList to show
 	  * @return boolean true upon success
 	  */
-     private boolean setUpMain(EventList oShow){
-    	 Runnable runThis = new Runnable(){
-    		 public void run(){
-    			 initialiseFormLayout();
+     private boolean setUpMain(final EventList oShow){
+    	 final DateTime date = getDate();
+    	 getUpdater().submit(new ViewUpdater.Update<EventResults[]>(){
+    		 protected EventResults[] compute(){
+    			 DateTime firstDay = getFirstDay(date);
+    			 EventResults[] days = new EventResults[date.getNumDaysInMonth()];
+    			 for(int i = 0; i < days.length && !isStale(); i++)
+    				 days[i] = oShow.getEventsForDay(firstDay.plusDays(i));
+    			 return days;
+    		 }
+    		 protected void show(EventResults[] days){
+    			 layoutMonth(date, days);
+    		 }
+    	 });
+	    return true;
+	 }
+     
+     /**
+      * Gets the first day of the month of a date.
+      * @param date the date.
+      * @return the first day of its month.
+      */
+     private static DateTime getFirstDay(DateTime date){
+    	 String firstOfMonth = date.format("YYYY-MM-DD")
+    			 .replaceFirst("-[0-9]{2}$", "-01");
+    	 return new DateTime(firstOfMonth);
+     }
+     
+	 /**
+	  * Shows a month in the grid of DayBoxes.<br/>
+	  * The grid is only laid out the first time, or when something else
+	  * was put in the view; after that the boxes are just given their new
+	  * date and events.
+	  * @param date the date within the month shown.
+	  * @param days the events of each day of the month.
+	  */
+     private void layoutMonth(DateTime date, EventResults[] days){
+	          if(m_DayBoxes == null || getComponentCount() != m_GridSize)
+	        	  layoutGrid();
+	          m_YearMonth.setText(new SystemDate().getMonthName
+	        		  		(date.getMonth())+" "+date.getYear());
+	          DateTime firstDay = getFirstDay(date);
+	          int skip = firstDay.getWeekDay();
+	   		  int daysInMonth = days.length;
+	   		  //The last row is only shown if the month reaches into it.
+	   		  boolean lastRowUsed = 
+	   				  daysInMonth + skip - 1 > (ROWS - 1) * COLOUMNS;
+	   		  int currentBox = 0;
+	          for(int i=0; i<ROWS; i++){
+	        	  for(int j = 0; j<COLOUMNS; j++){
+	        		  DayBox db = m_DayBoxes[i][j];
+	        		  currentBox++;
+	        		  int currentDay = currentBox - skip + 1;
+	        		  //In case first of the month isn't sunday. 
+	        		  if (currentBox < skip || currentDay > daysInMonth)
+	        			 db.empty();
+	        		  //Otherwise add normal calendar
+	        		  else{
+	        			  db.fill(firstDay.plusDays(currentDay -1),
+	        					  days[currentDay -1]);
+	        			  db.setTopLabelText( currentDay + " ");
+	        		  }
+	        		  db.setVisible(i < ROWS - 1 || lastRowUsed);
+	        	  }
+	          }
+	          updateUI();
+     }
+     
+	 /**
+	  * Lays out the buttons, labels and DayBoxes of the view, replacing
+	  * whatever it showed. The DayBoxes are made the first time only.
+	  */
+     private void layoutGrid(){
+	          removeAll();
+	          initialiseFormLayout();
+	          if(m_DayBoxes == null){
+	        	  m_DayBoxes = new DayBox[ROWS][COLOUMNS];
+	        	  for(int i=0; i<ROWS; i++)
+	        		  for(int j = 0; j<COLOUMNS; j++)
+	        			  m_DayBoxes[i][j] = new DayBox();
+	          }
 	          JButton previousMonthButton = new JButton("Previous");
 	          previousMonthButton.addActionListener(
 	        		  new PREVButtonActionPerformed());
 	          String COL = "2", ROW = "2", COLSPAN = "5", ROWSPAN = "1";
 	          add(previousMonthButton,COL + "," + ROW);
-	          JLabel yearMonth = new JLabel(new SystemDate().getMonthName
-	        		  		(getDate().getMonth())+" "+getDate().getYear());
 	          COL = "6";
-	          add(yearMonth, COL + "," + ROW + "," + COLSPAN + "," + ROWSPAN + 
+	          add(m_YearMonth, COL + "," + ROW + "," + COLSPAN + "," + ROWSPAN + 
 	        	  ", center, default");
 	          JButton nextMonthButton = new JButton("Next");
 	          nextMonthButton.addActionListener(
@@ -156,59 +233,18 @@ public class MonthView extends View{
 	                  add(new JLabel(WeekDays[i]), cc.xy(intCol, intRow));
 	                  intCol += incrCol;
 	          }
-	          String firstOfMonth = getDate().format("YYYY-MM-DD")
-		   	  .replaceFirst("-[0-9]{2}$", "-01");
-	          DateTime firstDay = new DateTime(firstOfMonth);
-	          int skip = 0;
-	    	  for ( int k = 0 ; k < firstDay.getWeekDay(); k++)
-	    			skip++;	
-	   		  int currentDay = 0;
-	   		  int currentBox = 0;
 	   		  intRow = 6;
-	   		  int daysInMonth = getDate().getNumDaysInMonth();
-	   		  int dayDifference = 2;
 	          for(int i=0; i<ROWS; i++){
 	        	  intCol = 2;
-	        	  if(i == ROWS - 1){
-	        		  String lastBox =
-	        				MONTH_MATRIX [ROWS-dayDifference][COLOUMNS-1]
-	        						.getTopLabelText();
-	        		  //WARNING CHECK DAY BOX LABEL TEXT VALUES FOR EMPTY()
-	        		  if(lastBox.equals(daysInMonth + " ")
-	        				  || lastBox.equals(" ")){
-	        			  //System.out.println("break at box: " +currentBox );
-	        			  break;
-	        		  }       			
-	        	  }
 	        	  for(int j = 0; j<COLOUMNS; j++){
-	        		  DayBox db = new DayBox();
-	        		  currentBox++;
-	        		  currentDay = currentBox - skip + 1;
-	        		  //System.out.println(currentDate);
-	        		  //In case first of the month isn't sunday. 
-	        		  if (currentBox < skip || currentDay > daysInMonth)
-	        			 db.empty();
-	        		  //Otherwise add normal calendar
-	        		  else{
-	        			  DateTime currentDate = 
-	        					  firstDay.plusDays(currentDay -1);
-	        	           //System.out.println("WOOjkhhjkdekdhehkeweweh" + currentDay);
-	        			  EventList eel  = getToDisplay()
-	        					  .getEventsForDay(currentDate);
-	        			  db.setEventList(eel);
-	        			  db.setDate(currentDate);
-	        			  db.setTopLabelText( currentDay + " ");
-	        		  }
-	        		  MONTH_MATRIX [i][j] = db ; 
 	        		  CellConstraints cc = new CellConstraints();  
-	        		  add(MONTH_MATRIX [i][j], cc.xy(intCol, intRow));
+	        		  add(m_DayBoxes [i][j], cc.xy(intCol, intRow));
 	        		  intCol += incrCol;
 	        	  }
 	        	  intRow += incrCol;
-	          }}};
-        EventQueue.invokeLater(runThis);
-	    return true;
-	 }
+	          }
+	          m_GridSize = getComponentCount();
+     }
 	
 	
 	  
@@ -307,23 +343,13 @@ public class MonthView extends View{
                    System.out.println("Called MonthView :: CreateDisplay()");
                   }
                   
-                  if(getComponentCount() > 0){
-                   removeAll();
-                  }
-                  
                   EventList oShow = (EventList) getToDisplay();
                   
                   if(oShow==null){
                    oShow = new EventList();
                   }
+                  //The old widgets stay up until the new ones are ready.
                   setUpMain(oShow);
-                  EventQueue.invokeLater(new Runnable() {
-					
-					@Override
-					public void run() {
-						updateUI();
-					}
-				});
                   
                   //System.out.println("c: "+monthGrid.getColumns()+" r: "+monthGrid.getRows());
 
@@ -370,16 +396,7 @@ public class MonthView extends View{
          * @return true on success, false on failure
          */
         public boolean updateDisplay(){
-        	EventQueue.invokeLater(new Runnable() {
-    			
-				@Override
-				public void run() {
-					removeAll();
-					createDisplay();
-					updateUI();
-				}
-        	});
-       		
+        	createDisplay();
         	return true;
         }
         /** The month week grid x */
@@ -394,9 +411,12 @@ public class MonthView extends View{
         private static final int ROWS = 6;
         /** The columns within the tables */
         private static final int COLOUMNS = 7;
-        /** The initialisation of the DayBox Matrix  */
-        private static final DayBox [][] MONTH_MATRIX = 
-        new DayBox [ROWS][COLOUMNS];
+        /** The DayBoxes of the grid, kept from one month to the next */
+        private DayBox [][] m_DayBoxes;
+        /** The label showing the month and year */
+        private JLabel m_YearMonth = new JLabel();
+        /** The number of components in the view once the grid is laid out */
+        private int m_GridSize;
         private static DateTime SELECTED_DATE;
         
 
@@ -74,6 +74,19 @@ public class View extends JPanel{//Begin Class
 		return true;
 	}
 	
+	/**
+	 * Gets the updater which works out what the View shows in the
+	 * background. It is made when first asked for, as the View
+	 * constructor already sets the date of a subclass.
+	 * @return The updater of this View.
+	 */
+	protected ViewUpdater getUpdater(){
+		if (m_Updater == null){
+			m_Updater = new ViewUpdater();
+		}
+		return m_Updater;
+	}
+	
 	/**
      * Constructs a default View.
      * @return a View Object.
@@ -198,6 +211,9 @@ public class View extends JPanel{//Begin Class
 	/** The Object that a View has to display within itself */
 	private Object m_ToDisplay;
 	
+	/** Works out what the View shows in the background */
+	private ViewUpdater m_Updater;
+	
 	/** The Object used by the DayView, WeekView and MonthView... */
 	private DateTime m_Date;
 	
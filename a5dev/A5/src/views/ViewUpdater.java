@@ -0,0 +1,106 @@
+/**
+ * @file ViewUpdater.java
+ * @author agent
+ * @date 18/10/2026
+ * @brief Works out what a View shows in the background.
+ */
+
+package views;
+
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+/**
+ * Works out the events a View has to show away from the Event Dispatch
+ * Thread, then hands the result back to it to build the components.<br/>
+ * Each View has its own updater. Only the latest update of a View is
+ * wanted, so starting an update cancels the one before it; clicking
+ * Previous or Next many times quickly only ever shows the last date
+ * and no rebuilds are left waiting in the queue.<br/>
+ * A long computation should check isStale() as it goes and give up
+ * once it returns true.
+ * @author agent
+ * @brief Works out what a View shows in the background.
+ */
+public class ViewUpdater {
+
+	/**
+	 * One update of a View.
+	 * @param <T> The type of the result worked out in the background.
+	 * @brief One update of a View.
+	 */
+	public static abstract class Update<T> {
+		/**
+		 * Works out the result, called in the background.
+		 * @return The result, which may be null if the update went stale.
+		 */
+		protected abstract T compute();
+
+		/**
+		 * Shows the result, called on the Event Dispatch Thread. Not
+		 * called if a later update was started in the meantime.
+		 * @param result The result of compute().
+		 */
+		protected abstract void show(T result);
+
+		/**
+		 * Tells if a later update has been started.
+		 * @return True if the result of this update is no longer wanted.
+		 */
+		protected boolean isStale(){
+			return m_Stale;
+		}
+
+		/** True once a later update has been started. */
+		private volatile boolean m_Stale = false;
+	}
+
+	/**
+	 * Starts an update, cancelling the one in progress.
+	 * @param update The update.
+	 * @return true on execution.
+	 */
+	public <T> boolean submit(final Update<T> update){
+		SwingWorker<T, Void> worker = new SwingWorker<T, Void>(){
+			@Override
+			protected T doInBackground(){
+				if (update.isStale())
+					return null;
+				return update.compute();
+			}
+
+			@Override
+			protected void done(){
+				if (isCancelled() || update.isStale())
+					return;
+				try{
+					update.show(get());
+				} catch (InterruptedException ie){
+					System.out.println("InterruptedException caught, " +
+							"the exception was: " + ie);
+				} catch (ExecutionException ee){
+					System.out.println("ExecutionException caught, " +
+							"the exception was: " + ee.getCause());
+				}
+			}
+		};
+		synchronized (this){
+			if (m_Update != null){
+				m_Update.m_Stale = true;
+				//Not interrupted: the computation only reads the event
+				//list, it gives up by itself when it sees it is stale.
+				m_Worker.cancel(false);
+			}
+			m_Update = update;
+			m_Worker = worker;
+		}
+		worker.execute();
+		return true;
+	}
+
+	/** The latest update started. */
+	private Update<?> m_Update;
+	/** The worker running the latest update. */
+	private SwingWorker<?, Void> m_Worker;
+}
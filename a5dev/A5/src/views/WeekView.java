@@ -14,6 +14,8 @@ import java.awt.Dimension;
 import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -33,6 +35,7 @@ import dateAndTime.SystemTime;
 import digitalOrganiser.DigitalOrganiser;
 import events.Event;
 import events.EventList;
+import events.EventResults;
 
 
 /**
@@ -66,86 +69,149 @@ public class WeekView extends View{
      * @return true on success, false on failure
      */
     public boolean updateDisplay(){
-    	EventQueue.invokeLater(new Runnable() {
-			
-			@Override
-			public void run() {
-				//removeAll();
-				setUpMain();
-				//updateUI();
-			}
-    	});
-   		
+		setUpMain();
     	return true;
     }
     /**
-     * Creates the main display and adds the components for the view. 
+     * Creates the main display and adds the components for the view.<br/>
+     * The events of each day are found in the background, the components 
+     * are then laid out on the Event Dispatch Thread.
      */
 	private void setUpMain(){
+		final DateTime date = getDate();
+		final EventList el = (EventList) getToDisplay();
+		getUpdater().submit(new ViewUpdater.Update<EventResults[][]>(){
+			protected EventResults[][] compute(){
+				return sortIntoHours(el, getFirstDay(date), this);
+			}
+			protected void show(EventResults[][] hourEvents){
+				layoutWeek(date, hourEvents);
+			}
+		});
+	}
+	
+	/**
+	 * Sorts the events of a week into the hours they start in, in one pass
+	 * over each day, so every HourBox is given only its own events.<br/>
+	 * An event without a starting time is left out, as no HourBox shows it.
+	 * @param el the events to sort.
+	 * @param firstDay the first day of the week.
+	 * @param update the update asking, which stops if it goes stale.
+	 * @return the events of each hour and day, indexed [hour][day].
+	 */
+	private static EventResults[][] sortIntoHours(EventList el,
+			DateTime firstDay, ViewUpdater.Update<?> update){
+		EventResults[][] hourEvents = 
+				new EventResults[HOURS_IN_DAY][NUMBER_OF_WEEKDAYS];
+		for(int j = 0; j < NUMBER_OF_WEEKDAYS; j++){
+			if(update.isStale())
+				return null;
+			List<Event> day = el.getOccurrences(firstDay.plusDays(j));
+			List<List<Event>> hours = new ArrayList<List<Event>>();
+			for(int i = 0; i < HOURS_IN_DAY; i++)
+				hours.add(null);
+			for(Event e : day){
+				DateTime s = e.getStartingDateTime();
+				if(!s.hasHourMinuteSecond())
+					continue;
+				if(hours.get(s.getHour()) == null)
+					hours.set(s.getHour(), new ArrayList<Event>());
+				hours.get(s.getHour()).add(e);
+			}
+			for(int i = 0; i < HOURS_IN_DAY; i++){
+				if(hours.get(i) == null)
+					hourEvents[i][j] = EventResults.EMPTY;
+				else
+					hourEvents[i][j] = new EventResults(hours.get(i));
+			}
+		}
+		return hourEvents;
+	}
+	
+	/**
+	 * Gets the first day shown in the week of a date.
+	 * @param date the date.
+	 * @return the first day, at midnight.
+	 */
+	private static DateTime getFirstDay(DateTime date){
+		DateTime time = SystemTime.setTimeZero(date);
+		time = time.plusDays(5);
+		int dayNumber = time.getWeekDay();
+		//System.out.println("TODAY IS : "+ 
+			//SystemDate.getDayName(dayNumber) + " " +time.toString());
+		time = time.minusDays(dayNumber-1);
+		//System.out.println("WV Starts from : "+ 
+			//SystemDate.getDayName(time.getWeekDay()) + " " +
+				//time.toString());
+		return time;
+	}
+	
+	/**
+	 * Shows a week in the grid of HourBoxes.<br/>
+	 * The grid is only laid out the first time, or when something else
+	 * was put in the view; after that the boxes are just given their new
+	 * hour and events.
+	 * @param date the date within the week shown.
+	 * @param hourEvents the events of each hour and day of the week.
+	 */
+	private void layoutWeek(DateTime date, EventResults[][] hourEvents){
+		if(m_HourBoxes == null || getComponentCount() != m_GridSize)
+			layoutGrid();
+		m_WeekLabel.setText(getWeekLabel(date));
+		DateTime time = getFirstDay(date);
+		for(int i = 0; i < HOURS_IN_DAY; i++){
+			for(int j = 1; j <= NUMBER_OF_WEEKDAYS; j++){
+				m_HourBoxes[i][j-1].setDate(time, hourEvents[i][j-1]);
+				time = time.plusDays(1);
+			}
+	        int YEARS = 0, MONTHS = 0, DAYS = 0,
+                HOURS = 1, MINUTES = 0, SECONDS = 0;
+			time = time.plus(YEARS,MONTHS,DAYS,HOURS,MINUTES,SECONDS,
+					DateTime.DayOverflow.Abort);
+			time = time.minusDays(7);
+		}
+		updateUI();
+	}
+	
+	/**
+	 * Lays out the buttons, labels and HourBoxes of the view, replacing
+	 * whatever it showed. The HourBoxes are made the first time only.
+	 */
+	private void layoutGrid(){
 		removeAll();
-		 
-		
+		if(m_HourBoxes == null){
+			m_HourBoxes = new HourBox[HOURS_IN_DAY][NUMBER_OF_WEEKDAYS];
+			for(int i = 0; i < HOURS_IN_DAY; i++)
+				for(int j = 0; j < NUMBER_OF_WEEKDAYS; j++)
+					m_HourBoxes[i][j] = new HourBox();
+		}
+		FormLayout layout = new FormLayout(
+				DAYS_PANEL_LAYOUT_COL_SPEC,
+				new RowSpec[]{});
+		int COL_SUN = 1, COL_MON = 3, COL_TUE = 5, COL_WED = 7,	
+				COL_THU = 9, COL_FRI = 11, COL_SAT = 13;
+		layout.setColumnGroups(new int[][] 
+				{{COL_SUN, COL_MON, COL_TUE, COL_WED,
+				COL_THU, COL_FRI, COL_SAT
+				}});
 		
-		EventQueue.invokeLater(new Runnable() {
-			@Override
-			public void run() {
-				FormLayout layout = new FormLayout(
-						DAYS_PANEL_LAYOUT_COL_SPEC,
-						new RowSpec[]{});
-				int COL_SUN = 1, COL_MON = 3, COL_TUE = 5, COL_WED = 7,	
-						COL_THU = 9, COL_FRI = 11, COL_SAT = 13;
-				layout.setColumnGroups(new int[][] 
-						{{COL_SUN, COL_MON, COL_TUE, COL_WED,
-						COL_THU, COL_FRI, COL_SAT
-						}});
-				
-				 DefaultFormBuilder fbuilder = new DefaultFormBuilder
-							(layout);
-				 fbuilder.setDefaultDialogBorder();
-				int dayNumber = getDate().getWeekDay();			
-				for(int i=1;i<=NUMBER_OF_WEEKDAYS;i++){   
-					String dayName = SystemDate.getDayName(i);
-					fbuilder.append(new JLabel(dayName));
-				}
-				EventList el = (EventList) getToDisplay();
-				DateTime time = SystemTime.setTimeZero(getDate());
-				time = SystemTime.setTimeZero(getDate());
-				time = time.plusDays(5);
-				dayNumber = time.getWeekDay();
-				//System.out.println("TODAY IS : "+ 
-					//SystemDate.getDayName(dayNumber) + " " +time.toString());
-				time = time.minusDays(dayNumber-1);
-				//System.out.println("WV Starts from : "+ 
-					//SystemDate.getDayName(time.getWeekDay()) + " " +
-						//time.toString());
-				int lsThanTen = 10;
-				for(int i = 0; i < HOURS_IN_DAY; i++){
-					String hour = "" + i;
-					if(i<lsThanTen)	hour = "0" + i;
-					fbuilder.appendSeparator(hour+":00" );
-					for(int j = 1; j <= NUMBER_OF_WEEKDAYS; j++){
-						//System.out.println("TIME:" + time.toString());
-						//System.out.println(getDate().toString());
-						HourBox hb = new HourBox();
-						//System.out.println("EL Size: "+el.getSize());
-						hb.setEventList(el);
-						//hb.setDebugStatus(true);
-						hb.setDate(time);
-						time = time.plusDays(1);
-						//System.out.println("HB EL size: "+ hb.getEventList().getSize());
-						//System.out.println("HB list size: "+hb.getEventJList().getModel().getSize());
-						//fbuilder.append(new JLabel("HOUR BOX"));
-						fbuilder.append(hb);
-					}
-			        int YEARS = 0, MONTHS = 0, DAYS = 0,
-	                    HOURS = 1, MINUTES = 0, SECONDS = 0;
-					time = time.plus(YEARS,MONTHS,DAYS,HOURS,MINUTES,SECONDS,
-							DateTime.DayOverflow.Abort);
-					time = time.minusDays(7);
-				}
-				buildPanel(fbuilder.getPanel());
-			}});
-
+		 DefaultFormBuilder fbuilder = new DefaultFormBuilder
+					(layout);
+		 fbuilder.setDefaultDialogBorder();
+		for(int i=1;i<=NUMBER_OF_WEEKDAYS;i++){   
+			String dayName = SystemDate.getDayName(i);
+			fbuilder.append(new JLabel(dayName));
+		}
+		int lsThanTen = 10;
+		for(int i = 0; i < HOURS_IN_DAY; i++){
+			String hour = "" + i;
+			if(i<lsThanTen)	hour = "0" + i;
+			fbuilder.appendSeparator(hour+":00" );
+			for(int j = 0; j < NUMBER_OF_WEEKDAYS; j++)
+				fbuilder.append(m_HourBoxes[i][j]);
+		}
+		buildPanel(fbuilder.getPanel());
+		m_GridSize = getComponentCount();
 	}
 	
 	/**
@@ -159,16 +225,10 @@ public class WeekView extends View{
 		btnPreviousDay.addActionListener(new PREVButtonActionPerformed());
 		String COL = "2", ROW = "2";
 		add(btnPreviousDay, COL + "," + ROW);
-		DateTime firstDT = getDate().minusDays(getDate().getWeekDay()-1); 
-		String firstDay = firstDT.format("DD/MM/YYYY");
-		int lstDayDist = 6;
-		DateTime lastDT =firstDT.plusDays(lstDayDist);
-		String lastDay = lastDT.format("DD/MM/YYYY");
-		String weekDate = firstDay +" - "+ lastDay;
-		JLabel lblDate = new JLabel(weekDate);
-		lblDate.setHorizontalAlignment(SwingConstants.CENTER);
+		m_WeekLabel.setText(getWeekLabel(getDate()));
+		m_WeekLabel.setHorizontalAlignment(SwingConstants.CENTER);
 		COL = "4";
-		add(lblDate, COL + "," + ROW);
+		add(m_WeekLabel, COL + "," + ROW);
 		JButton btnNextDay = new JButton("Next week");
 		btnNextDay.addActionListener(new NEXTButtonActionPerformed());
 		COL = "6";
@@ -183,6 +243,20 @@ public class WeekView extends View{
 				", fill, fill");
 		updateUI();
 	}
+	
+	/**
+	 * Gets the text of the label above the week.
+	 * @param date the date within the week shown.
+	 * @return the first and last dates of the week.
+	 */
+	private static String getWeekLabel(DateTime date){
+		DateTime firstDT = date.minusDays(date.getWeekDay()-1); 
+		String firstDay = firstDT.format("DD/MM/YYYY");
+		int lstDayDist = 6;
+		DateTime lastDT =firstDT.plusDays(lstDayDist);
+		String lastDay = lastDT.format("DD/MM/YYYY");
+		return firstDay +" - "+ lastDay;
+	}
 
 	 /**
 	   * Creates an action listener that will be assigned to the previous month button.
@@ -221,11 +295,19 @@ public class WeekView extends View{
               updateDisplay();
 	       }
 	      }
+	/** The HourBoxes of the grid by hour and day, kept between weeks. */
+	private HourBox[][] m_HourBoxes;
+	/** The label showing the dates of the week. */
+	private JLabel m_WeekLabel = new JLabel();
+	/** The number of components in the view once the grid is laid out. */
+	private int m_GridSize;
+	
 	/** number of hours in a day */   
 	private static final int HOURS_IN_DAY = 24;
 	
 	/** number days in a week */  
 	private static final int NUMBER_OF_WEEKDAYS = 7;
+	
 
 	/** The layout specification used by the WeekView. */
 	private static final FormLayout WEEK_VIEW_PANEL_LAYOUT = new FormLayout(
@@ -6,6 +6,7 @@
  */
 package views;
 
+import java.awt.Component;
 import java.awt.EventQueue;
 import javax.swing.*;
 import ui.UserInterface;
@@ -154,6 +155,7 @@ public class YearView extends View{
 		}
 		JTable oTable;
 		DateTime date = SystemDate.getCurrentDate();
+		this.setDate(date);
 		oTable = this.createTable(date,this.getEventList());
 		this.setToDisplay(oTable);
 		if(getComponentCount() > 0){
@@ -175,6 +177,7 @@ public class YearView extends View{
 			System.out.println("Called YearView :: createDisplay(DateTime)");
 		}
 		JTable oTable;
+		this.setDate(oDate);
 		oTable = this.createTable(oDate,this.getEventList());
 		this.setToDisplay(oTable);
 		if(getComponentCount() > 0){
@@ -198,8 +201,11 @@ public class YearView extends View{
 							   "Eventlist)");
 		}
 		CalendarTableModel ctm = new CalendarTableModel(this,date);
-		ctm.setEventData(el);
-		ctm.refreshData(date);
+		//The model has already collected the data of the YearView's list.
+		if(el!=this.getEventList()){
+			ctm.setEventData(el);
+			ctm.refreshData(date);
+		}
 		JTable result = new JTable(ctm);
 		TableGUIHandler handler = new TableGUIHandler();
 		result.setDefaultRenderer(Object.class, new CalendarCellRenderer());
@@ -212,6 +218,68 @@ public class YearView extends View{
 		return result;
 	}
 	
+	/**
+	 * Updates the Calendar to show the events of the year it is showing.
+	 * @return true on execution.
+	 */
+	public boolean updateDisplay(){
+		boolean test = false;
+		if(test){
+			System.out.println("Called YearView :: updateDisplay()");
+		}
+		return this.updateDisplay(this.getDate());
+	}
+	
+	/**
+	 * Updates the Calendar to show the events of a year.<br/>
+	 * The number of events on each day is collected in the background and
+	 * then handed to the Table on the Event Dispatch Thread. Updating again
+	 * before it is done cancels the earlier update.
+	 * @param date the Date holding the year to show.
+	 * @return true on execution.
+	 */
+	public boolean updateDisplay(final DateTime date){
+		boolean test = false;
+		if(test){
+			System.out.println("Called YearView :: updateDisplay(DateTime)");
+		}
+		this.setDate(date);
+		final CalendarTableModel ctm = 
+				(CalendarTableModel) this.getToDisplay().getModel();
+		getUpdater().submit(new ViewUpdater.Update<Object[][]>(){
+			protected Object[][] compute(){
+				return ctm.collectDataForYear(date);
+			}
+			protected void show(Object[][] rows){
+				ctm.setRowData(rows);
+				ctm.setDate(date);
+				JLabel year = getYearLabel();
+				if(year!=null){
+					year.setText(""+date.getYear());
+				}
+				repaint();
+			}
+		});
+		return true;
+	}
+	
+	/**
+	 * Finds the JLabel showing the year above the Calendar.
+	 * @return the JLabel, or null if the YearView has not been laid out.
+	 */
+	private JLabel getYearLabel(){
+		JLabel result = null;
+		Component[] comps = this.getComponents();
+		for(int i=0;i<comps.length;i++)
+			if(comps[i] instanceof JLabel)
+				result = (JLabel) comps[i];
+		if(result==null){
+			System.err.println("Error in View," +
+					" cannot display the Year above Calendar");
+		}
+		return result;
+	}
+	
 	/**
 	 * Sets up all the components that the View will have, including the object
 	 * to Display.
@@ -332,5 +400,6 @@ public class YearView extends View{
 	
 	/** The EventList that holds all the events the Calendar must display */
 	private EventList m_EventList;
+	
 
 }
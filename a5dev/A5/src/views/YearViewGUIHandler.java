@@ -8,7 +8,6 @@ package views;
 
 import hirondelle.date4j.DateTime;
 
-import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
@@ -62,28 +61,17 @@ public class YearViewGUIHandler implements ActionListener{
 	public void actionPerformed(ActionEvent event) {
 		Object source = event.getSource();
 		YearView view = this.getView();
-		JTable t = view.getToDisplay();
-		CalendarTableModel ctm = (CalendarTableModel) t.getModel();
-		DateTime d = ctm.getDate();
-		int time = d.getYear().intValue(), tp=-1;
-		JLabel temp;
-		Component[] comps = view.getComponents();
-		for(int i=0;i<comps.length;i++)
-			if(comps[i] instanceof JLabel)
-				tp = i;
-		if(tp<0){
-			System.err.println("Error in View," +
-					" cannot display the Year above Calendar");
-		}
-		temp = (JLabel) comps[tp];
+		//The year last asked for, which may still be being collected.
+		DateTime d = view.getDate();
+		int time = d.getYear().intValue();
 		if(source instanceof CalendarButton){
 			CalendarButton b = (CalendarButton) source;
 			switch(b.getType()){
 				case CalendarButton.NEXT_BUTTON:
-					updateCalendar(view,time+1,ctm,temp);
+					updateCalendar(view,time+1);
 					break;
 				case CalendarButton.PREVIOUS_BUTTON:
-					updateCalendar(view,time-1,ctm,temp);
+					updateCalendar(view,time-1);
 					break;
 				default:
 					
@@ -94,25 +82,16 @@ public class YearViewGUIHandler implements ActionListener{
 	
 	/**
 	 * Updates the YearView's display when invoked to a specific year.
+	 * The YearView collects the data in the background, so clicking many
+	 * times quickly only collects the data of the last year asked for.
 	 * @param view YearView holding the components.
 	 * @param year The new year that the view is being updated to.
-	 * @param ctm The CalendarTableModel that holds the data for the YearView.
-	 * @param temp The JLabel that the YearView has to show what Year it displays.
 	 * @return true on success, false otherwise.
 	 */
-	private boolean updateCalendar(YearView view, int year, 
-								   CalendarTableModel ctm, JLabel temp)
+	private boolean updateCalendar(YearView view, int year)
 	{
 		DateTime d = new DateTime(year+"-01-01");
-		ctm.refreshData(d);
-		ctm.setDate(d);
-		if(temp==null){
-			view.repaint();
-			return false;
-		}
-		temp.setText(""+d.getYear());
-		view.repaint();
-		return true;
+		return view.updateDisplay(d);
 	}
 	
 	/** The YearView which holds the component that are listened to by this GUIHandler. */